@@ -68,6 +68,8 @@ import java.util.Enumeration;
 import java.util.Observable;
 import java.util.Observer;
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.swing.AbstractAction;
 import javax.swing.AbstractButton;
@@ -83,6 +85,7 @@ import javax.swing.JFileChooser;
 import javax.swing.JFormattedTextField;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
+import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JRadioButton;
 import javax.swing.JScrollPane;
@@ -92,6 +95,8 @@ import javax.swing.JToolTip;
 import javax.swing.Popup;
 import javax.swing.PopupFactory;
 import javax.swing.ProgressMonitor;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 import javax.swing.filechooser.FileFilter;
 
 import org.apache.log4j.Logger;
@@ -590,6 +595,14 @@ public class AreaViewer extends VisPlugin {
     recalculateVisibleButton.setAction(paintEnvironmentAction);
     visualizeChannelPanel.add(recalculateVisibleButton);
 
+    final JButton precalculateButton = new JButton("Precalculate links");
+    precalculateButton.addActionListener(new ActionListener() {
+      public void actionPerformed(ActionEvent e) {
+        precalculateLinks(precalculateButton);
+      }
+    });
+    visualizeChannelPanel.add(precalculateButton);
+
     // Create control panel
     controlPanel = Box.createVerticalBox();
     graphicsComponentsPanel.setAlignmentX(Component.LEFT_ALIGNMENT);
@@ -632,6 +645,74 @@ public class AreaViewer extends VisPlugin {
     }
   }
 
+  /**
+   * Calculates ray tracing results between all radios in a background
+   * thread, showing progress in a progress monitor. The progress monitor
+   * is only accessed from the event dispatch thread, which polls the
+   * number of calculated links.
+   * Refused while the simulation is running, since ray tracing reads the
+   * obstacle world and radio positions from several threads.
+   *
+   * @param button Button disabled until the calculation has finished
+   */
+  private void precalculateLinks(final JButton button) {
+    if (currentSimulation.isRunning()) {
+      JOptionPane.showMessageDialog(Cooja.getTopParentContainer(),
+          "Stop the simulation before precalculating links.",
+          "Simulation is running", JOptionPane.WARNING_MESSAGE);
+      return;
+    }
+    button.setEnabled(false);
+
+    final int radios = currentRadioMedium.getRegisteredRadios().length;
+    final int total = Math.max(1, radios*(radios-1));
+    final ProgressMonitor pm = new ProgressMonitor(
+        Cooja.getTopParentContainer(),
+        "Precalculating links",
+        null,
+        0,
+        total
+    );
+    final AtomicInteger finishedLinks = new AtomicInteger();
+    final AtomicBoolean canceled = new AtomicBoolean(false);
+
+    final Timer progressTimer = new Timer(200, new ActionListener() {
+      public void actionPerformed(ActionEvent e) {
+        if (pm.isCanceled()) {
+          canceled.set(true);
+        }
+        int finished = finishedLinks.get();
+        pm.setProgress(finished);
+        pm.setNote(finished + "/" + total + " links");
+      }
+    });
+    progressTimer.start();
+
+    Thread thread = new Thread(new Runnable() {
+      public void run() {
+        try {
+          currentRadioMedium.precalculatePaths(new ChannelModel.PrecalculationProgress() {
+            public boolean linkCalculated(int finished, int total) {
+              finishedLinks.set(finished);
+              return !canceled.get();
+            }
+          });
+        } catch (Exception ex) {
+          logger.fatal("Link precalculation exception: " + ex.getMessage(), ex);
+        }
+        SwingUtilities.invokeLater(new Runnable() {
+          public void run() {
+            progressTimer.stop();
+            pm.close();
+            button.setEnabled(true);
+          }
+        });
+      }
+    }, "MRM link precalculation");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
   /**
    * Listens to mouse event on canvas
    */
@@ -38,11 +38,17 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Enumeration;
 import java.util.Hashtable;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Observable;
 import java.util.Observer;
 import java.util.Properties;
 import java.util.Random;
 import java.util.Vector;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.swing.tree.DefaultMutableTreeNode;
 
@@ -95,12 +101,23 @@ public class ChannelModel {
   private Simulation simulation;
 
   
-  // Ray tracing components temporary vector
-  private Vector<Vector<Line2D>> calculatedVisibleSides = new Vector<Vector<Line2D>>();
-  private Vector<Point2D> calculatedVisibleSidesSources = new Vector<Point2D>();
-  private Vector<Line2D> calculatedVisibleSidesLines = new Vector<Line2D>();
-  private Vector<AngleInterval> calculatedVisibleSidesAngleIntervals = new Vector<AngleInterval>();
-  private static int maxSavedVisibleSides = 30; // Max size of lists above
+  // Ray tracing components temporary vectors, one set per ray tracing thread
+  private ThreadLocal<VisibleSides> visibleSidesCache = new ThreadLocal<VisibleSides>() {
+    protected VisibleSides initialValue() {
+      return new VisibleSides();
+    }
+  };
+  private static int maxSavedVisibleSides = 30; // Max size of lists in VisibleSides
+
+  // Ray tracing results per source and destination position, least recently used first
+  private LinkedHashMap<PathKey, double[]> pathCache = new LinkedHashMap<PathKey, double[]>(16, 0.75f, true) {
+    private static final long serialVersionUID = 1L;
+    protected boolean removeEldestEntry(Map.Entry<PathKey, double[]> eldest) {
+      return size() > maxCachedPaths;
+    }
+  };
+  private volatile long pathCacheVersion = 0; // Incremented when obstacles or parameters change
+  private static int maxCachedPaths = 65536; // Max size of cache above
 
   /**
    * Notifies observers when this channel model has changed settings.
@@ -326,6 +343,7 @@ public class ChannelModel {
    */
   public void removeAllObstacles() {
     myObstacleWorld.removeAll();
+    clearPathCache();
     settingsObservable.setChangedAndNotify();
   }
 
@@ -354,6 +372,7 @@ public class ChannelModel {
    */
   public void addRectObstacle(double startX, double startY, double width, double height, boolean notify) {
     myObstacleWorld.addObstacle(startX, startY, width, height);
+    clearPathCache();
 
     if (notify) {
       settingsObservable.setChangedAndNotify();
@@ -437,6 +456,7 @@ public class ChannelModel {
     // Guessing we need to recalculate input to FSPL+Output power
     needToPrecalculateFSPL = true;
     needToPrecalculateOutputPower = true;
+    clearPathCache();
 
     settingsObservable.setChangedAndNotify();
   }
@@ -446,8 +466,21 @@ public class ChannelModel {
    * will be notified.
    */
   public void notifySettingsChanged() {
+    clearPathCache();
     settingsObservable.setChangedAndNotify();
   }
+
+  /**
+   * Forgets all cached ray tracing results, including visible sides.
+   * Results being calculated concurrently are stored with the old version,
+   * and are never used.
+   */
+  private void clearPathCache() {
+    synchronized (pathCache) {
+      pathCacheVersion++;
+      pathCache.clear();
+    }
+  }
   
   /**
    * Path loss component from Friis' transmission equation.
@@ -1009,9 +1042,18 @@ public class ChannelModel {
    * @param lookThrough Line to look through (or null)
    * @return All visible sides
    */
-  synchronized private Vector<Line2D> getAllVisibleSides(double sourceX, double sourceY, AngleInterval angleInterval, Line2D lookThrough) {
-    // synchronized because a race condition happens in this method when MRMVisualizerSkin accesses this module from another thread
+  private Vector<Line2D> getAllVisibleSides(double sourceX, double sourceY, AngleInterval angleInterval, Line2D lookThrough) {
+    // Saved results are per thread, as MRMVisualizerSkin and precalculations trace concurrently
     Point2D source = new Point2D.Double(sourceX, sourceY);
+    VisibleSides saved = visibleSidesCache.get();
+    if (saved.version != pathCacheVersion) {
+      saved.clear();
+      saved.version = pathCacheVersion;
+    }
+    Vector<Vector<Line2D>> calculatedVisibleSides = saved.sides;
+    Vector<Point2D> calculatedVisibleSidesSources = saved.sources;
+    Vector<Line2D> calculatedVisibleSidesLines = saved.lines;
+    Vector<AngleInterval> calculatedVisibleSidesAngleIntervals = saved.angleIntervals;
 
     // Check if results were already calculated earlier
     for (int i=0; i < calculatedVisibleSidesSources.size(); i++) {
@@ -1420,12 +1462,112 @@ public class ChannelModel {
   }
   
 
-  // TODO Fix better data type support
-  private double[] getTransmissionData(TxPair txPair, TransmissionData dataType) {
-    Point2D source = txPair.getFrom();
-    Point2D dest = txPair.getTo();
-    double accumulatedVariance = 0;
+  /**
+   * Returns path gain and delay spreads from source to destination,
+   * from the cache if available.
+   *
+   * @param source Source position
+   * @param dest Destination position
+   * @return Total path gain (dB), delay spread and RMS delay spread
+   */
+  private double[] getPathData(Point2D source, Point2D dest) {
+    if (logMode) {
+      return calculatePathData(source, dest);
+    }
 
+    PathKey key;
+    double[] pathData;
+    synchronized (pathCache) {
+      key = new PathKey(source, dest, pathCacheVersion);
+      pathData = pathCache.get(key);
+    }
+    if (pathData == null) {
+      pathData = calculatePathData(source, dest);
+      synchronized (pathCache) {
+        pathCache.put(key, pathData);
+      }
+    }
+    return pathData;
+  }
+
+  /**
+   * Receives progress of {@link ChannelModel#precalculatePaths(TxPair[], PrecalculationProgress)}.
+   */
+  public interface PrecalculationProgress {
+    /**
+     * Called from ray tracing threads whenever a link has been calculated.
+     *
+     * @param finished Number of calculated links
+     * @param total Total number of links
+     * @return False to abort the remaining calculations
+     */
+    public boolean linkCalculated(int finished, int total);
+  }
+
+  /**
+   * Calculates ray tracing results of all given links in parallel, so that
+   * later transmissions between the same positions use cached results.
+   * Links already in the cache are not calculated again.
+   *
+   * @param links Links to calculate
+   * @param progress Progress listener, may be null
+   * @return True if all links were calculated, false if aborted
+   */
+  public boolean precalculatePaths(TxPair[] links, PrecalculationProgress progress) {
+    /* Prepare shared state before tracing concurrently */
+    getFSPL(1);
+    myObstacleWorld.organizeSpatialObstacles();
+
+    PrecalculationTask task = new PrecalculationTask(links, 0, links.length, progress,
+        new AtomicInteger(), new AtomicBoolean());
+    ForkJoinPool.commonPool().invoke(task);
+    return !task.aborted.get();
+  }
+
+  private class PrecalculationTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+    private final TxPair[] links;
+    private final int from, to;
+    private final PrecalculationProgress progress;
+    private final AtomicInteger finished;
+    private final AtomicBoolean aborted;
+
+    public PrecalculationTask(TxPair[] links, int from, int to, PrecalculationProgress progress,
+        AtomicInteger finished, AtomicBoolean aborted) {
+      this.links = links;
+      this.from = from;
+      this.to = to;
+      this.progress = progress;
+      this.finished = finished;
+      this.aborted = aborted;
+    }
+
+    protected void compute() {
+      if (to - from > 1) {
+        int mid = (from + to) >>> 1;
+        invokeAll(
+            new PrecalculationTask(links, from, mid, progress, finished, aborted),
+            new PrecalculationTask(links, mid, to, progress, finished, aborted));
+        return;
+      }
+      for (int i=from; i < to && !aborted.get(); i++) {
+        getPathData(links[i].getFrom(), links[i].getTo());
+        int done = finished.incrementAndGet();
+        if (progress != null && !progress.linkCalculated(done, links.length)) {
+          aborted.set(true);
+        }
+      }
+    }
+  }
+
+  /**
+   * Traces all rays from source to destination and combines them.
+   *
+   * @param source Source position
+   * @param dest Destination position
+   * @return Total path gain (dB), delay spread and RMS delay spread
+   */
+  private double[] calculatePathData(Point2D source, Point2D dest) {
     // - Get all ray paths from source to destination -
     RayData originRayData = new RayData(
         RayData.RayType.ORIGIN,
@@ -1596,6 +1738,21 @@ public class ChannelModel {
         logInfo.append("RMS delay spread: " + String.format("%2.3f", delaySpreadRMS) + "\n");
     }
 
+    return new double[] {totalPathGain, delaySpread, delaySpreadRMS};
+  }
+
+  // TODO Fix better data type support
+  private double[] getTransmissionData(TxPair txPair, TransmissionData dataType) {
+    Point2D source = txPair.getFrom();
+    Point2D dest = txPair.getTo();
+    double accumulatedVariance = 0;
+
+    // - Get path gain and delay spread, ray tracing only if not cached -
+    double[] pathData = getPathData(source, dest);
+    double totalPathGain = pathData[0];
+    double delaySpread = pathData[1];
+    double delaySpreadRMS = pathData[2];
+
     // - Calculate received power -
     // Using formula (dB)
     //  Received power = Output power + System gain + Transmitter gain + Path Loss + Receiver gain
@@ -1678,7 +1835,7 @@ public class ChannelModel {
    * The third value is the received signal strength which may be used in comparison with interference etc.
    */
   public double[] getSINR(TxPair txPair, double interference) {
-    /* TODO Cache values: called repeatedly with noise sources. */
+    /* Ray tracing results are cached, see getTransmissionData() */
 
     // Calculate received signal strength
     double[] signalStrength = getReceivedSignalStrength(txPair);
@@ -1881,10 +2038,63 @@ public class ChannelModel {
     }
     needToPrecalculateFSPL = true;
     needToPrecalculateOutputPower = true;
+    clearPathCache();
     settingsObservable.setChangedAndNotify();
     return true;
   }
 
+  /**
+   * Recently calculated visible sides of one ray tracing thread.
+   */
+  private static class VisibleSides {
+    private Vector<Vector<Line2D>> sides = new Vector<Vector<Line2D>>();
+    private Vector<Point2D> sources = new Vector<Point2D>();
+    private Vector<Line2D> lines = new Vector<Line2D>();
+    private Vector<AngleInterval> angleIntervals = new Vector<AngleInterval>();
+    private long version = -1;
+
+    public void clear() {
+      sides.clear();
+      sources.clear();
+      lines.clear();
+      angleIntervals.clear();
+    }
+  }
+
+  /**
+   * Key of cached ray tracing results.
+   */
+  private static class PathKey {
+    private final double sourceX, sourceY, destX, destY;
+    private final long version;
+
+    public PathKey(Point2D source, Point2D dest, long version) {
+      this.sourceX = source.getX();
+      this.sourceY = source.getY();
+      this.destX = dest.getX();
+      this.destY = dest.getY();
+      this.version = version;
+    }
+
+    public boolean equals(Object obj) {
+      if (!(obj instanceof PathKey)) {
+        return false;
+      }
+      PathKey k = (PathKey) obj;
+      return sourceX == k.sourceX && sourceY == k.sourceY &&
+          destX == k.destX && destY == k.destY && version == k.version;
+    }
+
+    public int hashCode() {
+      long h = Double.doubleToLongBits(sourceX);
+      h = 31*h + Double.doubleToLongBits(sourceY);
+      h = 31*h + Double.doubleToLongBits(destX);
+      h = 31*h + Double.doubleToLongBits(destY);
+      h = 31*h + version;
+      return (int) (h ^ (h >>> 32));
+    }
+  }
+
   public static abstract class TxPair {
     public abstract double getFromX();
     public abstract double getFromY();
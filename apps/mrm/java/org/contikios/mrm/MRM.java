@@ -30,6 +30,7 @@
 
 package org.contikios.mrm;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Hashtable;
 import java.util.Observable;
@@ -82,6 +83,7 @@ public class MRM extends AbstractRadioMedium {
   public final static boolean WITH_DIRECTIONAL = true; /* DirectionalAntennaRadio */
 
   private Observer channelModelObserver = null;
+  private int noiseSources = 0; /* Registered noise source radios */
 
   private boolean WITH_CAPTURE_EFFECT;
   private double CAPTURE_EFFECT_THRESHOLD;
@@ -111,6 +113,9 @@ public class MRM extends AbstractRadioMedium {
         CAPTURE_EFFECT_THRESHOLD = currentChannelModel.getParameterDoubleValue(ChannelModel.Parameter.captureEffectSignalTreshold);
         CAPTURE_EFFECT_PREAMBLE_DURATION = currentChannelModel.getParameterDoubleValue(ChannelModel.Parameter.captureEffectPreambleDuration);
         
+        /* Background noise may have changed */
+        invalidateSignalStrengths();
+
         /* Radio Medium changed here, so notify */
         radioMediumObservable.setChangedAndNotify();
       }
@@ -144,8 +149,12 @@ public class MRM extends AbstractRadioMedium {
         /* Radio Medium changed here so notify Observers */
         radioMediumObservable.setChangedAndNotify();
         
-        if (WITH_NOISE && radio instanceof NoiseSourceRadio) {
-                ((NoiseSourceRadio)radio).addNoiseLevelListener(noiseListener);
+        if (radio instanceof NoiseSourceRadio) {
+                /* Counted regardless of WITH_NOISE, so the count stays valid if the flag changes */
+                noiseSources++;
+                if (WITH_NOISE) {
+                        ((NoiseSourceRadio)radio).addNoiseLevelListener(noiseListener);
+                }
         }
   }
   public void unregisterRadioInterface(Radio radio, Simulation sim) {
@@ -154,7 +163,8 @@ public class MRM extends AbstractRadioMedium {
         /* Radio Medium changed here so notify Observers */
         radioMediumObservable.setChangedAndNotify();
         
-        if (WITH_NOISE && radio instanceof NoiseSourceRadio) {
+        if (radio instanceof NoiseSourceRadio) {
+                noiseSources--;
                 ((NoiseSourceRadio)radio).removeNoiseLevelListener(noiseListener);
         }
   }
@@ -291,53 +301,52 @@ public class MRM extends AbstractRadioMedium {
     return newConnection;
   }
 
-  public void updateSignalStrengths() {
-
-    /* Reset: Background noise */
-        double background = 
-                currentChannelModel.getParameterDoubleValue((Parameter.bg_noise_mean));
-    for (Radio radio : getRegisteredRadios()) {
-      radio.setCurrentSignalStrength(background);
-    }
+  protected double getBackgroundSignalStrength(Radio radio) {
+    /* Background noise */
+    return currentChannelModel.getParameterDoubleValue((Parameter.bg_noise_mean));
+  }
 
+  protected void addSignalStrengths(RadioConnection conn, SignalStrengths signalStrengths) {
     /* Active radio connections */
-    RadioConnection[] conns = getActiveConnections();
-    for (RadioConnection conn : conns) {
-      for (Radio dstRadio : ((MRMRadioConnection) conn).getDestinations()) {
-        double signalStrength = ((MRMRadioConnection) conn).getDestinationSignalStrength(dstRadio);
-        if (conn.getSource().getChannel() >= 0 &&
-            dstRadio.getChannel() >= 0 &&
-            conn.getSource().getChannel() != dstRadio.getChannel()) {
-          continue;
-        }
-        if (dstRadio.getCurrentSignalStrength() < signalStrength) {
-          dstRadio.setCurrentSignalStrength(signalStrength);
-        }
+    for (Radio dstRadio : ((MRMRadioConnection) conn).getDestinations()) {
+      double signalStrength = ((MRMRadioConnection) conn).getDestinationSignalStrength(dstRadio);
+      if (conn.getSource().getChannel() >= 0 &&
+          dstRadio.getChannel() >= 0 &&
+          conn.getSource().getChannel() != dstRadio.getChannel()) {
+        continue;
       }
+      signalStrengths.raise(dstRadio, signalStrength);
     }
 
     /* Interfering/colliding radio connections */
-    for (RadioConnection conn : conns) {
-      for (Radio intfRadio : ((MRMRadioConnection) conn).getInterfered()) {
-        if (conn.getSource().getChannel() >= 0 &&
-            intfRadio.getChannel() >= 0 &&
-            conn.getSource().getChannel() != intfRadio.getChannel()) {
-          continue;
-        }
-        double signalStrength = ((MRMRadioConnection) conn).getInterferenceSignalStrength(intfRadio);
-        if (intfRadio.getCurrentSignalStrength() < signalStrength) {
-                intfRadio.setCurrentSignalStrength(signalStrength);
-        }
-
-        if (!intfRadio.isInterfered()) {
-          /*logger.warn("Radio was not interfered: " + intfRadio);*/
-                intfRadio.interfereAnyReception();
-        }
+    for (Radio intfRadio : ((MRMRadioConnection) conn).getInterfered()) {
+      if (conn.getSource().getChannel() >= 0 &&
+          intfRadio.getChannel() >= 0 &&
+          conn.getSource().getChannel() != intfRadio.getChannel()) {
+        continue;
       }
+      double signalStrength = ((MRMRadioConnection) conn).getInterferenceSignalStrength(intfRadio);
+      signalStrengths.raise(intfRadio, signalStrength);
+      signalStrengths.interfere(intfRadio);
+    }
+  }
+
+  protected void updateSignalStrengths(Radio radio, RadioConnection conn) {
+    /* Noise sources affect all surrounding radios: update all */
+    if (WITH_NOISE && noiseSources > 0) {
+      updateSignalStrengths();
+      return;
     }
+    super.updateSignalStrengths(radio, conn);
+  }
+
+  public void updateSignalStrengths() {
+    super.updateSignalStrengths();
 
     /* Check for noise sources */
     if (!WITH_NOISE) return;
+    double background = getBackgroundSignalStrength(null);
+    RadioConnection[] conns = getActiveConnections();
     for (Radio noiseRadio: getRegisteredRadios()) {
       if (!(noiseRadio instanceof NoiseSourceRadio)) {
         continue;
@@ -435,6 +444,40 @@ public class MRM extends AbstractRadioMedium {
     return currentChannelModel;
   }
 
+  /**
+   * Calculates ray tracing results between all registered radios in parallel,
+   * so that later transmissions use cached results. Useful for static
+   * topologies, also from test scripts without GUI:
+   * <code>sim.getRadioMedium().precalculatePaths(null);</code>
+   *
+   * @param progress Progress listener, may be null
+   * @return True if all links were calculated, false if aborted
+   */
+  public boolean precalculatePaths(ChannelModel.PrecalculationProgress progress) {
+    Radio[] radios = getRegisteredRadios();
+    ArrayList<TxPair> links = new ArrayList<TxPair>();
+    for (final Radio sender: radios) {
+      for (final Radio recv: radios) {
+        if (sender == recv) {
+          continue;
+        }
+        links.add(new RadioPair() {
+          public Radio getFromRadio() {
+            return sender;
+          }
+          public Radio getToRadio() {
+            return recv;
+          }
+        });
+      }
+    }
+
+    long start = System.currentTimeMillis();
+    boolean completed = currentChannelModel.precalculatePaths(links.toArray(new TxPair[0]), progress);
+    logger.info("Precalculated " + links.size() + " links in " + (System.currentTimeMillis() - start) + " ms");
+    return completed;
+  }
+
   class MRMRadioConnection extends RadioConnection {
     private Hashtable<Radio, Double> signalStrengths = new Hashtable<Radio, Double>();
 
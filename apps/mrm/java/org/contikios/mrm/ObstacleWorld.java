@@ -53,7 +53,7 @@ class ObstacleWorld {
   // All registered obstacles, with spatial information
   private int spatialResolution = 10;
   private Vector<Rectangle2D>[][] allObstaclesSpatial = new Vector[spatialResolution][spatialResolution];
-  private boolean obstaclesOrganized = false;
+  private volatile boolean obstaclesOrganized = false;
   
   // Outer bounds of all obstacles
   private Rectangle2D outerBounds = null;
@@ -181,7 +181,7 @@ class ObstacleWorld {
   public Vector<Rectangle2D> getAllObstaclesInAngleInterval(Point2D center, AngleInterval angleInterval) {
     Vector<Rectangle2D> obstaclesToReturn = new Vector<Rectangle2D>();
     if (!obstaclesOrganized) {
-      reorganizeSpatialObstacles();
+      organizeSpatialObstacles();
     }
     
     double boxWidth = outerBounds.getWidth() / (double) spatialResolution;
@@ -320,7 +320,7 @@ class ObstacleWorld {
   /**
    * Removes all registered obstacles.
    */
-  public void removeAll() {
+  public synchronized void removeAll() {
     allObstacles.removeAllElements();
     for (int x=0; x < spatialResolution; x++)
       for (int y=0; y < spatialResolution; y++) 
@@ -488,7 +488,7 @@ class ObstacleWorld {
    * 
    * @param obstacle New obstacle
    */
-  public void addObstacle(Rectangle2D obstacle, boolean merge) {
+  public synchronized void addObstacle(Rectangle2D obstacle, boolean merge) {
     // TODO Should we keep the rounding?
     obstacle.setRect(
         Math.round(obstacle.getMinX()*1000.0) / 1000.0,
@@ -517,7 +517,7 @@ class ObstacleWorld {
    * 
    * @param obstacle Obstacle to remove
    */
-  public void removeObstacle(Rectangle2D obstacle) {
+  public synchronized void removeObstacle(Rectangle2D obstacle) {
     allObstacles.remove(obstacle);
     
     recreateOuterBounds();
@@ -531,7 +531,7 @@ class ObstacleWorld {
    * This method should never have to be called directly
    * by a user.
    */
-  public void recreateOuterBounds() {
+  public synchronized void recreateOuterBounds() {
     outerBounds = new Rectangle2D.Double(0,0,0,0);
     for (int i=0; i < allObstacles.size(); i++) {
       outerBounds = outerBounds.createUnion(allObstacles.get(i));
@@ -539,12 +539,23 @@ class ObstacleWorld {
     obstaclesOrganized = false;
   }
   
+  /**
+   * Reorganizes all registered obstacles unless already organized.
+   * Safe to call from concurrent ray tracing threads; the obstacle
+   * mutators hold the same lock.
+   */
+  public synchronized void organizeSpatialObstacles() {
+    if (!obstaclesOrganized) {
+      reorganizeSpatialObstacles();
+    }
+  }
+
   /**
    * Reorganizes all registered obstacles in order to speed up
    * searches for obstacles in spatial areas.
    * This method is run automatically 
    */
-  public void reorganizeSpatialObstacles() {
+  public synchronized void reorganizeSpatialObstacles() {
     // Remove all spatial obstacles
     for (int x=0; x < spatialResolution; x++)
       for (int y=0; y < spatialResolution; y++) 
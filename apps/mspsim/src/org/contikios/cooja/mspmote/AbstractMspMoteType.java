@@ -38,6 +38,8 @@ import java.awt.Container;
 import java.awt.Image;
 import java.io.File;
 import java.net.URL;
+import java.util.Collections;
+import java.util.Map;
 
 import javax.swing.*;
 
@@ -120,6 +122,26 @@ public abstract class AbstractMspMoteType extends MspMoteType {
 
         final MessageList compilationOutput = MessageContainer.createMessageList(visAvailable);
 
+        /* Reuse firmware built earlier from identical sources, if cached */
+        FirmwareCache firmwareCache = null;
+        String firmwareCacheKey = null;
+        Map<String, File> firmwareCacheOutputs = null;
+        if (getCompileCommands() != null && getContikiFirmwareFile() != null) {
+            firmwareCache = FirmwareCache.getDefault();
+        }
+        if (firmwareCache != null) {
+            firmwareCacheKey = FirmwareCache.createKey(
+                    getClass().getName(),
+                    getCompileCommands(),
+                    null,
+                    getContikiSourceFile().getParentFile());
+            firmwareCacheOutputs = Collections.singletonMap("firmware", getContikiFirmwareFile());
+            if (firmwareCache.restore(firmwareCacheKey, firmwareCacheOutputs) != null
+                    && getContikiFirmwareFile().exists()) {
+                return true;
+            }
+        }
+
         if (getCompileCommands() != null) {
             /* Handle multiple compilation commands one by one */
             String[] arr = getCompileCommands().split("\n");
@@ -163,6 +185,10 @@ public abstract class AbstractMspMoteType extends MspMoteType {
                     "Contiki firmware file does not exist: "
                             + getContikiFirmwareFile());
         }
+
+        if (firmwareCache != null) {
+            firmwareCache.store(firmwareCacheKey, null, firmwareCacheOutputs);
+        }
         return true;
     }
 
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2026, Cooja contributors
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the Institute nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE INSTITUTE AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE INSTITUTE OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ *
+ */
+
+package org.contikios.cooja.mspmote;
+
+import java.util.Arrays;
+
+/**
+ * Line number to executable address table of one firmware source file.
+ *
+ * Lines and addresses are kept in sorted primitive arrays, so a table can be
+ * shared by all motes of a type without boxing every entry.
+ */
+public class DebugLineTable {
+  private int[] lines = new int[16];
+  private int[] addresses = new int[16];
+  private int size = 0;
+  private boolean sorted = true;
+
+  /**
+   * Adds an entry. If a line is added more than once, the last address wins.
+   *
+   * @param line Line number
+   * @param address Executable address
+   */
+  void add(int line, int address) {
+    if (size == lines.length) {
+      lines = Arrays.copyOf(lines, 2 * size);
+      addresses = Arrays.copyOf(addresses, 2 * size);
+    }
+    if (size > 0 && line <= lines[size - 1]) {
+      sorted = false;
+    }
+    lines[size] = line;
+    addresses[size] = address;
+    size++;
+  }
+
+  /**
+   * Sorts the table and trims the arrays. Must be called before lookups.
+   */
+  void trim() {
+    if (sorted) {
+      lines = Arrays.copyOf(lines, size);
+      addresses = Arrays.copyOf(addresses, size);
+      return;
+    }
+
+    /* Sort by line, then by insertion order */
+    long[] keys = new long[size];
+    for (int i = 0; i < size; i++) {
+      keys[i] = ((long) lines[i] << 32) | i;
+    }
+    Arrays.sort(keys);
+
+    int count = 0;
+    for (int i = 0; i < size; i++) {
+      if (i + 1 < size && (keys[i + 1] >>> 32) == (keys[i] >>> 32)) {
+        continue; /* Overwritten by a later entry */
+      }
+      count++;
+    }
+    int[] newLines = new int[count];
+    int[] newAddresses = new int[count];
+    count = 0;
+    for (int i = 0; i < size; i++) {
+      if (i + 1 < size && (keys[i + 1] >>> 32) == (keys[i] >>> 32)) {
+        continue;
+      }
+      int index = (int) keys[i];
+      newLines[count] = lines[index];
+      newAddresses[count] = addresses[index];
+      count++;
+    }
+
+    lines = newLines;
+    addresses = newAddresses;
+    size = count;
+    sorted = true;
+  }
+
+  /**
+   * @param line Line number
+   * @return Executable address of line, or -1 if line has no code
+   */
+  public int getAddress(int line) {
+    int index = Arrays.binarySearch(lines, 0, size, line);
+    return index < 0 ? -1 : addresses[index];
+  }
+
+  /**
+   * @return Number of lines with code
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @return Approximate heap footprint (bytes)
+   */
+  public int getFootprint() {
+    return 4 * (lines.length + addresses.length) + 64;
+  }
+}
@@ -36,7 +36,7 @@ import java.io.IOException;
 import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Hashtable;
+import java.util.HashMap;
 
 import org.apache.log4j.Logger;
 import org.jdom.Element;
@@ -47,9 +47,11 @@ import org.contikios.cooja.MoteInterface;
 import org.contikios.cooja.MoteInterfaceHandler;
 import org.contikios.cooja.MoteType;
 import org.contikios.cooja.Simulation;
+import org.contikios.cooja.TimeEvent;
 import org.contikios.cooja.Watchpoint;
 import org.contikios.cooja.WatchpointMote;
 import org.contikios.cooja.interfaces.IPAddress;
+import org.contikios.cooja.interfaces.Radio;
 import org.contikios.cooja.mote.memory.MemoryInterface;
 import org.contikios.cooja.motes.AbstractEmulatedMote;
 import org.contikios.cooja.mspmote.interfaces.Msp802154Radio;
@@ -88,6 +90,9 @@ public abstract class MspMote extends AbstractEmulatedMote implements Mote, Watc
 
   private final static int EXECUTE_DURATION_US = 1; /* We always execute in 1 us steps */
 
+  /* Max microseconds an idle mote may run ahead per execution, see MSPSIM_EXECUTE_QUANTUM */
+  private final int executeQuantum;
+
   {
     Visualizer.registerVisualizerSkin(CodeVisualizerSkin.class);
   }
@@ -107,6 +112,7 @@ public abstract class MspMote extends AbstractEmulatedMote implements Mote, Watc
   public MspMote(MspMoteType moteType, Simulation simulation) {
     this.simulation = simulation;
     myMoteType = moteType;
+    executeQuantum = getExecuteQuantumSetting();
 
     /* Schedule us immediately */
     requestImmediateWakeup();
@@ -297,7 +303,45 @@ public abstract class MspMote extends AbstractEmulatedMote implements Mote, Watc
   private long skipped = 0;
 
   public void execute(long time) {
-    execute(time, EXECUTE_DURATION_US);
+    execute(time, getExecuteDuration(time));
+  }
+
+  private static int getExecuteQuantumSetting() {
+    String quantum = Cooja.getExternalToolsSetting("MSPSIM_EXECUTE_QUANTUM", "" + EXECUTE_DURATION_US);
+    try {
+      return Math.max(EXECUTE_DURATION_US, Integer.parseInt(quantum.trim()));
+    } catch (NumberFormatException e) {
+      logger.warn("Bad MSPSIM_EXECUTE_QUANTUM: " + quantum);
+      return EXECUTE_DURATION_US;
+    }
+  }
+
+  /**
+   * Returns the number of microseconds to execute at time t.
+   *
+   * All input from outside the mote, such as radio bytes, serial data and
+   * other motes, is delivered by simulation events. While the radio is off the
+   * radio medium cannot reach the mote, so the mote may run up to the next
+   * queued event without missing any input.
+   *
+   * @param t Simulation time
+   * @return Execution duration (us)
+   */
+  private int getExecuteDuration(long t) {
+    if (executeQuantum <= EXECUTE_DURATION_US) {
+      return EXECUTE_DURATION_US;
+    }
+    Radio radio = myMoteInterfaceHandler.getRadio();
+    if (radio != null && (radio.isRadioOn() || radio.isReceiving() || radio.isTransmitting())) {
+      return EXECUTE_DURATION_US;
+    }
+
+    long duration = executeQuantum;
+    TimeEvent next = simulation.getEventQueue().peekFirst();
+    if (next != null) {
+      duration = Math.min(duration, next.getTime() - t);
+    }
+    return (int) Math.max(EXECUTE_DURATION_US, duration);
   }
 
   public void execute(long t, int duration) {
@@ -637,7 +681,7 @@ public abstract class MspMote extends AbstractEmulatedMote implements Mote, Watc
   /* WatchpointMote */
   private ArrayList<WatchpointListener> watchpointListeners = new ArrayList<WatchpointListener>();
   private ArrayList<MspBreakpoint> watchpoints = new ArrayList<MspBreakpoint>();
-  private Hashtable<File, Hashtable<Integer, Integer>> debuggingInfo = null;
+  private HashMap<File, DebugLineTable> debuggingInfo = null;
 
   public void addWatchpointListener(WatchpointListener listener) {
     watchpointListeners.add(listener);
@@ -703,7 +747,7 @@ public abstract class MspMote extends AbstractEmulatedMote implements Mote, Watc
     }
 
     /* Match file */
-    Hashtable<Integer, Integer> lineTable = debuggingInfo.get(file);
+    DebugLineTable lineTable = debuggingInfo.get(file);
     if (lineTable == null) {
       for (File f: debuggingInfo.keySet()) {
         if (f != null && f.getName().equals(file.getName())) {
@@ -717,17 +761,7 @@ public abstract class MspMote extends AbstractEmulatedMote implements Mote, Watc
     }
 
     /* Match line number */
-    Integer address = lineTable.get(lineNr);
-    if (address != null) {
-      for (Integer l: lineTable.keySet()) {
-        if (l != null && l.intValue() == lineNr) {
-          /* Found line address */
-          return lineTable.get(l);
-        }
-      }
-    }
-
-    return -1;
+    return lineTable.getAddress(lineNr);
   }
 
   private long lastBreakpointCycles = -1;
@@ -33,7 +33,7 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Hashtable;
+import java.util.HashMap;
 
 import javax.swing.Icon;
 import javax.swing.JComponent;
@@ -128,9 +128,14 @@ public abstract class MspMoteType implements MoteType {
   public final Mote generateMote(Simulation simulation) {
     MspMote mote = createMote(simulation);
     mote.initMote();
+    if (mote.getCPU() != null) {
+      moteMemorySize = mote.getCPU().memory.length;
+    }
     return mote;
   }
 
+  private int moteMemorySize = -1; /* Emulated address space of last created mote */
+
   protected abstract MspMote createMote(Simulation simulation);
 
   @Override
@@ -165,6 +170,24 @@ public abstract class MspMoteType implements MoteType {
     sb.append("<tr><td valign=top>Compile commands</td><td>")
     .append(compileCommands.replace("<", "&lt;").replace(">", "&gt;").replace("\n", "<br>")).append("</td></tr>");
 
+    /* Memory footprint */
+    sb.append("<tr><td valign=top>Memory footprint</td><td>");
+    if (moteMemorySize >= 0) {
+      /* MSPSim stores each byte of the address space in an int */
+      sb.append(4 * moteMemorySize / 1024).append(" KiB per mote (")
+      .append(moteMemorySize / 1024).append(" KiB address space)<br>");
+    }
+    if (debuggingInfo != null) {
+      int lines = 0, footprint = 0;
+      for (DebugLineTable lineTable: debuggingInfo.values()) {
+        lines += lineTable.size();
+        footprint += lineTable.getFootprint();
+      }
+      sb.append(footprint / 1024).append(" KiB shared debug info (")
+      .append(lines).append(" lines in ").append(debuggingInfo.size()).append(" files)<br>");
+    }
+    sb.append("</td></tr>");
+
     JLabel label = new JLabel(sb.append("</table></html>").toString());
     label.setVerticalTextPosition(JLabel.TOP);
     /* Icon (if available) */
@@ -343,8 +366,8 @@ public abstract class MspMoteType implements MoteType {
     return elf;
   }
 
-  private Hashtable<File, Hashtable<Integer, Integer>> debuggingInfo = null; /* cached */
-  public Hashtable<File, Hashtable<Integer, Integer>> getFirmwareDebugInfo()
+  private HashMap<File, DebugLineTable> debuggingInfo = null; /* cached, shared by all motes */
+  public HashMap<File, DebugLineTable> getFirmwareDebugInfo()
   throws IOException {
     if (debuggingInfo == null) {
       debuggingInfo = getFirmwareDebugInfo(getELF());
@@ -352,9 +375,8 @@ public abstract class MspMoteType implements MoteType {
     return debuggingInfo;
   }
 
-  public static Hashtable<File, Hashtable<Integer, Integer>> getFirmwareDebugInfo(ELF elf) {
-    Hashtable<File, Hashtable<Integer, Integer>> fileToLineHash =
-      new Hashtable<File, Hashtable<Integer, Integer>>();
+  public static HashMap<File, DebugLineTable> getFirmwareDebugInfo(ELF elf) {
+    HashMap<File, DebugLineTable> fileToLineHash = new HashMap<File, DebugLineTable>();
 
     if (elf.getDebug() == null) {
       // No debug information is available
@@ -392,15 +414,18 @@ public abstract class MspMoteType implements MoteType {
       } catch (java.security.AccessControlException e) {
       }
 
-      Hashtable<Integer, Integer> lineToAddrHash = fileToLineHash.get(file);
-      if (lineToAddrHash == null) {
-        lineToAddrHash = new Hashtable<Integer, Integer>();
-        fileToLineHash.put(file, lineToAddrHash);
+      DebugLineTable lineTable = fileToLineHash.get(file);
+      if (lineTable == null) {
+        lineTable = new DebugLineTable();
+        fileToLineHash.put(file, lineTable);
       }
 
-      lineToAddrHash.put(info.getLine(), address);
+      lineTable.add(info.getLine(), address);
     }
 
+    for (DebugLineTable lineTable: fileToLineHash.values()) {
+      lineTable.trim();
+    }
     return fileToLineHash;
   }
 
@@ -30,18 +30,75 @@
 
 package org.contikios.cooja.mspmote.interfaces;
 
+import java.io.File;
 import java.io.IOException;
 import org.contikios.coffee.CoffeeConfiguration;
 import org.contikios.coffee.CoffeeImage;
-import se.sics.mspsim.chip.MemoryStorage;
 
-public class CoojaExternalFlash extends MemoryStorage implements CoffeeImage {
+/**
+ * External flash with optional Coffee file system, stored in memory,
+ * see {@link SparseFlash}, or in a memory-mapped file, see {@link MappedFlash}.
+ */
+public class CoojaExternalFlash extends FlashStorage implements CoffeeImage {
+
+    public static final long DEFAULT_SIZE = 1024*1024;
 
     private final String target;
+    private final FlashStorage storage;
     private CoffeeConfiguration coffeeConfiguration;
 
     public CoojaExternalFlash(String target) {
+        this(target, DEFAULT_SIZE);
+    }
+
+    public CoojaExternalFlash(String target, long size) {
         this.target = target;
+        this.storage = new SparseFlash(size, (byte) 0);
+    }
+
+    /**
+     * Creates flash stored in given file. An existing file keeps its content.
+     *
+     * @param target Platform, selects Coffee configuration
+     * @param file Flash image file
+     * @param size Flash size (bytes)
+     * @throws IOException If file could not be mapped
+     */
+    public CoojaExternalFlash(String target, File file, long size) throws IOException {
+        this.target = target;
+        this.storage = new MappedFlash(file, size, (byte) 0);
+    }
+
+    public int read(long pos, byte[] buffer, int offset, int len) throws IOException {
+        return storage.read(pos, buffer, offset, len);
+    }
+
+    public void write(long pos, byte[] buffer, int offset, int len) throws IOException {
+        storage.write(pos, buffer, offset, len);
+    }
+
+    public void erase(long pos, int len) throws IOException {
+        storage.erase(pos, len);
+    }
+
+    public long getFootprint() {
+        return storage.getFootprint();
+    }
+
+    public void flush() throws IOException {
+        storage.flush();
+    }
+
+    public long getMaxSize() {
+        return storage.getMaxSize();
+    }
+
+    public void close() {
+        storage.close();
+    }
+
+    public String info() {
+        return storage.info();
     }
 
     /**
@@ -49,8 +106,7 @@ public class CoojaExternalFlash extends MemoryStorage implements CoffeeImage {
      * @see org.contikios.coffee.CoffeeImage#erase(int, int)
      */
     public void erase(int size, int offset) throws IOException {
-        byte[] buffer = new byte[size];
-        write(getConfiguration().startOffset + offset, buffer);
+        erase((long) getConfiguration().startOffset + offset, size);
     }
 
     /**
@@ -82,7 +138,7 @@ public class CoojaExternalFlash extends MemoryStorage implements CoffeeImage {
      * @see org.contikios.coffee.CoffeeImage#write(byte[], int, int)
      */
     public void write(byte[] bytes, int size, int offset) throws IOException {
-        read(getConfiguration().startOffset + offset, bytes, 0, size);
+        write(getConfiguration().startOffset + offset, bytes, 0, size);
     }
 
 }
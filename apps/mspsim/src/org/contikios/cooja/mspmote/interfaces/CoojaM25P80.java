@@ -30,67 +30,23 @@
 
 package org.contikios.cooja.mspmote.interfaces;
 
+import java.io.File;
 import java.io.IOException;
-import java.util.Arrays;
+import java.util.HashMap;
 
 import org.contikios.coffee.CoffeeConfiguration;
+import org.contikios.coffee.CoffeeFS;
 import org.contikios.coffee.CoffeeImage;
 import se.sics.mspsim.chip.M25P80;
-import se.sics.mspsim.chip.Storage;
 import se.sics.mspsim.core.MSP430Core;
 
 public class CoojaM25P80 extends M25P80 implements CoffeeImage {
 
   public static int SIZE = 1024*1024;
-  private byte[] data = new byte[SIZE];
+  /* Pages are allocated on first write */
+  private final SparseFlash sparseFlash = new SparseFlash(SIZE, (byte) 0);
+  private FlashStorage flash = sparseFlash;
   private long pos;
-  private Storage storage = new Storage() {
-
-    @Override
-    public int read(long pos, byte[] buffer) throws IOException {
-        System.arraycopy(data, (int) pos, buffer, 0, buffer.length);
-        return buffer.length;
-    }
-
-    @Override
-    public int read(long pos, byte[] buffer, int offset, int len)
-            throws IOException {
-        System.arraycopy(data, (int) pos, buffer, offset, len);
-        return len;
-    }
-
-    @Override
-    public void write(long pos, byte[] buffer) throws IOException {
-        System.arraycopy(buffer, 0, data, (int) pos, buffer.length);
-    }
-
-    @Override
-    public void write(long pos, byte[] buffer, int offset, int len)
-            throws IOException {
-        System.arraycopy(buffer, offset, data, (int) pos, len);
-    }
-
-    @Override
-    public long getMaxSize() {
-        return SIZE;
-    }
-
-    @Override
-    public void setMaxSize(long size) {
-        // Ignore
-    }
-
-    @Override
-    public void close() {
-        // Nothing to close
-    }
-
-    @Override
-    public String info() {
-        return CoojaM25P80.class.getName();
-    }
-
-  };
 
   private static CoffeeConfiguration COFFEE_CONF;
   static {
@@ -105,7 +61,58 @@ public class CoojaM25P80 extends M25P80 implements CoffeeImage {
   public CoojaM25P80(MSP430Core cpu) {
     super(cpu);
     pos = 0;
-    setStorage(storage);
+    setStorage(flash);
+  }
+
+  /**
+   * @return Flash storage
+   */
+  public FlashStorage getFlash() {
+    return flash;
+  }
+
+  /**
+   * Uses given read-only image as initial flash content.
+   * Pages written so far, such as the ID header, are kept.
+   *
+   * @param image Base image, may be shared by several flashes
+   */
+  public void setBaseImage(SparseFlash image) {
+    if (flash != sparseFlash) {
+      throw new IllegalStateException("Flash is already mapped to " + ((MappedFlash) flash).getFile());
+    }
+    sparseFlash.setBaseImage(image);
+  }
+
+  /**
+   * Moves flash content to a memory-mapped file, where it remains after the
+   * simulation. A new file is initialized with the current flash content,
+   * including any base image, while an existing file is used as is.
+   *
+   * @param file Flash image file
+   * @throws IOException If file could not be mapped
+   */
+  public void mapToFile(File file) throws IOException {
+    MappedFlash mapped = new MappedFlash(file, SIZE, (byte) 0);
+    try {
+      if (mapped.isCreated()) {
+        mapped.copyFrom(flash);
+      }
+    } catch (IOException e) {
+      mapped.close();
+      throw e;
+    }
+    FlashStorage old = flash;
+    flash = mapped;
+    setStorage(mapped);
+    old.close();
+  }
+
+  /**
+   * Writes flash content to its file, if mapped, and releases the file.
+   */
+  public void closeFlash() {
+    flash.close();
   }
 
   public void seek(long pos) throws IOException {
@@ -113,12 +120,11 @@ public class CoojaM25P80 extends M25P80 implements CoffeeImage {
   }
 
   public int readFully(byte[] b) throws IOException {
-    System.arraycopy(data, (int) pos, b, 0, b.length);
-    return b.length;
+    return flash.read(pos, b);
   }
 
   public void write(byte[] b) throws IOException {
-    System.arraycopy(b, 0, data, (int) pos, b.length);
+    flash.write(pos, b);
   }
 
   /**
@@ -126,7 +132,7 @@ public class CoojaM25P80 extends M25P80 implements CoffeeImage {
    * @see org.contikios.coffee.CoffeeImage#erase(int, int)
    */
   public void erase(int size, int offset) throws IOException {
-    Arrays.fill(data, COFFEE_CONF.startOffset + offset, size, (byte)0);
+    flash.erase(COFFEE_CONF.startOffset + offset, size);
   }
 
   /**
@@ -142,7 +148,7 @@ public class CoojaM25P80 extends M25P80 implements CoffeeImage {
    * @see org.contikios.coffee.CoffeeImage#read(byte[], int, int)
    */
   public void read(byte[] bytes, int size, int offset) throws IOException {
-    System.arraycopy(data, COFFEE_CONF.startOffset + offset, bytes, 0, size);
+    flash.read(COFFEE_CONF.startOffset + offset, bytes, 0, size);
   }
 
   /**
@@ -150,7 +156,51 @@ public class CoojaM25P80 extends M25P80 implements CoffeeImage {
    * @see org.contikios.coffee.CoffeeImage#write(byte[], int, int)
    */
   public void write(byte[] bytes, int size, int offset) throws IOException {
-    System.arraycopy(bytes, 0, data, COFFEE_CONF.startOffset + offset, size);
+    flash.write(COFFEE_CONF.startOffset + offset, bytes, 0, size);
+  }
+
+  /* Coffee base images, shared by all motes */
+  private static final HashMap<String, SparseFlash> coffeeImages = new HashMap<String, SparseFlash>();
+
+  /**
+   * Returns a shared, read-only flash image with a Coffee file system
+   * containing the given files.
+   *
+   * @param files Files to store in file system
+   * @return Base image
+   * @throws IOException If a file could not be stored
+   * @see #setBaseImage(SparseFlash)
+   */
+  public static synchronized SparseFlash createCoffeeBaseImage(File[] files) throws IOException {
+    StringBuilder key = new StringBuilder();
+    for (File file: files) {
+      key.append(file.getCanonicalPath()).append(':').append(file.lastModified()).append(';');
+    }
+    SparseFlash image = coffeeImages.get(key.toString());
+    if (image != null) {
+      return image;
+    }
+
+    final SparseFlash newImage = new SparseFlash(SIZE, (byte) 0);
+    CoffeeFS fs = new CoffeeFS(new CoffeeImage() {
+      public CoffeeConfiguration getConfiguration() {
+        return COFFEE_CONF;
+      }
+      public void read(byte[] bytes, int size, int offset) throws IOException {
+        newImage.read(COFFEE_CONF.startOffset + offset, bytes, 0, size);
+      }
+      public void write(byte[] bytes, int size, int offset) throws IOException {
+        newImage.write(COFFEE_CONF.startOffset + offset, bytes, 0, size);
+      }
+      public void erase(int size, int offset) throws IOException {
+        newImage.erase(COFFEE_CONF.startOffset + offset, size);
+      }
+    });
+    for (File file: files) {
+      fs.insertFile(file);
+    }
+    coffeeImages.put(key.toString(), newImage);
+    return newImage;
   }
 
 }
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2026, Cooja contributors
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the Institute nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE INSTITUTE AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE INSTITUTE OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ *
+ */
+
+package org.contikios.cooja.mspmote.interfaces;
+
+import java.io.IOException;
+
+import se.sics.mspsim.chip.Storage;
+
+/**
+ * External flash storage, see {@link SparseFlash} and {@link MappedFlash}.
+ */
+public abstract class FlashStorage implements Storage {
+
+  /**
+   * Erases given range.
+   *
+   * @param pos Start position
+   * @param len Number of bytes
+   * @throws IOException If range is outside flash
+   */
+  public abstract void erase(long pos, int len) throws IOException;
+
+  /**
+   * @return Heap memory allocated by this flash (bytes)
+   */
+  public abstract long getFootprint();
+
+  /**
+   * Writes flash content to backing store, if any.
+   *
+   * @throws IOException On write error
+   */
+  public void flush() throws IOException {
+  }
+
+  @Override
+  public int read(long pos, byte[] buffer) throws IOException {
+    return read(pos, buffer, 0, buffer.length);
+  }
+
+  @Override
+  public void write(long pos, byte[] buffer) throws IOException {
+    write(pos, buffer, 0, buffer.length);
+  }
+
+  @Override
+  public void setMaxSize(long size) {
+    // Ignore
+  }
+
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2026, Cooja contributors
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the Institute nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE INSTITUTE AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE INSTITUTE OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ *
+ */
+
+package org.contikios.cooja.mspmote.interfaces;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Flash storage in a memory-mapped file.
+ *
+ * Flash content lives in the operating system's page cache rather than on the
+ * Java heap, and remains in the file after the simulation ends. The file is a
+ * raw image of the whole flash; a Coffee file system in it can be inspected
+ * with the Coffee manager, also while the simulation is running.
+ */
+public class MappedFlash extends FlashStorage {
+  private static final int ERASE_CHUNK = 4096;
+
+  private final File file;
+  private final long size;
+  private final byte[] erased;
+  private final boolean created;
+  private RandomAccessFile imageFile;
+  private MappedByteBuffer buffer;
+
+  /**
+   * Maps given file. An existing file keeps its content, a new or shorter
+   * file is extended with erased bytes.
+   *
+   * @param file Flash image file
+   * @param size Flash size (bytes)
+   * @param erasedValue Value of erased bytes
+   * @throws IOException If file could not be mapped
+   */
+  public MappedFlash(File file, long size, byte erasedValue) throws IOException {
+    if (size > Integer.MAX_VALUE) {
+      throw new IOException("Too large flash for memory mapping: " + size);
+    }
+    this.file = file;
+    this.size = size;
+    this.erased = new byte[ERASE_CHUNK];
+    Arrays.fill(erased, erasedValue);
+
+    imageFile = new RandomAccessFile(file, "rw");
+    long oldLength = imageFile.length();
+    created = oldLength == 0;
+    buffer = imageFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+    if (oldLength < size && erasedValue != 0) {
+      fill((int) oldLength, (int) (size - oldLength));
+    }
+  }
+
+  public File getFile() {
+    return file;
+  }
+
+  /**
+   * @return True if the file was created, or was empty, when mapped
+   */
+  public boolean isCreated() {
+    return created;
+  }
+
+  /**
+   * Copies all content of given flash to this flash.
+   *
+   * @param source Source flash
+   * @throws IOException On read or write error
+   */
+  public synchronized void copyFrom(FlashStorage source) throws IOException {
+    byte[] data = new byte[ERASE_CHUNK];
+    for (long pos = 0; pos < size; pos += data.length) {
+      int len = (int) Math.min(data.length, size - pos);
+      source.read(pos, data, 0, len);
+      write(pos, data, 0, len);
+    }
+  }
+
+  /**
+   * @return Zero, flash content is not stored on the heap
+   */
+  @Override
+  public long getFootprint() {
+    return 0;
+  }
+
+  @Override
+  public synchronized int read(long pos, byte[] buffer, int offset, int len) throws IOException {
+    seek(pos, len);
+    this.buffer.get(buffer, offset, len);
+    return len;
+  }
+
+  @Override
+  public synchronized void write(long pos, byte[] buffer, int offset, int len) throws IOException {
+    seek(pos, len);
+    this.buffer.put(buffer, offset, len);
+  }
+
+  @Override
+  public synchronized void erase(long pos, int len) throws IOException {
+    seek(pos, len);
+    fill((int) pos, len);
+  }
+
+  private void fill(int pos, int len) {
+    buffer.position(pos);
+    while (len > 0) {
+      int count = Math.min(len, erased.length);
+      buffer.put(erased, 0, count);
+      len -= count;
+    }
+  }
+
+  private void seek(long pos, int len) throws IOException {
+    if (buffer == null) {
+      throw new IOException("Flash file is closed: " + file);
+    }
+    if (pos < 0 || len < 0 || pos + len > size) {
+      throw new IOException("Flash access out of range: " + pos + " + " + len + " > " + size);
+    }
+    buffer.position((int) pos);
+  }
+
+  @Override
+  public synchronized void flush() throws IOException {
+    if (buffer != null) {
+      buffer.force();
+    }
+  }
+
+  @Override
+  public long getMaxSize() {
+    return size;
+  }
+
+  /**
+   * Writes flash content to file and closes file.
+   * The mapping itself is released when garbage collected.
+   */
+  @Override
+  public synchronized void close() {
+    if (buffer == null) {
+      return;
+    }
+    buffer.force();
+    buffer = null;
+    try {
+      imageFile.close();
+    } catch (IOException e) {
+      /* Content is already written */
+    }
+    imageFile = null;
+  }
+
+  @Override
+  public String info() {
+    return MappedFlash.class.getName() + ": " + file;
+  }
+
+}
@@ -39,7 +39,6 @@ import org.contikios.cooja.Mote;
 import org.contikios.cooja.Simulation;
 import org.contikios.cooja.radiomediums.AbstractRadioMedium;
 
-import org.contikios.cooja.mspmote.MspMoteTimeEvent;
 import org.contikios.cooja.mspmote.interfaces.Msp802154Radio;
 
 
@@ -358,13 +357,6 @@ public class Msp802154BitErrorRadio extends Msp802154Radio {
       }
     }
 
-    mote.getSimulation().scheduleEvent(new MspMoteTimeEvent(mote, 0) {
-      public void execute(long t) {
-        super.execute(t);
-        radio.receivedByte(inputByte);
-        mote.requestImmediateWakeup();
-      }
-    }, mote.getSimulation().getSimulationTime());
-
+    deliverByte(inputByte, mote.getSimulation().getSimulationTime());
   }
 }
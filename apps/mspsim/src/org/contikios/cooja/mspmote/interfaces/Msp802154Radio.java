@@ -30,6 +30,7 @@
 
 package org.contikios.cooja.mspmote.interfaces;
 
+import java.util.Arrays;
 import java.util.Collection;
 
 import org.apache.log4j.Logger;
@@ -83,12 +84,15 @@ public class Msp802154Radio extends Radio implements CustomDataRadio {
   private RadioPacket lastOutgoingPacket = null;
   private RadioPacket lastIncomingPacket = null;
 
+  private final ByteDeliveryEvent byteDelivery;
+
   public Msp802154Radio(Mote m) {
     this.mote = (MspMote)m;
     this.radio = this.mote.getCPU().getChip(Radio802154.class);
     if (radio == null) {
       throw new IllegalStateException("Mote is not equipped with an IEEE 802.15.4 radio");
     }
+    this.byteDelivery = new ByteDeliveryEvent();
 
     radio.addRFListener(new RFListener() {
       int len = 0;
@@ -224,14 +228,7 @@ public class Msp802154Radio extends Radio implements CustomDataRadio {
         b = (byte) 0xFF;
       }
 
-      final byte byteToDeliver = b;
-      getMote().getSimulation().scheduleEvent(new MspMoteTimeEvent(mote, 0) {
-        public void execute(long t) {
-          super.execute(t);
-          radio.receivedByte(byteToDeliver);
-          mote.requestImmediateWakeup();
-        }
-      }, deliveryTime);
+      deliverByte(b, deliveryTime);
       deliveryTime += DELAY_BETWEEN_BYTES;
     }
   }
@@ -258,14 +255,79 @@ public class Msp802154Radio extends Radio implements CustomDataRadio {
     } else {
       inputByte = lastIncomingByte;
     }
-    mote.getSimulation().scheduleEvent(new MspMoteTimeEvent(mote, 0) {
-      public void execute(long t) {
-        super.execute(t);
-        radio.receivedByte(inputByte);
-        mote.requestImmediateWakeup();
+    deliverByte(inputByte, mote.getSimulation().getSimulationTime());
+  }
+
+  /**
+   * Delivers byte to the radio chip at given simulation time.
+   *
+   * @param b Byte
+   * @param time Delivery time, may not be earlier than current time
+   */
+  protected void deliverByte(byte b, long time) {
+    byteDelivery.add(b, time);
+  }
+
+  /**
+   * Delivers received bytes to the radio chip at their delivery times.
+   * A single event is used for all bytes, rescheduled for the next
+   * pending byte.
+   */
+  private class ByteDeliveryEvent extends MspMoteTimeEvent {
+    private byte[] data = new byte[128];
+    private long[] times = new long[128];
+    private int first = 0;
+    private int last = 0;
+
+    public ByteDeliveryEvent() {
+      super(Msp802154Radio.this.mote, 0);
+    }
+
+    public void add(byte b, long time) {
+      if (first == last) {
+        first = last = 0;
+      } else if (last == data.length) {
+        /* Compact, or grow if more than half full */
+        int count = last - first;
+        if (count > data.length / 2) {
+          data = Arrays.copyOfRange(data, first, first + 2 * data.length);
+          times = Arrays.copyOfRange(times, first, first + 2 * times.length);
+        } else {
+          System.arraycopy(data, first, data, 0, count);
+          System.arraycopy(times, first, times, 0, count);
+        }
+        first = 0;
+        last = count;
       }
-    }, mote.getSimulation().getSimulationTime());
 
+      /* Keep bytes ordered by delivery time, bytes are normally appended */
+      int i = last;
+      while (i > first && times[i - 1] > time) {
+        data[i] = data[i - 1];
+        times[i] = times[i - 1];
+        i--;
+      }
+      data[i] = b;
+      times[i] = time;
+      last++;
+
+      if (!isScheduled() || getTime() > times[first]) {
+        remove();
+        mote.getSimulation().scheduleEvent(this, times[first]);
+      }
+    }
+
+    public void execute(long t) {
+      super.execute(t);
+      while (first < last && times[first] <= t) {
+        radio.receivedByte(data[first++]);
+      }
+      mote.requestImmediateWakeup();
+
+      if (first < last && !isScheduled()) {
+        mote.getSimulation().scheduleEvent(this, times[first]);
+      }
+    }
   }
 
   /* General radio support */
@@ -50,8 +50,17 @@ public class SkyFlash extends MoteInterface {
   private static Logger logger = Logger.getLogger(SkyFlash.class);
 
   protected final CoojaM25P80 m24p80;
+  private final Mote mote;
+
+  /* Shared initial flash content: raw image file, or files of a Coffee file system */
+  private File baseImageFile = null;
+  private File[] coffeeFiles = null;
+
+  /* Directory of memory-mapped flash file, or null if flash is in memory */
+  private File flashDirectory = null;
 
   public SkyFlash(Mote mote) {
+    this.mote = mote;
     MspMote mspMote = (MspMote) mote;
     m24p80 = (CoojaM25P80) mspMote.getCPU().getChip(CoojaM25P80.class);
     if (m24p80 == null) {
@@ -78,6 +87,24 @@ public class SkyFlash extends MoteInterface {
     }
   }
 
+  /**
+   * Moves flash content to a memory-mapped file in given directory, named by
+   * mote ID. The file remains after the simulation, and an existing file is
+   * used as is.
+   *
+   * @param directory Directory
+   * @throws IOException If file could not be mapped
+   */
+  public void mapToDirectory(File directory) throws IOException {
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new IOException("Could not create directory: " + directory);
+    }
+    File file = new File(directory, "flash-" + mote.getID() + ".bin");
+    m24p80.mapToFile(file);
+    flashDirectory = directory;
+    logger.info("Mote " + mote.getID() + " flash mapped to " + file);
+  }
+
   public JPanel getInterfaceVisualizer() {
     JPanel panel = new JPanel();
 
@@ -85,12 +112,19 @@ public class SkyFlash extends MoteInterface {
     panel.add(uploadButton);
     final JButton downloadButton = new JButton("Store to file");
     panel.add(downloadButton);
+    final JButton mapButton = new JButton("Map to directory");
+    panel.add(mapButton);
+    final JLabel footprintLabel = new JLabel();
+    footprintLabel.setText(getFootprintText());
+    panel.add(footprintLabel);
 
     if (Cooja.isVisualizedInApplet()) {
       uploadButton.setEnabled(false);
       uploadButton.setToolTipText("Not available in applet mode");
       downloadButton.setEnabled(false);
       downloadButton.setToolTipText("Not available in applet mode");
+      mapButton.setEnabled(false);
+      mapButton.setToolTipText("Not available in applet mode");
     }
 
     uploadButton.addActionListener(new ActionListener() {
@@ -106,6 +140,7 @@ public class SkyFlash extends MoteInterface {
             m24p80.seek(0);
             m24p80.write(fileData);
             logger.info("Done! (" + fileData.length + " bytes written to Flash)");
+            footprintLabel.setText(getFootprintText());
           } catch (IOException ex) {
             logger.fatal("Exception: " + ex);
           }
@@ -127,6 +162,23 @@ public class SkyFlash extends MoteInterface {
       }
     });
 
+    mapButton.addActionListener(new ActionListener() {
+      public void actionPerformed(ActionEvent e) {
+        JFileChooser fc = new JFileChooser();
+        fc.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+        fc.setDialogTitle("Select flash file directory");
+        if (fc.showOpenDialog(Cooja.getTopParentContainer()) != JFileChooser.APPROVE_OPTION) {
+          return;
+        }
+        try {
+          mapToDirectory(fc.getSelectedFile());
+          footprintLabel.setText(getFootprintText());
+        } catch (IOException ex) {
+          logger.fatal("Could not map flash to file: " + ex.getMessage(), ex);
+        }
+      }
+    });
+
     Observer observer;
     this.addObserver(observer = new Observer() {
       public void update(Observable obs, Object obj) {
@@ -149,11 +201,86 @@ public class SkyFlash extends MoteInterface {
     this.deleteObserver(observer);
   }
 
+  private String getFootprintText() {
+    if (m24p80.getFlash() instanceof MappedFlash) {
+      return "Mapped to " + ((MappedFlash) m24p80.getFlash()).getFile().getName();
+    }
+    return (m24p80.getFlash().getFootprint() / 1024) + " KiB allocated";
+  }
+
+  /**
+   * @return Flash memory allocated by this mote (bytes), excluding shared base
+   * image and memory-mapped files
+   */
+  public long getFootprint() {
+    return m24p80.getFlash().getFootprint();
+  }
+
   public Collection<Element> getConfigXML() {
-    return null;
+    ArrayList<Element> config = new ArrayList<Element>();
+    Element element;
+
+    if (baseImageFile != null) {
+      element = new Element("base_image");
+      element.setText(mote.getSimulation().getCooja().createPortablePath(baseImageFile).getPath());
+      config.add(element);
+    }
+    if (coffeeFiles != null) {
+      for (File file: coffeeFiles) {
+        element = new Element("coffee_file");
+        element.setText(mote.getSimulation().getCooja().createPortablePath(file).getPath());
+        config.add(element);
+      }
+    }
+    if (flashDirectory != null) {
+      element = new Element("flash_directory");
+      element.setText(mote.getSimulation().getCooja().createPortablePath(flashDirectory).getPath());
+      config.add(element);
+    }
+    return config.isEmpty() ? null : config;
   }
 
   public void setConfigXML(Collection<Element> configXML, boolean visAvailable) {
+    ArrayList<File> files = new ArrayList<File>();
+    for (Element element: configXML) {
+      File file = mote.getSimulation().getCooja().restorePortablePath(new File(element.getText()));
+      if (element.getName().equals("base_image")) {
+        baseImageFile = file;
+      } else if (element.getName().equals("coffee_file")) {
+        files.add(file);
+      } else if (element.getName().equals("flash_directory")) {
+        flashDirectory = file;
+      }
+    }
+    if (!files.isEmpty()) {
+      coffeeFiles = files.toArray(new File[0]);
+    }
+
+    /* Base images are loaded once, and shared by all motes */
+    try {
+      if (baseImageFile != null) {
+        m24p80.setBaseImage(SparseFlash.loadBaseImage(baseImageFile, CoojaM25P80.SIZE, (byte) 0));
+      } else if (coffeeFiles != null) {
+        m24p80.setBaseImage(CoojaM25P80.createCoffeeBaseImage(coffeeFiles));
+      }
+    } catch (IOException e) {
+      logger.fatal("Could not load flash base image: " + e.getMessage(), e);
+    }
+
+    /* Mapped after base image, which initializes new files */
+    if (flashDirectory != null) {
+      try {
+        mapToDirectory(flashDirectory);
+      } catch (IOException e) {
+        logger.fatal("Could not map flash to file: " + e.getMessage(), e);
+        flashDirectory = null;
+      }
+    }
+  }
+
+  public void removed() {
+    super.removed();
+    m24p80.closeFlash();
   }
 
   public static void writeDialogFileBytes(Component parent, byte[] data) {
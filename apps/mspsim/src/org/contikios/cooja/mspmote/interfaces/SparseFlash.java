@@ -0,0 +1,270 @@
+/*
+ * Copyright (c) 2026, Cooja contributors
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the Institute nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE INSTITUTE AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE INSTITUTE OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ *
+ */
+
+package org.contikios.cooja.mspmote.interfaces;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Flash storage that only allocates the pages that are written.
+ *
+ * Pages never written read as the erased value, or as the corresponding page
+ * of a read-only base image. A base image, for example a pre-provisioned
+ * Coffee file system, can be shared by any number of flashes; pages are copied
+ * from it on first write.
+ */
+public class SparseFlash extends FlashStorage {
+  public static final int PAGE_SIZE = 4096;
+
+  /* Marks a page explicitly erased, hiding the base image page */
+  private static final byte[] ERASED = new byte[0];
+
+  private final long size;
+  private final byte erasedValue;
+  private final byte[][] pages;
+  private SparseFlash base = null;
+  private boolean frozen = false;
+  private int allocatedPages = 0;
+
+  /**
+   * @param size Flash size (bytes)
+   * @param erasedValue Value of erased bytes
+   */
+  public SparseFlash(long size, byte erasedValue) {
+    this.size = size;
+    this.erasedValue = erasedValue;
+    this.pages = new byte[(int) ((size + PAGE_SIZE - 1) / PAGE_SIZE)][];
+  }
+
+  /**
+   * Sets read-only base image. Pages written so far are kept, and hide the
+   * corresponding base image pages.
+   *
+   * @param base Base image, or null
+   */
+  public void setBaseImage(SparseFlash base) {
+    if (base != null) {
+      if (base.size != size) {
+        throw new IllegalArgumentException("Base image size " + base.size + " != " + size);
+      }
+      base.frozen = true;
+    }
+    this.base = base;
+  }
+
+  public SparseFlash getBaseImage() {
+    return base;
+  }
+
+  /**
+   * @return Bytes allocated by this flash, excluding its base image
+   */
+  @Override
+  public long getFootprint() {
+    return (long) allocatedPages * PAGE_SIZE;
+  }
+
+  @Override
+  public int read(long pos, byte[] buffer, int offset, int len) throws IOException {
+    checkRange(pos, len);
+    int done = 0;
+    while (done < len) {
+      int page = (int) ((pos + done) / PAGE_SIZE);
+      int pageOffset = (int) ((pos + done) % PAGE_SIZE);
+      int count = Math.min(len - done, PAGE_SIZE - pageOffset);
+      byte[] data = getPage(page);
+      if (data == null) {
+        Arrays.fill(buffer, offset + done, offset + done + count, erasedValue);
+      } else {
+        System.arraycopy(data, pageOffset, buffer, offset + done, count);
+      }
+      done += count;
+    }
+    return len;
+  }
+
+  @Override
+  public void write(long pos, byte[] buffer, int offset, int len) throws IOException {
+    checkRange(pos, len);
+    if (frozen) {
+      throw new IOException("Flash base image is read-only");
+    }
+    int done = 0;
+    while (done < len) {
+      int page = (int) ((pos + done) / PAGE_SIZE);
+      int pageOffset = (int) ((pos + done) % PAGE_SIZE);
+      int count = Math.min(len - done, PAGE_SIZE - pageOffset);
+      System.arraycopy(buffer, offset + done, getWritablePage(page), pageOffset, count);
+      done += count;
+    }
+  }
+
+  /**
+   * Erases given range. Whole pages are released.
+   *
+   * @param pos Start position
+   * @param len Number of bytes
+   * @throws IOException If range is outside flash
+   */
+  @Override
+  public void erase(long pos, int len) throws IOException {
+    checkRange(pos, len);
+    if (frozen) {
+      throw new IOException("Flash base image is read-only");
+    }
+    int done = 0;
+    while (done < len) {
+      int page = (int) ((pos + done) / PAGE_SIZE);
+      int pageOffset = (int) ((pos + done) % PAGE_SIZE);
+      int count = Math.min(len - done, PAGE_SIZE - pageOffset);
+      if (count == PAGE_SIZE) {
+        if (pages[page] != null && pages[page] != ERASED) {
+          allocatedPages--;
+        }
+        pages[page] = base == null ? null : ERASED;
+      } else if (getPage(page) != null) {
+        Arrays.fill(getWritablePage(page), pageOffset, pageOffset + count, erasedValue);
+      }
+      done += count;
+    }
+  }
+
+  /**
+   * @return Page content, or null if page is erased
+   */
+  private byte[] getPage(int page) {
+    byte[] data = pages[page];
+    if (data == ERASED) {
+      return null;
+    }
+    if (data == null && base != null) {
+      return base.getPage(page);
+    }
+    return data;
+  }
+
+  private byte[] getWritablePage(int page) {
+    byte[] data = pages[page];
+    if (data != null && data != ERASED) {
+      return data;
+    }
+    byte[] baseData = data == null && base != null ? base.getPage(page) : null;
+    if (baseData != null) {
+      data = baseData.clone();
+    } else {
+      data = new byte[PAGE_SIZE];
+      if (erasedValue != 0) {
+        Arrays.fill(data, erasedValue);
+      }
+    }
+    pages[page] = data;
+    allocatedPages++;
+    return data;
+  }
+
+  private void checkRange(long pos, int len) throws IOException {
+    if (pos < 0 || len < 0 || pos + len > size) {
+      throw new IOException("Flash access out of range: " + pos + " + " + len + " > " + size);
+    }
+  }
+
+  @Override
+  public long getMaxSize() {
+    return size;
+  }
+
+  @Override
+  public void close() {
+    // Nothing to close
+  }
+
+  @Override
+  public String info() {
+    return SparseFlash.class.getName() + ": " + allocatedPages + " pages allocated";
+  }
+
+  /* Base images loaded from file, shared by all motes */
+  private static final HashMap<String, SparseFlash> baseImages = new HashMap<String, SparseFlash>();
+
+  /**
+   * Returns a shared, read-only base image with the content of the given
+   * file. The file is only read again if it has been modified.
+   *
+   * @param file Flash image file
+   * @param size Flash size (bytes)
+   * @param erasedValue Value of erased bytes
+   * @return Base image
+   * @throws IOException If file could not be read or is too large
+   */
+  public static synchronized SparseFlash loadBaseImage(File file, long size, byte erasedValue)
+  throws IOException {
+    String key = file.getCanonicalPath() + ":" + file.lastModified() + ":" + size + ":" + erasedValue;
+    SparseFlash image = baseImages.get(key);
+    if (image != null) {
+      return image;
+    }
+    if (file.length() > size) {
+      throw new IOException("Too large flash image: " + file.length() + " > " + size);
+    }
+
+    image = new SparseFlash(size, erasedValue);
+    byte[] page = new byte[PAGE_SIZE];
+    FileInputStream in = new FileInputStream(file);
+    try {
+      long pos = 0;
+      int numRead;
+      while ((numRead = in.read(page)) > 0) {
+        if (!isErased(page, numRead, erasedValue)) {
+          image.write(pos, page, 0, numRead);
+        }
+        pos += numRead;
+      }
+    } finally {
+      in.close();
+    }
+    image.frozen = true;
+    baseImages.put(key, image);
+    return image;
+  }
+
+  private static boolean isErased(byte[] data, int len, byte erasedValue) {
+    for (int i = 0; i < len; i++) {
+      if (data[i] != erasedValue) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+}
@@ -35,6 +35,7 @@ import java.util.Observable;
 import java.util.Observer;
 import java.util.Collection;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.io.File;
 import java.io.RandomAccessFile;
 
@@ -42,6 +43,7 @@ import org.jdom.Element;
 
 import org.contikios.cooja.ClassDescription;
 import org.contikios.cooja.Cooja;  //import org.contikios.cooja.GUI;
+import org.contikios.cooja.Mote;
 import org.contikios.cooja.PluginType;
 import org.contikios.cooja.RadioConnection;
 import org.contikios.cooja.RadioMedium;
@@ -71,15 +73,18 @@ public class RadioLoggerHeadless extends VisPlugin {
     private static final long serialVersionUID = -6927091711697081353L;
 
     private static final String pcapExt = ".pcap";
+    private static final String pcapngReceivingSuffix = "_rx.pcapng";
 
     private final Simulation simulation;
     private RadioMedium radioMedium;
     private Observer radioMediumObserver;
     private File pcapSendingFile;
-    // private File [] pcapReceivingFile;
+    private File pcapReceivingFile;
     private PcapExporter pcapSendingExporter;
-    // private PcapExporter [] pcapReceivingExporter;
-    private int motesCount;
+    private PcapExporter pcapReceivingExporter;
+    private boolean pcapReceiving = false;
+    // pcapng capture interface of each receiving mote
+    private final HashMap<Mote, Integer> receivingInterfaces = new HashMap<>();
 
 
     /** ***********************************************************************
@@ -94,17 +99,12 @@ public class RadioLoggerHeadless extends VisPlugin {
 
         simulation = sim;
         radioMedium = simulation.getRadioMedium();
-        motesCount = simulation.getMotesCount();
 
         try {
             pcapSendingFile = null;
             pcapSendingExporter = new PcapExporter();
-            // pcapReceivingFile = new File[motesCount];
-            // pcapReceivingExporter = new PcapExporter[motesCount];
-            // for (int i = 0; i < motesCount; i++) {
-            //     pcapReceivingFile[i] = null;
-            //     pcapReceivingExporter[i] = new PcapExporter();
-            // }
+            pcapReceivingFile = null;
+            pcapReceivingExporter = new PcapExporter();
         } catch (IOException e) {
             System.err.println("RadioLogger: open PCAP files error!");
             e.printStackTrace();
@@ -139,18 +139,22 @@ public class RadioLoggerHeadless extends VisPlugin {
                 }
 
                 /**
-                 * [iPAS]: From receiver's view  */
-                //for (Radio radioRx : conn.getAllDestinations()) {  // All destination radios including interfered ones
-                for (Radio radioRx : conn.getDestinations()) {  // All non-interfered radios
-                    //RadioPacket radioRxPacket = radioRx.getLastPacketReceived();  // It is always null !?
-                    
-                    // try {
-                    //     int i = radioRx.getMote().getID() - 1;
-                    //     pcapReceivingExporter[i].exportPacketData(packetData, txTime);
-                    // } catch (IOException e) {
-                    //     System.err.println("RadioLogger: cannot export PCAP for receivers!");
-                    //     e.printStackTrace();
-                    // }
+                 * [iPAS]: From receiver's view, one pcapng interface per mote  */
+                if (!pcapReceiving || pcapReceivingFile == null)
+                    return;
+                try {
+                    for (Radio radioRx : conn.getDestinations()) {  // All non-interfered radios
+                        Mote mote = radioRx.getMote();
+                        Integer id = receivingInterfaces.get(mote);
+                        if (id == null) {
+                            id = pcapReceivingExporter.addInterface("mote " + mote.getID());
+                            receivingInterfaces.put(mote, id);
+                        }
+                        pcapReceivingExporter.exportPacketData(packetData, txTime, id);
+                    }
+                } catch (IOException e) {
+                    System.err.println("RadioLogger: cannot export PCAP for receivers!");
+                    e.printStackTrace();
                 }
             }
         };
@@ -172,6 +176,19 @@ public class RadioLoggerHeadless extends VisPlugin {
     @Override
     public void closePlugin() {
         stopRadioObservation();
+        try {
+            pcapSendingExporter.closePcap();
+        } catch (IOException e) {
+            System.err.println("RadioLogger: close PCAP files error!");
+            e.printStackTrace();
+        } finally {
+            try {
+                pcapReceivingExporter.closePcap();
+            } catch (IOException e) {
+                System.err.println("RadioLogger: close PCAP files error!");
+                e.printStackTrace();
+            }
+        }
     }
 
     /** ***********************************************************************
@@ -181,11 +198,11 @@ public class RadioLoggerHeadless extends VisPlugin {
         try {
             pcapSendingFile = simulation.getCooja().restorePortablePath(new File(fpath + pcapExt));
             pcapSendingExporter.openPcap(pcapSendingFile);
-            // for (int i = 0; i < motesCount; i++) {
-            //     pcapReceivingFile[i] = simulation.getCooja().restorePortablePath(
-            //             new File(fpath + "_" + (i + 1) + pcapExt));
-            //     pcapReceivingExporter[i].openPcap(pcapReceivingFile[i]);
-            // }
+            if (pcapReceiving) {
+                pcapReceivingFile = simulation.getCooja().restorePortablePath(
+                        new File(fpath + pcapngReceivingSuffix));
+                pcapReceivingExporter.openPcapng(pcapReceivingFile);
+            }
         } catch (IOException e) {
             System.err.println("RadioLogger: cannot create PCAP file!");
             e.printStackTrace();
@@ -211,8 +228,15 @@ public class RadioLoggerHeadless extends VisPlugin {
      */
     public void restartStatistics() {
         reOpenPcap(pcapSendingExporter, pcapSendingFile);
-        // for (int i = 0; i < motesCount; i++)
-        //     reOpenPcap(pcapReceivingExporter[i], pcapReceivingFile[i]);
+        if (pcapReceivingFile != null) {
+            try {
+                receivingInterfaces.clear();
+                pcapReceivingExporter.openPcapng(pcapReceivingFile);
+            } catch (IOException e) {
+                System.err.println("RadioLogger: re-open PCAP file error!");
+                e.printStackTrace();
+            }
+        }
     }
 
     /** ***********************************************************************
@@ -220,16 +244,19 @@ public class RadioLoggerHeadless extends VisPlugin {
      */
     @Override
     public boolean setConfigXML(Collection<Element> configXML, boolean visAvailable) {
+        String fpath = null;
         for (Element element : configXML) {
             String name = element.getName();
             if (name.equals("pcap_file")) {  // Read file-path configuration
-                String fpath = element.getText();
+                fpath = element.getText();
                 if (fpath.lastIndexOf(pcapExt) >= 0)
                     fpath = fpath.substring(0, fpath.lastIndexOf(pcapExt));
-                createPcapFiles(fpath);  // Setup the exporters
-                break;
+            } else if (name.equals("pcap_receivers")) {  // Per-receiver capture
+                pcapReceiving = Boolean.parseBoolean(element.getText());
             }
         }
+        if (fpath != null)
+            createPcapFiles(fpath);  // Setup the exporters
 
         return true;
     }
@@ -249,6 +276,12 @@ public class RadioLoggerHeadless extends VisPlugin {
         element.setAttribute("EXPORT", "discard");
         configXML.add(element);
 
+        if (pcapReceiving) {
+            element = new Element("pcap_receivers");
+            element.setText(Boolean.toString(true));
+            configXML.add(element);
+        }
+
         return configXML;
     }
 
@@ -39,11 +39,14 @@ import java.awt.GridBagLayout;
 import java.awt.GridLayout;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.io.DataInputStream;
-import java.io.DataOutputStream;
 import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
 import java.text.NumberFormat;
 import java.text.ParseException;
 import java.util.ArrayList;
@@ -52,6 +55,8 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Observable;
 import java.util.Observer;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
 import java.util.logging.Level;
 
 import javax.swing.BorderFactory;
@@ -99,7 +104,8 @@ public class SerialSocketServer extends VisPlugin implements MotePlugin {
   private final int SERVER_DEFAULT_PORT;
 
   private final SerialPort serialPort;
-  private Observer serialDataObserver;
+  /* Set by the listening thread, cleared on the simulation thread */
+  private volatile SerialDataObserver serialDataObserver;
 
   private JLabel socketToMoteLabel;
   private JLabel moteToSocketLabel;
@@ -107,10 +113,16 @@ public class SerialSocketServer extends VisPlugin implements MotePlugin {
   private JFormattedTextField listenPortField;
   private JButton serverStartButton;
 
-  private int inBytes = 0, outBytes = 0;
+  /* Outgoing data is flushed after each simulation event, or when this many bytes are buffered */
+  private static final int OUT_BUFFER_SIZE = 8*1024;
+  private static final int IN_RING_SIZE = 64*1024;
+
+  private volatile long inBytes = 0, outBytes = 0;
+  private volatile long inReads = 0, outWrites = 0;
+  private long lastInBytes = 0, lastOutBytes = 0;
 
   private ServerSocket serverSocket;
-  private Socket clientSocket;
+  private volatile Socket clientSocket;
 
   private Mote mote;
   private Simulation simulation;
@@ -385,7 +397,9 @@ public class SerialSocketServer extends VisPlugin implements MotePlugin {
    */
   public void startServer(int port) {
     try {
-      serverSocket = new ServerSocket(port);
+      serverSocket = ServerSocketChannel.open().socket();
+      serverSocket.setReuseAddress(true);
+      serverSocket.bind(new InetSocketAddress(port));
       logger.info("Listening on port: " + port);
       notifyServerStarted(port);
     } catch (IOException ex) {
@@ -421,6 +435,8 @@ public class SerialSocketServer extends VisPlugin implements MotePlugin {
             serialPort.addSerialDataObserver(serialDataObserver);
 
             inBytes = outBytes = 0;
+            inReads = outWrites = 0;
+            lastInBytes = lastOutBytes = 0;
 
             logger.info("Client connected: " + clientSocket.getInetAddress());
             notifyClientConnected(clientSocket);
@@ -461,79 +477,190 @@ public class SerialSocketServer extends VisPlugin implements MotePlugin {
 
   /* Forward data: virtual port -> mote */
   private class IncomingDataHandler implements Runnable {
+    private final ByteRing ring = new ByteRing(IN_RING_SIZE);
+    private final AtomicBoolean drainPending = new AtomicBoolean(false);
+    private Thread readerThread;
 
-    DataInputStream in;
+    /* Runs on the simulation thread, at most one queued at a time */
+    private final Runnable drainTask = new Runnable() {
+      @Override
+      public void run() {
+        drainPending.set(false);
+        inBytes += ring.drainTo(serialPort);
+        LockSupport.unpark(readerThread);
+      }
+    };
 
     @Override
     public void run() {
-      int numRead = 0;
-      byte[] data = new byte[16*1024];
-      try {
-        in = new DataInputStream(clientSocket.getInputStream());
-      } catch (IOException ex) {
-        logger.error(ex);
-        return;
-      }
+      readerThread = Thread.currentThread();
+      SocketChannel channel = clientSocket.getChannel();
 
       logger.info("Forwarder: socket -> serial port");
+      int numRead = 0;
       while (numRead >= 0) {
-        final int finalNumRead = numRead;
-        final byte[] finalData = data;
-        /* We are not on the simulation thread */
-        simulation.invokeSimulationThread(new Runnable() {
-
-          @Override
-          public void run() {
-            for (int i = 0; i < finalNumRead; i++) {
-              serialPort.writeByte(finalData[i]);
-            }
-            inBytes += finalNumRead;
-          }
-        });
-
         try {
-          numRead = in.read(data);
+          numRead = ring.readFrom(channel);
         } catch (IOException e) {
           logger.info(e.getMessage());
           numRead = -1;
         }
+        if (numRead > 0) {
+          inReads++;
+          /* We are not on the simulation thread */
+          if (drainPending.compareAndSet(false, true)) {
+            simulation.invokeSimulationThread(drainTask);
+          }
+        } else if (numRead == 0) {
+          /* Ring full, wait for simulation thread to drain it */
+          LockSupport.parkNanos(1000000);
+        }
       }
       logger.info("End of Stream");
       cleanupClient();
     }
   }
 
+  /**
+   * Single-producer single-consumer byte ring.
+   * The socket reader thread fills it, the simulation thread drains it.
+   */
+  private static class ByteRing {
+    private final byte[] data;
+    private final ByteBuffer buffer;
+    private final int mask;
+    private volatile long head = 0; /* Next byte to drain */
+    private volatile long tail = 0; /* Next byte to fill */
+
+    public ByteRing(int size) {
+      data = new byte[size]; /* Must be a power of two */
+      buffer = ByteBuffer.wrap(data);
+      mask = size - 1;
+    }
+
+    /**
+     * Reads from channel directly into free ring space.
+     * @return Bytes read, 0 if ring is full, or -1 at end of stream
+     */
+    public int readFrom(ReadableByteChannel channel) throws IOException {
+      long t = tail;
+      int free = data.length - (int) (t - head);
+      if (free == 0) {
+        return 0;
+      }
+      int offset = (int) t & mask;
+      buffer.limit(offset + Math.min(free, data.length - offset)).position(offset);
+      int numRead = channel.read(buffer);
+      if (numRead > 0) {
+        tail = t + numRead;
+      }
+      return numRead;
+    }
+
+    /**
+     * Writes all available bytes to serial port.
+     * @return Bytes written
+     */
+    public int drainTo(SerialPort serialPort) {
+      long h = head;
+      int count = (int) (tail - h);
+      for (int i = 0; i < count; i++) {
+        serialPort.writeByte(data[(int) (h + i) & mask]);
+      }
+      head = h + count;
+      return count;
+    }
+  }
+
+  /* Forward data: mote -> virtual port */
   private class SerialDataObserver implements Observer {
-    
-    DataOutputStream out;
 
-    public SerialDataObserver() {
-      try {
-        out = new DataOutputStream(clientSocket.getOutputStream());
-      } catch (IOException ex) {
-        logger.error(ex);
-        out = null;
+    private volatile SocketChannel out;
+    private final ByteBuffer outBuffer = ByteBuffer.allocate(OUT_BUFFER_SIZE);
+    private boolean flushPending = false;
+
+    /* Runs on the simulation thread after the event that produced the data */
+    private final Runnable flushTask = new Runnable() {
+      @Override
+      public void run() {
+        flushPending = false;
+        flush();
+      }
+    };
+
+    /* Flush remaining data when simulation stops */
+    private final Observer simulationObserver = new Observer() {
+      @Override
+      public void update(Observable obs, Object obj) {
+        if (!simulation.isRunning()) {
+          flush();
+        }
       }
+    };
+
+    public SerialDataObserver() {
+      out = clientSocket.getChannel();
+      simulation.addObserver(simulationObserver);
     }
 
     @Override
     public void update(Observable obs, Object obj) {
-      try {
-        if (out == null) {
-          /*logger.debug("out is null");*/
-          return;
-        }
+      if (out == null) {
+        /*logger.debug("out is null");*/
+        return;
+      }
 
-        out.write(serialPort.getLastSerialData());
-        out.flush();
+      outBuffer.put(serialPort.getLastSerialData());
+      if (!outBuffer.hasRemaining()) {
+        flush();
+      } else if (!flushPending) {
+        flushPending = true;
+        simulation.invokeSimulationThread(flushTask);
+      }
+    }
 
-        outBytes++;
+    private void flush() {
+      SocketChannel channel = out;
+      if (channel == null || outBuffer.position() == 0) {
+        return;
+      }
+      outBuffer.flip();
+      try {
+        while (outBuffer.hasRemaining()) {
+          outBytes += channel.write(outBuffer);
+        }
+        outWrites++;
       } catch (IOException ex) {
         logger.error(ex);
+        out = null;
         cleanupClient();
       }
+      outBuffer.clear();
     }
 
+    public void close() {
+      out = null;
+      simulation.deleteObserver(simulationObserver);
+    }
+  }
+
+  /**
+   * @return Bytes forwarded from socket to mote since client connected
+   */
+  public long getInBytes() {
+    return inBytes;
+  }
+
+  /**
+   * @return Bytes forwarded from mote to socket since client connected
+   */
+  public long getOutBytes() {
+    return outBytes;
+  }
+
+  private String getStatistics() {
+    return "socket -> mote: " + inBytes + " bytes in " + inReads + " reads, " +
+        "mote -> socket: " + outBytes + " bytes in " + outWrites + " writes";
   }
 
   @Override
@@ -605,7 +732,31 @@ public class SerialSocketServer extends VisPlugin implements MotePlugin {
     return true;
   }
 
+  private final Runnable cleanupTask = new Runnable() {
+    @Override
+    public void run() {
+      cleanupClient();
+    }
+  };
+
+  /**
+   * Disconnects the current client. The serial data observer is used by the
+   * simulation thread, so while the simulation is running this is done there.
+   */
   private void cleanupClient() {
+    if (simulation.isRunning() && !simulation.isSimulationThread()) {
+      simulation.invokeSimulationThread(cleanupTask);
+      return;
+    }
+
+    SerialDataObserver observer = serialDataObserver;
+    serialDataObserver = null;
+    if (observer != null) {
+      serialPort.deleteSerialDataObserver(observer);
+      observer.close();
+      logger.info("Client disconnected, " + getStatistics());
+    }
+
     try {
       if (clientSocket != null) {
         clientSocket.close();
@@ -615,8 +766,6 @@ public class SerialSocketServer extends VisPlugin implements MotePlugin {
       logger.error(e1.getMessage());
     }
 
-    serialPort.deleteSerialDataObserver(serialDataObserver);
-
     notifyClientDisconnected();
   }
 
@@ -650,8 +799,11 @@ public class SerialSocketServer extends VisPlugin implements MotePlugin {
 			  return;
 		  }
 		  
-		  socketToMoteLabel.setText(inBytes + " bytes");
-		  moteToSocketLabel.setText(outBytes + " bytes");
+		  long in = inBytes, out = outBytes;
+		  socketToMoteLabel.setText(in + " bytes (" + (in - lastInBytes) * 1000 / UPDATE_INTERVAL + " B/s)");
+		  moteToSocketLabel.setText(out + " bytes (" + (out - lastOutBytes) * 1000 / UPDATE_INTERVAL + " B/s)");
+		  lastInBytes = in;
+		  lastOutBytes = out;
 	  }
 	  }
   });
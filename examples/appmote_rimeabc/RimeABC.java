@@ -29,10 +29,13 @@
  *
  */
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.Random;
 
 import org.contikios.cooja.COOJARadioPacket;
-import org.contikios.cooja.MoteTimeEvent;
+import org.contikios.cooja.Checkpointable;
 import org.contikios.cooja.MoteType;
 import org.contikios.cooja.RadioPacket;
 import org.contikios.cooja.Simulation;
@@ -45,16 +48,21 @@ import org.contikios.cooja.motes.AbstractApplicationMote;
  * Imitates the same behavior as /examples/rime/example-abc.c.
  * 
  * This mote is simulated in COOJA via the Imported App Mote Type.
+ * It only waits for mote wakeups, and stores its state in simulation
+ * checkpoints.
  * 
  * @author Fredrik Osterlind
  */
-public class RimeABC extends AbstractApplicationMote {
+public class RimeABC extends AbstractApplicationMote implements Checkpointable {
 
   private Simulation simulation = null;
   private Random random = null;
   private ApplicationRadio radio = null;
   private ApplicationLED leds = null;
 
+  /* Next wakeup transmits */
+  private boolean transmitPending = false;
+
   private final static byte RIME_CHANNEL1 = (byte) 128;
   private final static byte RIME_CHANNEL2 = (byte) 0;
   private final static RadioPacket RIME_ABC_DATA =
@@ -69,28 +77,18 @@ public class RimeABC extends AbstractApplicationMote {
 
   public RimeABC(MoteType moteType, Simulation simulation) {
     super(moteType, simulation);
+    this.simulation = simulation;
+    random = simulation.getRandomGenerator();
+    radio = (ApplicationRadio) getInterfaces().getRadio();
+    leds = (ApplicationLED) getInterfaces().getLED();
   }
 
   public void execute(long time) {
     /*System.out.println(this + ": execute(" + time + ")");*/
 
-    if (radio == null) {
-      simulation = getSimulation();
-      random = simulation.getRandomGenerator();
-      radio = (ApplicationRadio) getInterfaces().getRadio();
-      leds = (ApplicationLED) getInterfaces().getLED();
-    }
-
-    /* Delay 2-4 seconds */
-    simulation.scheduleEvent(
-        transmitEvent,
-        simulation.getSimulationTime() + 
-        (2000 + random.nextInt(2000))*Simulation.MILLISECOND
-    );
-  }
+    if (transmitPending) {
+      transmitPending = false;
 
-  private MoteTimeEvent transmitEvent = new MoteTimeEvent(this, 0) {
-    public void execute(long t) {
       /* Transmit Rime abc radio packet.
        * sentPacket is called when transmission finishes. */
       radio.startTransmittingPacket(
@@ -98,8 +96,16 @@ public class RimeABC extends AbstractApplicationMote {
 
       /* Turn on red LED */
       leds.setLED(ApplicationLED.LEDS_RED);
+      return;
     }
-  };
+
+    /* Delay 2-4 seconds */
+    transmitPending = true;
+    scheduleNextWakeup(
+        simulation.getSimulationTime() + 
+        (2000 + random.nextInt(2000))*Simulation.MILLISECOND
+    );
+  }
 
   public void receivedPacket(RadioPacket p) {
     byte[] packetData = p.getPacketData();
@@ -126,6 +132,14 @@ public class RimeABC extends AbstractApplicationMote {
     requestImmediateWakeup(); /* Triggers execute method */
   }
 
+  public void writeCheckpoint(DataOutputStream out) throws IOException {
+    out.writeBoolean(transmitPending);
+  }
+
+  public void readCheckpoint(DataInputStream in) throws IOException {
+    transmitPending = in.readBoolean();
+  }
+
   public String toString() {
     return "App Rime ABC " + getID();
   }
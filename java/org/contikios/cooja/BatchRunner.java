@@ -0,0 +1,241 @@
+/*
+ * Copyright (c) 2026, Cooja contributors
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the Institute nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE INSTITUTE AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE INSTITUTE OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ *
+ */
+
+package org.contikios.cooja;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Runs several simulations without visualization in one JVM.
+ *
+ * The batch file lists one simulation config per line, optionally followed by
+ * one or more random seeds, e.g. "tests/01-hello-world.csc 1 2 3". Each config
+ * and seed is loaded into a separate simulation, and the simulations are run
+ * concurrently on a worker pool. Empty lines and lines starting with '#' are
+ * ignored.
+ *
+ * Simulations are loaded one at a time, since loading may compile and load
+ * native mote libraries, but run in parallel once loaded.
+ *
+ * The exit code of each run, as reported by its test script, is written to a
+ * summary file together with the run duration and the test log file. Runs
+ * that stop without a test result, e.g. after a mote error, are reported
+ * with exit code -1, and runs exceeding the optional timeout with -2.
+ */
+public class BatchRunner {
+  private static Logger logger = Logger.getLogger(BatchRunner.class);
+
+  private static final Object loadLock = new Object();
+
+  public static final int EXIT_NO_RESULT = -1;
+  public static final int EXIT_TIMEOUT = -2;
+
+  private ArrayList<Run> runs = new ArrayList<Run>();
+  private long timeout = 0;
+
+  private static class Run {
+    File config;
+    Long seed;
+    File testLog;
+
+    volatile int exitCode = EXIT_NO_RESULT;
+    long duration = 0;
+  }
+
+  /**
+   * @param batchFile Batch file
+   * @throws IOException If batch file could not be read
+   */
+  public BatchRunner(File batchFile) throws IOException {
+    BufferedReader in = new BufferedReader(new FileReader(batchFile));
+    try {
+      String line;
+      while ((line = in.readLine()) != null) {
+        line = line.trim();
+        if (line.isEmpty() || line.startsWith("#")) {
+          continue;
+        }
+        String[] arr = line.split("\\s+");
+        File config = new File(arr[0]);
+        if (arr.length == 1) {
+          addRun(config, null);
+        }
+        for (int i=1; i < arr.length; i++) {
+          try {
+            addRun(config, Long.valueOf(arr[i]));
+          } catch (NumberFormatException e) {
+            throw new IOException("Bad random seed: " + arr[i]);
+          }
+        }
+      }
+    } finally {
+      in.close();
+    }
+  }
+
+  private void addRun(File config, Long seed) {
+    Run run = new Run();
+    run.config = config;
+    run.seed = seed;
+
+    String name = config.getName();
+    if (name.endsWith(".csc")) {
+      name = name.substring(0, name.length() - ".csc".length());
+    }
+    run.testLog = new File("COOJA-" + runs.size() + "-" + name +
+        (seed != null ? "-" + seed : "") + ".testlog");
+    runs.add(run);
+  }
+
+  /**
+   * @param timeout Maximum wall-clock duration of each run in milliseconds,
+   * or 0 for no limit
+   */
+  public void setTimeout(long timeout) {
+    this.timeout = timeout;
+  }
+
+  /**
+   * Runs all simulations and writes the summary file.
+   *
+   * @param threads Number of concurrently executing simulations
+   * @param summaryFile Summary file
+   * @return Number of failed runs
+   */
+  public int run(int threads, File summaryFile) {
+    logger.info("Running " + runs.size() + " simulations on " + threads + " threads");
+
+    ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+    for (final Run run: runs) {
+      executor.execute(new Runnable() {
+        public void run() {
+          long start = System.currentTimeMillis();
+          try {
+            runSimulation(run);
+          } catch (Throwable t) {
+            logger.fatal("Simulation " + run.config + " failed: " + t.getMessage(), t);
+          }
+          run.duration = System.currentTimeMillis() - start;
+          logger.info("Finished " + run.config + " (seed " + run.seed + "): exit code " + run.exitCode);
+        }
+      });
+    }
+    executor.shutdown();
+    try {
+      executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      logger.warn("Interrupted while waiting for simulations");
+    }
+
+    int failed = 0;
+    for (Run run: runs) {
+      if (run.exitCode != 0) {
+        failed++;
+      }
+    }
+
+    try {
+      BufferedWriter out = new BufferedWriter(new FileWriter(summaryFile));
+      out.write("# config\tseed\texit code\tduration (ms)\ttest log\n");
+      for (Run run: runs) {
+        out.write(run.config.getPath() + "\t" +
+            (run.seed != null ? run.seed : "-") + "\t" +
+            run.exitCode + "\t" +
+            run.duration + "\t" +
+            run.testLog.getPath() + "\n");
+      }
+      out.close();
+    } catch (IOException e) {
+      logger.fatal("Failed to write batch summary: " + summaryFile, e);
+    }
+
+    logger.info((runs.size() - failed) + "/" + runs.size() + " simulations succeeded");
+    return failed;
+  }
+
+  private void runSimulation(final Run run) throws Exception {
+    final CountDownLatch finished = new CountDownLatch(1);
+    Cooja gui;
+    Simulation sim;
+
+    synchronized (loadLock) {
+      gui = new Cooja(Cooja.createDesktopPane()) {
+        public void doQuitHeadless(int exitCode) {
+          /* Keep JVM running: report exit code */
+          run.exitCode = exitCode;
+          finished.countDown();
+        }
+      };
+      gui.setTestLogFile(run.testLog);
+
+      sim = gui.loadSimulationConfig(run.config, true, run.seed);
+      if (sim == null) {
+        return;
+      }
+      gui.setSimulation(sim, false);
+      sim.addStopListener(new Simulation.StopListener() {
+        public void simulationStopped(Simulation sim) {
+          /* Test scripts report their exit code before the simulation stops */
+          finished.countDown();
+        }
+      });
+      if (!Cooja.startSimulationController(gui, sim, run.config)) {
+        gui.doRemoveSimulation(false);
+        return;
+      }
+    }
+
+    if (timeout > 0) {
+      if (!finished.await(timeout, TimeUnit.MILLISECONDS)) {
+        logger.fatal("Simulation " + run.config + " timed out after " + timeout + " ms");
+        run.exitCode = EXIT_TIMEOUT;
+      }
+    } else {
+      finished.await();
+    }
+    if (run.exitCode == EXIT_NO_RESULT) {
+      logger.fatal("Simulation " + run.config + " stopped without test result");
+    }
+    sim.stopSimulation();
+    gui.doRemoveSimulation(false);
+  }
+}
@@ -59,7 +59,6 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.PrintStream;
-import java.io.StringReader;
 import java.lang.reflect.InvocationTargetException;
 import java.net.URL;
 import java.net.URI;
@@ -71,13 +70,14 @@ import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Observable;
 import java.util.Observer;
 import java.util.Properties;
 import java.util.Vector;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
@@ -124,6 +124,7 @@ import org.apache.log4j.xml.DOMConfigurator;
 import org.jdom.Document;
 import org.jdom.Element;
 import org.jdom.JDOMException;
+import org.jdom.filter.ElementFilter;
 import org.jdom.input.SAXBuilder;
 import org.jdom.output.Format;
 import org.jdom.output.XMLOutputter;
@@ -135,6 +136,7 @@ import org.contikios.cooja.dialogs.BufferSettings;
 import org.contikios.cooja.dialogs.ConfigurationWizard;
 import org.contikios.cooja.dialogs.CreateSimDialog;
 import org.contikios.cooja.dialogs.ExternalToolsDialog;
+import org.contikios.cooja.dialogs.FirmwareCache;
 import org.contikios.cooja.dialogs.MessageList;
 import org.contikios.cooja.dialogs.MessageListUI;
 import org.contikios.cooja.dialogs.ProjectDirectoriesDialog;
@@ -157,8 +159,13 @@ import org.contikios.cooja.util.ScnObservable;
  * @author Fredrik Osterlind
  */
 public class Cooja extends Observable {
-  private static JFrame frame = null;
-  private static JApplet applet = null;
+  /* Main window of this instance, if visualized */
+  private JFrame frame = null;
+  private JApplet applet = null;
+
+  /* The visualized instance, if any: a JVM has at most one main window */
+  private static volatile Cooja visualizedCooja = null;
+
   private static final long serialVersionUID = 1L;
   private static Logger logger = Logger.getLogger(Cooja.class);
 
@@ -202,6 +209,7 @@ public class Cooja extends Observable {
 
   private static String specifiedCoojaPath = null;
   private static String specifiedContikiPath = null;
+  private static String specifiedFirmwareCachePath = null;
 
   /**
    * Logger settings filename.
@@ -244,7 +252,8 @@ public class Cooja extends Observable {
     }
   };
 
-  // External tools setting names
+  // External tools settings: shared by all instances in this JVM.
+  // Accessed via the synchronized static methods below, which lock Cooja.class.
   public static Properties defaultExternalToolsSettings;
   public static Properties currentExternalToolsSettings;
 
@@ -253,6 +262,7 @@ public class Cooja extends Observable {
     "PATH_CONTIKI", "PATH_COOJA_CORE_RELATIVE","PATH_APPS",
     "PATH_APPSEARCH",
     "PATH_CONTIKI_NG_BUILD_DIR",
+    "PATH_FIRMWARE_CACHE", "FIRMWARE_CACHE_SOURCES",
 
     "PATH_MAKE",
     "PATH_SHELL",
@@ -315,6 +325,10 @@ public class Cooja extends Observable {
 
   private Vector<Plugin> startedPlugins = new Vector<Plugin>();
 
+  /* Test script output file, used without visualization: the first instance keeps the classic name */
+  private static final AtomicInteger instanceCounter = new AtomicInteger();
+  private File testLogFile = createTestLogFile(instanceCounter.getAndIncrement());
+
   private ArrayList<GUIAction> guiActions = new ArrayList<GUIAction>();
 
   // Platform configuration variables
@@ -363,7 +377,23 @@ public class Cooja extends Observable {
    * @param desktop Desktop pane
    */
   public Cooja(JDesktopPane desktop) {
+    this(desktop, null, null);
+  }
+
+  /**
+   * Creates a visualized Cooja instance, shown in the given frame or applet.
+   *
+   * @param desktop Desktop pane
+   * @param frame Main window, or null
+   * @param applet Applet, or null
+   */
+  private Cooja(JDesktopPane desktop, JFrame frame, JApplet applet) {
     cooja = this;
+    this.frame = frame;
+    this.applet = applet;
+    if (frame != null || applet != null) {
+      visualizedCooja = this;
+    }
     mySimulation = null;
     myDesktopPane = desktop;
 
@@ -381,9 +411,13 @@ public class Cooja extends Observable {
     quickHelpScroll.setVisible(false);
     loadQuickHelp("GETTING_STARTED");
 
-    // Load default and overwrite with user settings (if any)
-    loadExternalToolsDefaultSettings();
-    loadExternalToolsUserSettings();
+    // Load default and overwrite with user settings (if any), once per JVM
+    synchronized (Cooja.class) {
+      if (currentExternalToolsSettings == null) {
+        loadExternalToolsDefaultSettings();
+        loadExternalToolsUserSettings();
+      }
+    }
 
     final boolean showQuickhelp = getExternalToolsSetting("SHOW_QUICKHELP", "true").equalsIgnoreCase("true");
     if (showQuickhelp) {
@@ -492,13 +526,17 @@ public class Cooja extends Observable {
   }
 
   public static Container getTopParentContainer() {
-    if (isVisualizedInFrame()) {
-      return frame;
+    Cooja visualized = visualizedCooja;
+    if (visualized == null) {
+      return null;
+    }
+    if (visualized.frame != null) {
+      return visualized.frame;
     }
 
-    if (isVisualizedInApplet()) {
+    if (visualized.applet != null) {
       /* Find parent frame for applet */
-      Container container = applet;
+      Container container = visualized.applet;
       while((container = container.getParent()) != null){
         if (container instanceof Frame) {
           return container;
@@ -518,15 +556,17 @@ public class Cooja extends Observable {
   }
 
   public static boolean isVisualizedInFrame() {
-    return frame != null;
+    Cooja visualized = visualizedCooja;
+    return visualized != null && visualized.frame != null;
   }
 
   public static URL getAppletCodeBase() {
-    return applet.getCodeBase();
+    return visualizedCooja.applet.getCodeBase();
   }
 
   public static boolean isVisualizedInApplet() {
-    return applet != null;
+    Cooja visualized = visualizedCooja;
+    return visualized != null && visualized.applet != null;
   }
 
   /**
@@ -536,7 +576,7 @@ public class Cooja extends Observable {
    */
   public void setVisualizedInFrame(boolean visualized) {
     if (visualized) {
-      if (!isVisualizedInFrame()) {
+      if (frame == null) {
         configureFrame(cooja, false);
       }
     } else {
@@ -544,6 +584,9 @@ public class Cooja extends Observable {
         frame.setVisible(false);
         frame.dispose();
         frame = null;
+        if (visualizedCooja == this) {
+          visualizedCooja = null;
+        }
       }
     }
   }
@@ -695,6 +738,8 @@ public class Cooja extends Observable {
     guiActions.add(saveSimulationAction);
     /*    guiActions.add(closePluginsAction);*/
     guiActions.add(exportExecutableJARAction);
+    guiActions.add(saveCheckpointAction);
+    guiActions.add(loadCheckpointAction);
     guiActions.add(exitCoojaAction);
     guiActions.add(startStopSimulationAction);
     guiActions.add(removeAllMotesAction);
@@ -751,6 +796,9 @@ public class Cooja extends Observable {
 
     fileMenu.add(new JMenuItem(saveSimulationAction));
 
+    fileMenu.add(new JMenuItem(saveCheckpointAction));
+    fileMenu.add(new JMenuItem(loadCheckpointAction));
+
     fileMenu.add(new JMenuItem(exportExecutableJARAction));
 
     /*    menu.addSeparator();*/
@@ -1123,9 +1171,11 @@ public class Cooja extends Observable {
 
   private static void configureFrame(final Cooja gui, boolean createSimDialog) {
 
-    if (frame == null) {
-      frame = new JFrame(WINDOW_TITLE);
+    if (gui.frame == null) {
+      gui.frame = new JFrame(WINDOW_TITLE);
+      visualizedCooja = gui;
     }
+    final JFrame frame = gui.frame;
     frame.setDefaultCloseOperation(JFrame.DO_NOTHING_ON_CLOSE);
 
     /* Menu bar */
@@ -1204,7 +1254,11 @@ public class Cooja extends Observable {
   }
 
   private static void configureApplet(final Cooja gui, boolean createSimDialog) {
-    applet = CoojaApplet.applet;
+    if (gui.applet == null) {
+      gui.applet = CoojaApplet.applet;
+      visualizedCooja = gui;
+    }
+    JApplet applet = gui.applet;
 
     // Add menu bar
     JMenuBar menuBar = gui.createMenuBar();
@@ -1287,7 +1341,7 @@ public class Cooja extends Observable {
     desktop.revalidate();
   }
 
-  private static JDesktopPane createDesktopPane() {
+  static JDesktopPane createDesktopPane() {
     final JDesktopPane desktop = new JDesktopPane() {
 			private static final long serialVersionUID = -8272040875621119329L;
 			public void setBounds(int x, int y, int w, int h) {
@@ -1322,14 +1376,21 @@ public class Cooja extends Observable {
   public static Simulation quickStartSimulationConfig(File config, boolean vis, Long manualRandomSeed) {
     logger.info("> Starting Cooja");
     JDesktopPane desktop = createDesktopPane();
-    if (vis) {
-      frame = new JFrame(WINDOW_TITLE);
-    }
-    Cooja gui = new Cooja(desktop);
+    Cooja gui = vis ? new Cooja(desktop, new JFrame(WINDOW_TITLE), null) : new Cooja(desktop);
     if (vis) {
       configureFrame(gui, false);
     }
 
+    if (config.getName().endsWith(SimulationCheckpoint.FILE_EXTENSION)) {
+      /* Restore checkpoint, the random seed is part of the checkpoint */
+      try {
+        return SimulationCheckpoint.load(gui, config);
+      } catch (Exception e) {
+        logger.fatal("Exception when loading checkpoint: ", e);
+        return null;
+      }
+    }
+
     if (vis) {
       gui.doLoadConfig(false, true, config, manualRandomSeed);
       return gui.getSimulation();
@@ -1357,8 +1418,7 @@ public class Cooja extends Observable {
   private static Simulation quickStartSimulation(String source) {
     logger.info("> Starting Cooja");
     JDesktopPane desktop = createDesktopPane();
-    frame = new JFrame(WINDOW_TITLE);
-    Cooja gui = new Cooja(desktop);
+    Cooja gui = new Cooja(desktop, new JFrame(WINDOW_TITLE), null);
     configureFrame(gui, false);
 
     logger.info("> Creating simulation");
@@ -2260,7 +2320,7 @@ public class Cooja extends Observable {
     updateGUIComponentState();
 
     // Reset frame title
-    if (isVisualizedInFrame()) {
+    if (frame != null) {
       frame.setTitle(WINDOW_TITLE);
     }
 
@@ -2736,7 +2796,7 @@ public class Cooja extends Observable {
     }
 
     /* Store frame size and position */
-    if (isVisualizedInFrame()) {
+    if (frame != null) {
       setExternalToolsSetting("FRAME_SCREEN", frame.getGraphicsConfiguration().getDevice().getIDstring());
       setExternalToolsSetting("FRAME_POS_X", "" + frame.getLocationOnScreen().x);
       setExternalToolsSetting("FRAME_POS_Y", "" + frame.getLocationOnScreen().y);
@@ -2754,6 +2814,50 @@ public class Cooja extends Observable {
     System.exit(exitCode);
   }
 
+  /**
+   * Quits Cooja when running without visualization, for example when a test
+   * script has finished. If quitting does not finish in time, the JVM is
+   * terminated.
+   *
+   * @param exitCode Exit code
+   */
+  public void doQuitHeadless(final int exitCode) {
+    new Thread() {
+      public void run() {
+        try { Thread.sleep(500); } catch (InterruptedException e) { }
+        doQuit(false, exitCode);
+      };
+    }.start();
+    new Thread() {
+      public void run() {
+        try { Thread.sleep(2000); } catch (InterruptedException e) { }
+        logger.warn("Killing Cooja");
+        System.exit(exitCode);
+      };
+    }.start();
+  }
+
+  private static File createTestLogFile(int instance) {
+    if (instance == 0) {
+      return new File("COOJA.testlog");
+    }
+    return new File("COOJA-" + instance + ".testlog");
+  }
+
+  /**
+   * @return File test scripts write their output to when not visualized
+   */
+  public File getTestLogFile() {
+    return testLogFile;
+  }
+
+  /**
+   * @param testLogFile File test scripts write their output to when not visualized
+   */
+  public void setTestLogFile(File testLogFile) {
+    this.testLogFile = testLogFile;
+  }
+
     public static String resolvePathIdentifiers(String path) {
         for(int i = 0; i < PATH_IDENTIFIER.length; i++) {
             if(path.contains(PATH_IDENTIFIER[i][0])) {
@@ -2805,13 +2909,16 @@ public class Cooja extends Observable {
    *          Default value
    * @return Value
    */
-  public static String getExternalToolsSetting(String name, String defaultValue) {
+  public static synchronized String getExternalToolsSetting(String name, String defaultValue) {
     if (specifiedContikiPath != null && "PATH_CONTIKI".equals(name)) {
       return specifiedContikiPath;
     }
     if (Cooja.specifiedCoojaPath != null && "PATH_COOJA".equals(name)) {
       return Cooja.specifiedCoojaPath;
     }
+    if (specifiedFirmwareCachePath != null && "PATH_FIRMWARE_CACHE".equals(name)) {
+      return specifiedFirmwareCachePath;
+    }
     return currentExternalToolsSettings.getProperty(name, defaultValue);
   }
 
@@ -2822,7 +2929,7 @@ public class Cooja extends Observable {
    *          Default value
    * @return Value
    */
-  public static String getExternalToolsDefaultSetting(String name, String defaultValue) {
+  public static synchronized String getExternalToolsDefaultSetting(String name, String defaultValue) {
     return defaultExternalToolsSettings.getProperty(name, defaultValue);
   }
 
@@ -2832,14 +2939,14 @@ public class Cooja extends Observable {
    * @param newVal
    *          New value
    */
-  public static void setExternalToolsSetting(String name, String newVal) {
+  public static synchronized void setExternalToolsSetting(String name, String newVal) {
     currentExternalToolsSettings.setProperty(name, newVal);
   }
 
   /**
    * Load external tools settings from default file.
    */
-  public static void loadExternalToolsDefaultSettings() {
+  public static synchronized void loadExternalToolsDefaultSettings() {
     String osName = System.getProperty("os.name").toLowerCase();
     String osArch = System.getProperty("os.arch").toLowerCase();
 
@@ -2893,7 +3000,7 @@ public class Cooja extends Observable {
   /**
    * Load user values from external properties file
    */
-  public static void loadExternalToolsUserSettings() {
+  public static synchronized void loadExternalToolsUserSettings() {
     if (externalToolsUserSettingsFile == null) {
       return;
     }
@@ -2917,10 +3024,39 @@ public class Cooja extends Observable {
     }
   }
 
+  /**
+   * Sets the file user settings are read from, and saved to.
+   * Must be called before the first Cooja instance is created.
+   *
+   * @param file User settings file, or null
+   * @param readOnly True if settings should never be saved to file
+   */
+  public static synchronized void setExternalToolsUserSettingsFile(File file, boolean readOnly) {
+    externalToolsUserSettingsFile = file;
+    externalToolsUserSettingsFileReadOnly = readOnly;
+  }
+
+  /**
+   * @return Copy of all settings that differ from their default values
+   */
+  public static synchronized Properties getDifferingExternalToolsSettings() {
+    Properties differingSettings = new Properties();
+    Enumeration<Object> keyEnum = currentExternalToolsSettings.keys();
+    while (keyEnum.hasMoreElements()) {
+      String key = (String) keyEnum.nextElement();
+      String defaultSetting = getExternalToolsDefaultSetting(key, "");
+      String currentSetting = currentExternalToolsSettings.getProperty(key, "");
+      if (!defaultSetting.equals(currentSetting)) {
+        differingSettings.setProperty(key, currentSetting);
+      }
+    }
+    return differingSettings;
+  }
+
   /**
    * Save external tools user settings to file.
    */
-  public static void saveExternalToolsUserSettings() {
+  public static synchronized void saveExternalToolsUserSettings() {
     if (isVisualizedInApplet()) {
       return;
     }
@@ -2932,17 +3068,7 @@ public class Cooja extends Observable {
     try {
       FileOutputStream out = new FileOutputStream(externalToolsUserSettingsFile);
 
-      Properties differingSettings = new Properties();
-      Enumeration keyEnum = currentExternalToolsSettings.keys();
-      while (keyEnum.hasMoreElements()) {
-        String key = (String) keyEnum.nextElement();
-        String defaultSetting = getExternalToolsDefaultSetting(key, "");
-        String currentSetting = currentExternalToolsSettings.getProperty(key, "");
-        if (!defaultSetting.equals(currentSetting)) {
-          differingSettings.setProperty(key, currentSetting);
-        }
-      }
-
+      Properties differingSettings = getDifferingExternalToolsSettings();
       differingSettings.store(out, "Cooja External Tools (User specific)");
       out.close();
     } catch (FileNotFoundException ex) {
@@ -3149,6 +3275,94 @@ public class Cooja extends Observable {
     return null;
   }
 
+  /**
+   * Creates the mote types of the given simulation configs without starting
+   * any plugins or simulations, so that their firmware is stored in the
+   * firmware cache.
+   *
+   * @param configs Simulation configs
+   * @return True if all mote types were created
+   */
+  static boolean prewarmFirmwareCache(List<File> configs) {
+    logger.info("> Starting Cooja");
+    Cooja gui = new Cooja(createDesktopPane());
+
+    FirmwareCache firmwareCache = FirmwareCache.getDefault();
+    if (firmwareCache == null) {
+      logger.fatal("No firmware cache configured, see PATH_FIRMWARE_CACHE or -firmware-cache=");
+      return false;
+    }
+    logger.info("Firmware cache: " + firmwareCache.getDirectory());
+
+    boolean ok = true;
+    for (File config : configs) {
+      try {
+        gui.currentConfigFile = config.getCanonicalFile();
+        InputStream in = new FileInputStream(config);
+        if (config.getName().endsWith(".gz")) {
+          in = new GZIPInputStream(in);
+        }
+        Element root = new SAXBuilder().build(in).getRootElement();
+        in.close();
+        root.removeChildren("plugin");
+        Simulation sim = gui.loadSimulationConfig(root, true, null);
+        if (sim == null) {
+          logger.fatal("Failed to prewarm " + config);
+          ok = false;
+          continue;
+        }
+        logger.info("Prewarmed " + sim.getMoteTypes().length + " mote types: " + config);
+        sim.removed();
+      } catch (Exception e) {
+        logger.fatal("Failed to prewarm " + config + ": " + e.getMessage(), e);
+        ok = false;
+      }
+    }
+    return ok;
+  }
+
+  /**
+   * Makes sure at least one plugin is controlling a simulation loaded without
+   * visualization.
+   *
+   * Backwards compatibility: if the simulation has no control plugin, but has
+   * an external (old style) test script, a test editor is started manually.
+   *
+   * @param gui Cooja
+   * @param sim Simulation
+   * @param configFile Simulation config file
+   * @return True if simulation is controlled by a plugin
+   */
+  static boolean startSimulationController(Cooja gui, Simulation sim, File configFile) {
+    for (Plugin startedPlugin : gui.startedPlugins) {
+      int pluginType = startedPlugin.getClass().getAnnotation(PluginType.class).value();
+      if (pluginType == PluginType.SIM_CONTROL_PLUGIN) {
+        return true;
+      }
+    }
+
+    String config = configFile.getPath();
+    File scriptFile = new File(config.substring(0, config.length()-4) + ".js");
+    if (!scriptFile.exists()) {
+      logger.fatal("No plugin controlling simulation, aborting");
+      return false;
+    }
+
+    logger.info("Detected old simulation test, starting test editor manually from: " + scriptFile);
+    ScriptRunner plugin = (ScriptRunner) gui.tryStartPlugin(ScriptRunner.class, gui, sim, null);
+    if (plugin == null) {
+      return false;
+    }
+    plugin.updateScript(scriptFile);
+    try {
+      plugin.setScriptActive(true);
+    } catch (Exception e) {
+      logger.fatal("Error: " + e.getMessage(), e);
+      return false;
+    }
+    return true;
+  }
+
   /**
    * Load configurations and create a GUI.
    *
@@ -3183,10 +3397,10 @@ public class Cooja extends Observable {
         DOMConfigurator.configure(Cooja.class.getResource("/" + LOG_CONFIG_FILE));
       }
 
-      externalToolsUserSettingsFile = new File(System.getProperty("user.home"), EXTERNAL_TOOLS_USER_SETTINGS_FILENAME);
+      setExternalToolsUserSettingsFile(new File(System.getProperty("user.home"), EXTERNAL_TOOLS_USER_SETTINGS_FILENAME), false);
     } catch (AccessControlException e) {
       BasicConfigurator.configure();
-      externalToolsUserSettingsFile = null;
+      setExternalToolsUserSettingsFile(null, false);
     }
 
     /* Look and Feel: Nimbus */
@@ -3210,6 +3424,11 @@ public class Cooja extends Observable {
         Cooja.specifiedCoojaPath = arg;
       }
 
+      if (element.startsWith("-firmware-cache=")) {
+        String arg = element.substring("-firmware-cache=".length());
+        Cooja.specifiedFirmwareCachePath = arg;
+      }
+
       if (element.startsWith("-external_tools_config=")) {
         String arg = element.substring("-external_tools_config=".length());
         File specifiedExternalToolsConfigFile = new File(arg);
@@ -3218,8 +3437,7 @@ public class Cooja extends Observable {
           specifiedExternalToolsConfigFile = null;
           System.exit(1);
         } else {
-          Cooja.externalToolsUserSettingsFile = specifiedExternalToolsConfigFile;
-          Cooja.externalToolsUserSettingsFileReadOnly = true;
+          setExternalToolsUserSettingsFile(specifiedExternalToolsConfigFile, true);
         }
       }
       
@@ -3267,7 +3485,7 @@ public class Cooja extends Observable {
       }
 
       Simulation sim = null;
-      if (contikiApp.endsWith(".csc")) {
+      if (contikiApp.endsWith(".csc") || contikiApp.endsWith(SimulationCheckpoint.FILE_EXTENSION)) {
         sim = quickStartSimulationConfig(new File(contikiApp), true, randomSeed);
       } else {
         if (contikiApp.endsWith(".cooja")) {
@@ -3294,43 +3512,123 @@ public class Cooja extends Observable {
       if (sim == null) {
         System.exit(1);
       }
-      Cooja gui = sim.getCooja();
+      if (!startSimulationController(sim.getCooja(), sim, configFile)) {
+        System.exit(1);
+      }
 
-      /* Make sure at least one plugin controlling the simulation */
-      boolean hasController = false;
-      for (Plugin startedPlugin : gui.startedPlugins) {
-    	int pluginType = startedPlugin.getClass().getAnnotation(PluginType.class).value();
-    	if (pluginType == PluginType.SIM_CONTROL_PLUGIN) {
-    	  hasController = true;
-    	}
+    } else if (args.length > 0 && args[0].startsWith("-batch=")) {
+
+      /* Run several simulations in this JVM */
+      File batchFile = new File(args[0].substring("-batch=".length()));
+      File summaryFile = new File("COOJA.batch");
+      long timeout = 0;
+      int threads = Runtime.getRuntime().availableProcessors();
+      for (String element : args) {
+        if (element.startsWith("-batch-threads=")) {
+          String arg = element.substring("-batch-threads=".length());
+          try {
+            threads = Integer.parseInt(arg);
+          } catch (NumberFormatException e) {
+            logger.error("Failed to convert \"" + arg +"\" to an integer.");
+          }
+        }
+        if (element.startsWith("-batch-summary=")) {
+          summaryFile = new File(element.substring("-batch-summary=".length()));
+        }
+        if (element.startsWith("-batch-timeout=")) {
+          String arg = element.substring("-batch-timeout=".length());
+          try {
+            timeout = Long.parseLong(arg) * 1000;
+          } catch (NumberFormatException e) {
+            logger.error("Failed to convert \"" + arg +"\" to an integer.");
+          }
+        }
       }
 
-      /* Backwards compatibility:
-       * simulation has no control plugin, but has external (old style) test script.
-       * We will manually start a test editor from here. */
-      if (!hasController) {
-        File scriptFile = new File(config.substring(0, config.length()-4) + ".js");
-        if (scriptFile.exists()) {
-          logger.info("Detected old simulation test, starting test editor manually from: " + scriptFile);
-          ScriptRunner plugin = (ScriptRunner) gui.tryStartPlugin(ScriptRunner.class, gui, sim, null);
-          if (plugin == null) {
-            System.exit(1);
+      try {
+        BatchRunner runner = new BatchRunner(batchFile);
+        runner.setTimeout(timeout);
+        int failed = runner.run(threads, summaryFile);
+        System.exit(failed > 0 ? 1 : 0);
+      } catch (IOException e) {
+        logger.fatal("Failed to read batch file: " + batchFile, e);
+        System.exit(1);
+      }
+
+    } else if (args.length > 0 && args[0].startsWith("-sweep=")) {
+
+      /* Run several variants of one checkpoint in this JVM */
+      File source = new File(args[0].substring("-sweep=".length()));
+      File variantsFile = null;
+      File summaryFile = new File("COOJA.sweep");
+      long warmup = 0;
+      long timeout = 0;
+      int threads = Runtime.getRuntime().availableProcessors();
+      for (String element : args) {
+        if (element.startsWith("-sweep-variants=")) {
+          variantsFile = new File(element.substring("-sweep-variants=".length()));
+        }
+        if (element.startsWith("-sweep-warmup=")) {
+          String arg = element.substring("-sweep-warmup=".length());
+          try {
+            warmup = Long.parseLong(arg) * Simulation.MILLISECOND;
+          } catch (NumberFormatException e) {
+            logger.error("Failed to convert \"" + arg +"\" to an integer.");
           }
-          plugin.updateScript(scriptFile);
+        }
+        if (element.startsWith("-sweep-threads=")) {
+          String arg = element.substring("-sweep-threads=".length());
+          try {
+            threads = Integer.parseInt(arg);
+          } catch (NumberFormatException e) {
+            logger.error("Failed to convert \"" + arg +"\" to an integer.");
+          }
+        }
+        if (element.startsWith("-sweep-summary=")) {
+          summaryFile = new File(element.substring("-sweep-summary=".length()));
+        }
+        if (element.startsWith("-sweep-timeout=")) {
+          String arg = element.substring("-sweep-timeout=".length());
           try {
-            plugin.setScriptActive(true);
-          } catch (Exception e) {
-            logger.fatal("Error: " + e.getMessage(), e);
-            System.exit(1);
+            timeout = Long.parseLong(arg) * 1000;
+          } catch (NumberFormatException e) {
+            logger.error("Failed to convert \"" + arg +"\" to an integer.");
           }
+        }
+      }
+      if (variantsFile == null) {
+        logger.fatal("No sweep variants file given, use -sweep-variants=<file>");
+        System.exit(1);
+      }
+
+      try {
+        SweepRunner runner;
+        if (source.getName().endsWith(SimulationCheckpoint.FILE_EXTENSION)) {
+          runner = new SweepRunner(SimulationCheckpoint.read(source), source);
         } else {
-          logger.fatal("No plugin controlling simulation, aborting");
-          System.exit(1);
+          /* Checkpoint simulation config after warm-up */
+          runner = SweepRunner.warmUp(source, warmup, randomSeed);
         }
+        runner.readVariants(variantsFile);
+        runner.setTimeout(timeout);
+        int failed = runner.run(threads, summaryFile);
+        System.exit(failed > 0 ? 1 : 0);
+      } catch (Exception e) {
+        logger.fatal("Failed to run sweep of " + source + ": " + e.getMessage(), e);
+        System.exit(1);
       }
 
+    } else if (args.length > 0 && args[0].startsWith("-prewarm=")) {
+
+      /* Build mote types of all given configs into the firmware cache */
+      ArrayList<File> configs = new ArrayList<File>();
+      for (String element : args) {
+        if (element.startsWith("-prewarm=")) {
+          configs.add(new File(element.substring("-prewarm=".length())));
+        }
+      }
+      System.exit(prewarmFirmwareCache(configs) ? 0 : 1);
 
-      
     } else if (args.length > 0 && args[0].startsWith("-applet")) {
 
       String tmpWebPath=null, tmpBuildPath=null, tmpEsbFirmware=null, tmpSkyFirmware=null;
@@ -3353,8 +3651,7 @@ public class Cooja extends Observable {
         public void run() {
           JDesktopPane desktop = createDesktopPane();
 
-          applet = CoojaApplet.applet;
-          Cooja gui = new Cooja(desktop);
+          Cooja gui = new Cooja(desktop, null, CoojaApplet.applet);
 
           Cooja.setExternalToolsSetting("PATH_CONTIKI_BUILD", buildPath);
           Cooja.setExternalToolsSetting("PATH_CONTIKI_WEB", webPath);
@@ -3372,8 +3669,7 @@ public class Cooja extends Observable {
       javax.swing.SwingUtilities.invokeLater(new Runnable() {
         public void run() {
           JDesktopPane desktop = createDesktopPane();
-          frame = new JFrame(WINDOW_TITLE);
-          Cooja gui = new Cooja(desktop);
+          Cooja gui = new Cooja(desktop, new JFrame(WINDOW_TITLE), null);
           configureFrame(gui, false);
         }
       });
@@ -3420,6 +3716,63 @@ public class Cooja extends Observable {
     }
   }
 
+  /**
+   * Replaces all Contiki mote type identifiers in the given config, and all
+   * references to them, with identifiers not used by the current simulation.
+   * The given config is not modified: if any identifier is replaced, the
+   * replacements are made in a copy.
+   *
+   * @param root Simulation config
+   * @return Config with new identifiers, or the given config if it contains no Contiki mote types
+   */
+  private Element remapMoteTypeIdentifiers(Element root) {
+    /* Locate Contiki mote types in config */
+    HashMap<String, String> moteTypeIDMappings = new HashMap<String, String>();
+    Iterator<?> it = root.getDescendants(new ElementFilter("motetype"));
+    while (it.hasNext()) {
+      Element element = (Element) it.next();
+      if (element.getTextTrim().equals(ContikiMoteType.class.getName())
+          && element.getChild("identifier") != null) {
+        moteTypeIDMappings.put(element.getChild("identifier").getTextTrim(), "");
+      }
+    }
+    if (moteTypeIDMappings.isEmpty()) {
+      return root;
+    }
+
+    /* Create old to new identifier mappings */
+    MoteType[] existingMoteTypes = null;
+    if (mySimulation != null) {
+      existingMoteTypes = mySimulation.getMoteTypes();
+    }
+    for (String existingIdentifier : moteTypeIDMappings.keySet()) {
+      ArrayList<Object> reserved = new ArrayList<Object>();
+      reserved.addAll(moteTypeIDMappings.keySet());
+      reserved.addAll(moteTypeIDMappings.values());
+      String newID = ContikiMoteType.generateUniqueMoteTypeID(existingMoteTypes, reserved);
+      moteTypeIDMappings.put(existingIdentifier, newID);
+    }
+
+    /* Update copy of config */
+    Element remapped = (Element) root.clone();
+    ArrayList<Element> identifierElements = new ArrayList<Element>();
+    it = remapped.getDescendants(new ElementFilter());
+    while (it.hasNext()) {
+      Element element = (Element) it.next();
+      if (element.getName().equals("identifier")
+          || element.getName().equals("motetype_identifier")) {
+        identifierElements.add(element);
+      }
+    }
+    for (Element element : identifierElements) {
+      String newID = moteTypeIDMappings.get(element.getTextTrim());
+      if (newID != null) {
+        element.setText(newID);
+      }
+    }
+    return remapped;
+  }
+
   public Simulation loadSimulationConfig(Element root, boolean quick, Long manualRandomSeed)
   throws SimulationCreationException {
     Simulation newSim = null;
@@ -3435,46 +3788,7 @@ public class Cooja extends Observable {
       boolean projectsOk = verifyProjects(root.getChildren());
 
       /* GENERATE UNIQUE MOTE TYPE IDENTIFIERS */
-      root.detach();
-      String configString = new XMLOutputter().outputString(new Document(root));
-
-      /* Locate Contiki mote types in config */
-      Properties moteTypeIDMappings = new Properties();
-      String identifierExtraction = ContikiMoteType.class.getName() + "[\\s\\n]*<identifier>([^<]*)</identifier>";
-      Matcher matcher = Pattern.compile(identifierExtraction).matcher(configString);
-      while (matcher.find()) {
-        moteTypeIDMappings.setProperty(matcher.group(1), "");
-      }
-
-      /* Create old to new identifier mappings */
-      Enumeration<Object> existingIdentifiers = moteTypeIDMappings.keys();
-      while (existingIdentifiers.hasMoreElements()) {
-        String existingIdentifier = (String) existingIdentifiers.nextElement();
-        MoteType[] existingMoteTypes = null;
-        if (mySimulation != null) {
-          existingMoteTypes = mySimulation.getMoteTypes();
-        }
-        ArrayList<Object> reserved = new ArrayList<Object>();
-        reserved.addAll(moteTypeIDMappings.keySet());
-        reserved.addAll(moteTypeIDMappings.values());
-        String newID = ContikiMoteType.generateUniqueMoteTypeID(existingMoteTypes, reserved);
-        moteTypeIDMappings.setProperty(existingIdentifier, newID);
-      }
-
-      /* Create new config */
-      existingIdentifiers = moteTypeIDMappings.keys();
-      while (existingIdentifiers.hasMoreElements()) {
-        String existingIdentifier = (String) existingIdentifiers.nextElement();
-        configString = configString.replaceAll(
-            "<identifier>" + existingIdentifier + "</identifier>",
-            "<identifier>" + moteTypeIDMappings.get(existingIdentifier) + "</identifier>");
-        configString = configString.replaceAll(
-            "<motetype_identifier>" + existingIdentifier + "</motetype_identifier>",
-            "<motetype_identifier>" + moteTypeIDMappings.get(existingIdentifier) + "</motetype_identifier>");
-      }
-
-      /* Replace existing config */
-      root = new SAXBuilder().build(new StringReader(configString)).getRootElement();
+      root = remapMoteTypeIdentifiers(root);
 
       // Create new simulation from config
       for (Object element : root.getChildren()) {
@@ -4645,6 +4959,79 @@ public class Cooja extends Observable {
       return getSimulation() != null;
     }
   };
+  GUIAction saveCheckpointAction = new GUIAction("Save checkpoint...") {
+		private static final long serialVersionUID = -1960413424376426543L;
+		public void actionPerformed(ActionEvent e) {
+      getSimulation().stopSimulation();
+
+      JFileChooser fc = new JFileChooser();
+      fc.setFileFilter(checkpointFilter);
+      fc.setSelectedFile(new File(getExternalToolsSetting("CHECKPOINT_LAST", "simulation" + SimulationCheckpoint.FILE_EXTENSION)));
+      if (fc.showSaveDialog(Cooja.getTopParentContainer()) != JFileChooser.APPROVE_OPTION) {
+        return;
+      }
+      File file = fc.getSelectedFile();
+      if (!file.getName().endsWith(SimulationCheckpoint.FILE_EXTENSION)) {
+        file = new File(file.getParentFile(), file.getName() + SimulationCheckpoint.FILE_EXTENSION);
+      }
+      setExternalToolsSetting("CHECKPOINT_LAST", file.getPath());
+      try {
+        /* Stopping may outlast the blocking stop above */
+        if (getSimulation().isRunning()) {
+          throw new IOException("Simulation has not stopped yet, try again");
+        }
+        SimulationCheckpoint.save(getSimulation(), file);
+        logger.info("Saved checkpoint to " + file.getAbsolutePath());
+      } catch (IOException | IllegalStateException ex) {
+        JOptionPane.showMessageDialog(Cooja.getTopParentContainer(),
+            "Could not save checkpoint:\n" + ex.getMessage(),
+            "Error", JOptionPane.ERROR_MESSAGE);
+      }
+    }
+    public boolean shouldBeEnabled() {
+      if (isVisualizedInApplet()) {
+        return false;
+      }
+      return getSimulation() != null;
+    }
+  };
+  GUIAction loadCheckpointAction = new GUIAction("Load checkpoint...") {
+		private static final long serialVersionUID = 3196285462541279131L;
+		public void actionPerformed(ActionEvent e) {
+      if (getSimulation() != null) {
+        getSimulation().stopSimulation();
+      }
+
+      JFileChooser fc = new JFileChooser();
+      fc.setFileFilter(checkpointFilter);
+      fc.setSelectedFile(new File(getExternalToolsSetting("CHECKPOINT_LAST", "simulation" + SimulationCheckpoint.FILE_EXTENSION)));
+      if (fc.showOpenDialog(Cooja.getTopParentContainer()) != JFileChooser.APPROVE_OPTION) {
+        return;
+      }
+      final File file = fc.getSelectedFile();
+      setExternalToolsSetting("CHECKPOINT_LAST", file.getPath());
+      new Thread() {
+        public void run() {
+          try {
+            SimulationCheckpoint.load(Cooja.this, file);
+          } catch (Exception ex) {
+            showErrorDialog(getTopParentContainer(), "Could not load checkpoint", ex, false);
+          }
+        }
+      }.start();
+    }
+    public boolean shouldBeEnabled() {
+      return !isVisualizedInApplet();
+    }
+  };
+  private final FileFilter checkpointFilter = new FileFilter() {
+    public boolean accept(File file) {
+      return file.isDirectory() || file.getName().endsWith(SimulationCheckpoint.FILE_EXTENSION);
+    }
+    public String getDescription() {
+      return "Cooja simulation checkpoint";
+    }
+  };
   GUIAction exitCoojaAction = new GUIAction("Exit", 'x') {
 		private static final long serialVersionUID = 7523822251658687665L;
 		public void actionPerformed(ActionEvent e) {
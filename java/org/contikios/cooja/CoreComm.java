@@ -31,12 +31,19 @@ package org.contikios.cooja;
 import java.io.*;
 import java.lang.reflect.*;
 import java.net.*;
-import java.util.Vector;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.contikios.cooja.MoteType.MoteTypeCreationException;
 import org.contikios.cooja.contikimote.ContikiMoteType;
 import org.contikios.cooja.dialogs.MessageContainer;
 import org.contikios.cooja.dialogs.MessageList;
+import org.contikios.cooja.util.StringUtils;
 
 
 /**
@@ -67,17 +74,20 @@ import org.contikios.cooja.dialogs.MessageList;
  * <li>getReferenceAbsAddr()
  * <li>getMemory(int start, int length, byte[] mem)
  * <li>setMemory(int start, int length, byte[] mem)
+ * <li>getControlBlock() (optional)
  *
  * @author Fredrik Osterlind
  */
 public abstract class CoreComm {
 
-  // Static pointers to current libraries
-  private final static Vector<CoreComm> coreComms = new Vector<CoreComm>();
+  // Names of loaded library files: native libraries are bound to the JVM, not to a Cooja instance
+  private final static Set<String> loadedLibraryNames =
+      Collections.synchronizedSet(new HashSet<String>());
 
-  private final static Vector<File> coreCommFiles = new Vector<File>();
+  private final static AtomicInteger fileCounter = new AtomicInteger(1);
 
-  private static int fileCounter = 1;
+  // Temporary library copy loaded by this instance, if any
+  private File libraryCopy = null;
 
   /**
    * Has any library been loaded? Since libraries can't be unloaded the entire
@@ -86,7 +96,7 @@ public abstract class CoreComm {
    * @return True if any library has been loaded this session
    */
   public static boolean hasLibraryBeenLoaded() {
-    return coreComms.size() > 0;
+    return !loadedLibraryNames.isEmpty();
   }
 
   /**
@@ -101,12 +111,7 @@ public abstract class CoreComm {
    *         filename
    */
   public static boolean hasLibraryFileBeenLoaded(File libraryFile) {
-    for (File loadedFile : coreCommFiles) {
-      if (loadedFile.getName().equals(libraryFile.getName())) {
-        return true;
-      }
-    }
-    return false;
+    return loadedLibraryNames.contains(libraryFile.getName());
   }
 
   /**
@@ -116,7 +121,7 @@ public abstract class CoreComm {
    * @return Class name
    */
   public static String getAvailableClassName() {
-    return "Lib" + fileCounter;
+    return "Lib" + fileCounter.get();
   }
 
   /**
@@ -158,18 +163,26 @@ public abstract class CoreComm {
         dir.mkdirs();
       }
 
-      sourceFileWriter = new BufferedWriter(new OutputStreamWriter(
-          new FileOutputStream("org/contikios/cooja/corecomm/" + destFilename)));
-
       // Replace special fields in template
+      StringBuilder source = new StringBuilder();
       String line;
       while ((line = templateFileReader.readLine()) != null) {
         line = line.replaceFirst("\\[CLASSNAME\\]", className);
-        sourceFileWriter.write(line + "\n");
+        source.append(line).append("\n");
+      }
+      templateFileReader.close();
+
+      /* Keep unchanged source file, so that its class need not be recompiled */
+      File existing = new File("org/contikios/cooja/corecomm/" + destFilename);
+      if (existing.exists()
+          && source.toString().equals(StringUtils.loadFromFile(existing))) {
+        return;
       }
 
+      sourceFileWriter = new BufferedWriter(new OutputStreamWriter(
+          new FileOutputStream("org/contikios/cooja/corecomm/" + destFilename)));
+      sourceFileWriter.write(source.toString());
       sourceFileWriter.close();
-      templateFileReader.close();
     } catch (Exception e) {
       try {
         if (sourceFileWriter != null) {
@@ -213,6 +226,13 @@ public abstract class CoreComm {
         .getInputStream(MessageList.ERROR);
 
     File classFile = new File("org/contikios/cooja/corecomm/" + className + ".class");
+    File sourceFile = new File("org/contikios/cooja/corecomm/" + className + ".java");
+
+    /* Reuse class compiled earlier from same source */
+    if (classFile.exists() && classFile.lastModified() >= sourceFile.lastModified()) {
+      return;
+    }
+    classFile.delete();
 
     try {
       int b;
@@ -270,9 +290,29 @@ public abstract class CoreComm {
       throws MoteTypeCreationException {
     Class<?> loadedClass = null;
     try {
+      /* Always define the class in a new class loader, also if reachable
+       * via the parent, so that each loaded class binds its own library */
       ClassLoader urlClassLoader = new URLClassLoader(
           new URL[] { new File(".").toURI().toURL() },
-          CoreComm.class.getClassLoader());
+          CoreComm.class.getClassLoader()) {
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve)
+            throws ClassNotFoundException {
+          if (!name.startsWith("org.contikios.cooja.corecomm.")) {
+            return super.loadClass(name, resolve);
+          }
+          synchronized (getClassLoadingLock(name)) {
+            Class<?> c = findLoadedClass(name);
+            if (c == null) {
+              c = findClass(name);
+            }
+            if (resolve) {
+              resolveClass(c);
+            }
+            return c;
+          }
+        }
+      };
       loadedClass = urlClassLoader.loadClass("org.contikios.cooja.corecomm."
           + className);
 
@@ -303,31 +343,96 @@ public abstract class CoreComm {
    *          Native library file
    * @return Core Communicator
    */
-  public static CoreComm createCoreComm(String className, File libFile)
+  public static synchronized CoreComm createCoreComm(String className, File libFile)
       throws MoteTypeCreationException {
     generateLibSourceFile(className);
 
     compileSourceFile(className);
 
-    Class newCoreCommClass = loadClassFile(className);
+    Class<?> newCoreCommClass = loadClassFile(className);
 
     try {
-      Constructor constr = newCoreCommClass
-          .getConstructor(new Class[] { File.class });
+      Constructor<?> constr = newCoreCommClass
+          .getConstructor(new Class<?>[] { File.class });
       CoreComm newCoreComm = (CoreComm) constr
           .newInstance(new Object[] { libFile });
 
-      coreComms.add(newCoreComm);
-      coreCommFiles.add(libFile);
-      fileCounter++;
+      loadedLibraryNames.add(libFile.getName());
+      fileCounter.incrementAndGet();
+
+      return newCoreComm;
+    } catch (Exception e) {
+      throw (MoteTypeCreationException) new MoteTypeCreationException(
+          "Error when creating corecomm instance: " + className).initCause(e);
+    }
+  }
+
+  /**
+   * Create and return an additional instance of an already created core
+   * communicator. The native library libFile is copied to a temporary file
+   * before being loaded, so that the new instance gets its own copy of all
+   * library globals.
+   *
+   * Loaded libraries are not unloaded until Cooja exits.
+   *
+   * @param className
+   *          Class name of core communicator, see {@link #createCoreComm(String, File)}
+   * @param libFile
+   *          Native library file
+   * @return Core Communicator
+   */
+  public static synchronized CoreComm createCoreCommInstance(String className, File libFile)
+      throws MoteTypeCreationException {
+    File libCopy;
+    try {
+      String name = libFile.getName();
+      int dot = name.lastIndexOf('.');
+      libCopy = File.createTempFile(
+          (dot > 0 ? name.substring(0, dot) : name) + "-",
+          dot > 0 ? name.substring(dot) : null,
+          libFile.getAbsoluteFile().getParentFile());
+      libCopy.deleteOnExit();
+      Files.copy(libFile.toPath(), libCopy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException e) {
+      throw (MoteTypeCreationException) new MoteTypeCreationException(
+          "Could not copy library file: " + libFile).initCause(e);
+    }
+
+    /* A new class loader is needed, as a library may only be bound to one */
+    Class<?> newCoreCommClass = loadClassFile(className);
+
+    try {
+      Constructor<?> constr = newCoreCommClass
+          .getConstructor(new Class<?>[] { File.class });
+      CoreComm newCoreComm = (CoreComm) constr
+          .newInstance(new Object[] { libCopy });
+
+      loadedLibraryNames.add(libCopy.getName());
+      newCoreComm.libraryCopy = libCopy;
 
       return newCoreComm;
     } catch (Exception e) {
+      libCopy.delete();
       throw (MoteTypeCreationException) new MoteTypeCreationException(
           "Error when creating corecomm instance: " + className).initCause(e);
     }
   }
 
+  /**
+   * Deletes the temporary library file of an instance created by
+   * {@link #createCoreCommInstance(String, File)}. The library itself stays
+   * loaded until Cooja exits, so the instance must no longer be ticked.
+   *
+   * @param coreComm Core communicator instance
+   */
+  public static void deleteCoreCommInstanceFile(CoreComm coreComm) {
+    if (coreComm.libraryCopy == null) {
+      return;
+    }
+    coreComm.libraryCopy.delete();
+    coreComm.libraryCopy = null;
+  }
+
   /**
    * Ticks a mote once. This should not be used directly, but instead via
    * {@link ContikiMoteType#tick()}.
@@ -366,4 +471,16 @@ public abstract class CoreComm {
    */
   public abstract void setMemory(int relAddr, int length, byte[] mem);
 
+  /**
+   * Returns a direct buffer over the library's control block, see
+   * {@link org.contikios.cooja.contikimote.ControlBlock}. Libraries without a control block do not
+   * implement the corresponding native function.
+   *
+   * @return Direct buffer over control block, or null
+   * @throws UnsatisfiedLinkError If not implemented by library
+   */
+  public ByteBuffer getControlBlock() {
+    return null;
+  }
+
 }
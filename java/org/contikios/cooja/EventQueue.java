@@ -30,13 +30,43 @@
 
 package org.contikios.cooja;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
+ * Simulation event queue.
+ *
+ * Events are kept in a binary min-heap ordered by execution time. Events
+ * scheduled for the same time are executed in the order they were added.
+ * Removed events are unlinked from the heap immediately, unless removed from
+ * another thread while the queue is being executed: such events are only
+ * marked as cancelled, and are discarded when they reach the head of the queue.
+ *
  * @author Joakim Eriksson (ported to COOJA by Fredrik Osterlind)
  */
 public class EventQueue {
 
-  private TimeEvent first;
+  private static final int INITIAL_CAPACITY = 64;
+
+  private TimeEvent[] heap = new TimeEvent[INITIAL_CAPACITY];
   private int eventCount = 0;
+  /* Changed both by the simulation thread and by lazy cancels from other threads */
+  private final AtomicInteger cancelledCount = new AtomicInteger();
+
+  /* Incremented for each added event, used as tie-break for equal times */
+  private long addCounter = 0;
+
+  /* Thread currently executing events, or null */
+  private volatile Thread executingThread = null;
+
+  /**
+   * Sets the thread executing events from this queue. While set, events
+   * removed from other threads are cancelled lazily.
+   *
+   * @param thread Simulation thread, or null
+   */
+  public void setExecutingThread(Thread thread) {
+    executingThread = thread;
+  }
 
   /**
    * Should only be called from simulation thread!
@@ -51,35 +81,22 @@ public class EventQueue {
 
   private void addEvent(TimeEvent event) {
     if (event.queue != null) {
-      if (event.isScheduled) {
+      if (event.scheduled != 0) {
         throw new IllegalStateException("Event is already scheduled: " + event);
       }
-      removeFromQueue(event);
+      event.queue.removeFromQueue(event);
     }
 
-    if (first == null) {
-      first = event;
-    } else {
-      TimeEvent pos = first;
-      TimeEvent lastPos = first;
-      while (pos != null && pos.time <= event.time) {
-        lastPos = pos;
-        pos = pos.nextEvent;
-      }
-      // Here pos will be the first TE after event
-      // and lastPos the first before
-      if (pos == first) {
-        // Before all other
-        event.nextEvent = pos;
-        first = event;
-      } else {
-        event.nextEvent = pos;
-        lastPos.nextEvent = event;
-      }
+    if (eventCount == heap.length) {
+      TimeEvent[] newHeap = new TimeEvent[heap.length * 2];
+      System.arraycopy(heap, 0, newHeap, 0, eventCount);
+      heap = newHeap;
     }
+
     event.queue = this;
-    event.isScheduled = true;
-    eventCount++;
+    event.queueOrder = addCounter++;
+    siftUp(eventCount++, event);
+    event.scheduled = 1;
   }
 
   /**
@@ -89,33 +106,104 @@ public class EventQueue {
    * @return True if event was removed
    */
   private boolean removeFromQueue(TimeEvent event) {
-    TimeEvent pos = first;
-    TimeEvent lastPos = first;
+    if (event.queue != this) {
+      return false;
+    }
+    if (!TimeEvent.SCHEDULED.compareAndSet(event, 1, 0)) {
+      /* Lazily cancelled */
+      cancelledCount.decrementAndGet();
+    }
+    removeAt(event.queueIndex);
+    return true;
+  }
 
-    while (pos != null && pos != event) {
-      lastPos = pos;
-      pos = pos.nextEvent;
+  /**
+   * Removes event from queue.
+   *
+   * @see TimeEvent#remove()
+   * @param event Event
+   * @return True if event was scheduled
+   */
+  boolean removeEvent(TimeEvent event) {
+    if (event.queue != this) {
+      return false;
     }
-    if (pos == null) {
+
+    /* Only one of this and the executing thread may claim the event */
+    if (!TimeEvent.SCHEDULED.compareAndSet(event, 1, 0)) {
       return false;
     }
-    // pos == event!
-    if (pos == first) {
-      // remove it from first pos.
-      first = pos.nextEvent;
-    } else {
-      // else link prev to next...
-      lastPos.nextEvent = pos.nextEvent;
+    Thread thread = executingThread;
+    if (thread != null && thread != Thread.currentThread()) {
+      /* Not safe to modify heap: cancel lazily */
+      cancelledCount.incrementAndGet();
+      return true;
     }
-    // unlink
-    pos.nextEvent = null;
 
-    event.queue = null;
-    event.isScheduled = false;
-    eventCount--;
+    removeAt(event.queueIndex);
     return true;
   }
 
+  private TimeEvent removeAt(int index) {
+    TimeEvent event = heap[index];
+    TimeEvent last = heap[--eventCount];
+    heap[eventCount] = null;
+    if (index != eventCount) {
+      siftDown(index, last);
+      if (heap[index] == last) {
+        siftUp(index, last);
+      }
+    }
+
+    /* Unlink */
+    event.queue = null;
+    event.queueIndex = -1;
+    return event;
+  }
+
+  private static boolean isBefore(TimeEvent a, TimeEvent b) {
+    if (a.time != b.time) {
+      return a.time < b.time;
+    }
+    return a.queueOrder < b.queueOrder;
+  }
+
+  private void siftUp(int index, TimeEvent event) {
+    while (index > 0) {
+      int parentIndex = (index - 1) >>> 1;
+      TimeEvent parent = heap[parentIndex];
+      if (!isBefore(event, parent)) {
+        break;
+      }
+      heap[index] = parent;
+      parent.queueIndex = index;
+      index = parentIndex;
+    }
+    heap[index] = event;
+    event.queueIndex = index;
+  }
+
+  private void siftDown(int index, TimeEvent event) {
+    int half = eventCount >>> 1;
+    while (index < half) {
+      int childIndex = 2*index + 1;
+      TimeEvent child = heap[childIndex];
+      int rightIndex = childIndex + 1;
+      if (rightIndex < eventCount && isBefore(heap[rightIndex], child)) {
+        childIndex = rightIndex;
+        child = heap[childIndex];
+      }
+      if (!isBefore(child, event)) {
+        break;
+      }
+      heap[index] = child;
+      child.queueIndex = index;
+      index = childIndex;
+    }
+    heap[index] = event;
+    event.queueIndex = index;
+  }
+
   public void removeAll() {
     TimeEvent event = popFirst();
     while (event != null) {
@@ -129,32 +217,52 @@ public class EventQueue {
    * @return Event
    */
   public TimeEvent popFirst() {
-    TimeEvent tmp = first;
-    if (tmp == null) {
-      return null;
+    while (eventCount > 0) {
+      /* Claim event, unless cancelled by another thread */
+      boolean scheduled = TimeEvent.SCHEDULED.compareAndSet(heap[0], 1, 0);
+      TimeEvent tmp = removeAt(0);
+      if (scheduled) {
+        return tmp;
+      }
+      /* pop and return another event instead */
+      cancelledCount.decrementAndGet();
     }
+    return null;
+  }
 
-    first = tmp.nextEvent;
-    // Unlink.
-    tmp.nextEvent = null;
+  public TimeEvent peekFirst() {
+    if (eventCount == 0) {
+      return null;
+    }
+    return heap[0];
+  }
 
-    // No longer scheduled!
-    tmp.queue = null;
-    eventCount--;
+  /**
+   * Should only be called from simulation thread!
+   *
+   * @return All queued events, in no particular order
+   */
+  public TimeEvent[] getEvents() {
+    TimeEvent[] events = new TimeEvent[eventCount];
+    System.arraycopy(heap, 0, events, 0, eventCount);
+    return events;
+  }
 
-    if (!tmp.isScheduled) {
-      /* pop and return another event instead */
-      return popFirst();
-    }
-    tmp.isScheduled = false;
-    return tmp;
+  /**
+   * @return Number of scheduled events
+   */
+  public int getEventCount() {
+    return eventCount - cancelledCount.get();
   }
 
-  public TimeEvent peekFirst() {
-    return first;
+  /**
+   * @return Number of cancelled events not yet discarded from queue
+   */
+  public int getCancelledEventCount() {
+    return cancelledCount.get();
   }
 
   public String toString() {
-    return "EventQueue with " + eventCount + " events";
+    return "EventQueue with " + getEventCount() + " events (" + cancelledCount.get() + " cancelled)";
   }
 }
@@ -217,6 +217,19 @@ public class RadioConnection {
     return allDestinations.toArray(new Radio[0]);
   }
 
+  /**
+   * @see #getAllDestinations()
+   * @return Radio propagation delays (us) of all destination radios, in the
+   * same order as the destinations
+   */
+  public long[] getAllDestinationDelays() {
+    long[] delays = new long[allDestinationDelays.size()];
+    for (int i = 0; i < delays.length; i++) {
+      delays[i] = allDestinationDelays.get(i);
+    }
+    return delays;
+  }
+
   /**
    * @return All radios interfered by this connection, including destinations
    */
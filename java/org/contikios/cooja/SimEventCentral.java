@@ -139,16 +139,7 @@ public class SimEventCentral {
       Mote evMote = (Mote) obj;
 
       /* Check whether mote was added or removed */
-      Mote[] allMotes = simulation.getMotes();
-      boolean exists = false;
-      for (Mote m: allMotes) {
-        if (m == evMote) {
-          exists = true;
-          break;
-        }
-      }
-
-      if (exists) {
+      if (simulation.hasMote(evMote)) {
         /* Mote was added */
         moteWasAdded(evMote);
 
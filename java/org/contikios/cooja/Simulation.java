@@ -31,6 +31,7 @@ package org.contikios.cooja;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.Observable;
 import java.util.Observer;
 import java.util.Random;
@@ -42,6 +43,7 @@ import org.apache.log4j.Logger;
 import org.jdom.Element;
 
 import org.contikios.cooja.dialogs.CreateSimDialog;
+import org.contikios.cooja.util.ArrayUtils;
 
 /**
  * A simulation consists of a number of motes and mote types.
@@ -112,6 +114,22 @@ public class Simulation extends Observable implements Runnable {
   private boolean hasPollRequests = false;
   private ArrayDeque<Runnable> pollRequests = new ArrayDeque<Runnable>();
 
+  /**
+   * Notified when the simulation loop has stopped, for whatever reason.
+   * Called from the simulation thread.
+   */
+  public interface StopListener {
+    public void simulationStopped(Simulation sim);
+  }
+  private volatile StopListener[] stopListeners = new StopListener[0];
+
+  public synchronized void addStopListener(StopListener listener) {
+    stopListeners = ArrayUtils.add(stopListeners, listener);
+  }
+  public synchronized void removeStopListener(StopListener listener) {
+    stopListeners = ArrayUtils.remove(stopListeners, listener);
+  }
+
 
   /**
    * Request poll from simulation thread.
@@ -195,6 +213,13 @@ public class Simulation extends Observable implements Runnable {
     eventQueue.addEvent(e, time);
   }
 
+  /**
+   * @return Simulation event queue
+   */
+  public EventQueue getEventQueue() {
+    return eventQueue;
+  }
+
   private TimeEvent delayEvent = new TimeEvent(0) {
     public void execute(long t) {
       if (speedLimitNone) {
@@ -248,6 +273,43 @@ public class Simulation extends Observable implements Runnable {
     pollRequests.clear();
   }
 
+  /**
+   * @param event Event
+   * @return True if event is one of the simulation's own delay or millisecond events
+   */
+  boolean isInternalEvent(TimeEvent event) {
+    return event == delayEvent || event == millisecondEvent;
+  }
+
+  /**
+   * @return True if there are pending simulation thread requests
+   */
+  boolean hasPollRequests() {
+    return hasPollRequests;
+  }
+
+  /**
+   * Discards all events and requests, and restarts the simulation's own
+   * events at the given time. Used when restoring checkpoints.
+   *
+   * @param time Simulation time
+   */
+  void resetEvents(long time) {
+    synchronized (pollRequests) {
+      clearEvents();
+      hasPollRequests = false;
+    }
+    setSimulationTime(time);
+    if (!speedLimitNone) {
+      scheduleEvent(delayEvent, currentSimulationTime);
+    }
+    if (hasMillisecondObservers) {
+      scheduleEvent(
+          millisecondEvent,
+          currentSimulationTime - (currentSimulationTime % MILLISECOND) + MILLISECOND);
+    }
+  }
+
   public void run() {
     lastStartTime = System.currentTimeMillis();
     logger.info("Simulation main loop started, system time: " + lastStartTime);
@@ -293,7 +355,7 @@ public class Simulation extends Observable implements Runnable {
     		logger.fatal("Simulation stopped due to error: " + e.getMessage(), e);
     		if (!Cooja.isVisualized()) {
     			/* Quit simulator if in test mode */
-    			System.exit(1);
+    			cooja.doQuitHeadless(1);
     		} else {
     		  String title = "Simulation error";
     		  if (nextEvent instanceof MoteTimeEvent) {
@@ -303,12 +365,16 @@ public class Simulation extends Observable implements Runnable {
     		}
     	}
     }
+    eventQueue.setExecutingThread(null);
     isRunning = false;
     simulationThread = null;
     stopSimulation = false;
 
     this.setChanged();
     this.notifyObservers(this);
+    for (StopListener l: stopListeners) {
+      l.simulationStopped(this);
+    }
     logger.info("Simulation main loop stopped, system time: " + System.currentTimeMillis() +
         "\tDuration: " + (System.currentTimeMillis() - lastStartTime) +
                 " ms" +
@@ -334,6 +400,8 @@ public class Simulation extends Observable implements Runnable {
       isRunning = true;
       simulationThread = new Thread(this);
       simulationThread.setPriority(Thread.MIN_PRIORITY);
+      /* Before starting: removals from other threads must be lazy from now on */
+      eventQueue.setExecutingThread(simulationThread);
       simulationThread.start();
     }
   }
@@ -564,6 +632,12 @@ public class Simulation extends Observable implements Runnable {
       boolean visAvailable, boolean quick, Long manualRandomSeed) throws Exception {
     this.quick = quick;
 
+    /* IDs of all motes, to detect duplicates */
+    HashSet<Integer> moteIDs = new HashSet<Integer>();
+    for (Mote m: motes) {
+      moteIDs.add(m.getID());
+    }
+
     // Parse elements
     for (Element element : configXML) {
 
@@ -728,7 +802,7 @@ public class Simulation extends Observable implements Runnable {
         /* Create mote using mote type */
         Mote mote = moteType.generateMote(this);
         if (mote.setConfigXML(this, element.getChildren(), visAvailable)) {
-        	if (getMoteWithID(mote.getID()) != null) {
+        	if (!moteIDs.add(mote.getID())) {
         		logger.warn("Ignoring duplicate mote ID: " + mote.getID());
         	} else {
         		addMote(mote);
@@ -784,14 +858,12 @@ public class Simulation extends Observable implements Runnable {
 
         /* Loop through all scheduled events.
          * Delete all events associated with deleted mote. */
-        TimeEvent ev = eventQueue.peekFirst();
-        while (ev != null) {
+        for (TimeEvent ev: eventQueue.getEvents()) {
           if (ev instanceof MoteTimeEvent) {
             if (((MoteTimeEvent)ev).getMote() == mote) {
               ev.remove();
             }
           }
-          ev = ev.nextEvent;
         }
       }
     };
@@ -900,6 +972,15 @@ public class Simulation extends Observable implements Runnable {
     return null;
   }
 
+  /**
+   * @param mote Mote
+   * @return True if mote has been added to this simulation
+   */
+  public boolean hasMote(Mote mote) {
+    /* Search from end, recently added motes are last */
+    return motes.lastIndexOf(mote) >= 0;
+  }
+
   /**
    * Returns uninitialised simulation mote with with given ID.
    * 
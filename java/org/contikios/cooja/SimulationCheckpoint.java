@@ -0,0 +1,578 @@
+/*
+ * Copyright (c) 2026, Cooja contributors
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the Institute nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE INSTITUTE AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE INSTITUTE OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ *
+ */
+
+package org.contikios.cooja;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.log4j.Logger;
+import org.jdom.Document;
+import org.jdom.Element;
+import org.jdom.JDOMException;
+import org.jdom.input.SAXBuilder;
+import org.jdom.output.XMLOutputter;
+
+import org.contikios.cooja.Cooja.SimulationCreationException;
+import org.contikios.cooja.motes.AbstractWakeupMote;
+import org.contikios.cooja.radiomediums.AbstractRadioMedium;
+
+/**
+ * Saves and restores the complete state of a simulation: its config, the
+ * simulation time and random generator, the radio medium, and the memory and
+ * interfaces of all motes.
+ *
+ * A checkpoint can only be taken when no state is in flight outside the
+ * motes: no radio transmissions or delayed receptions may be active, and the
+ * only queued mote events may be mote wakeups. All motes, and the radio
+ * medium, must implement {@link Checkpointable}. Other queued events belong
+ * to plugins, and are recreated as the plugins are restarted from the config.
+ *
+ * Application motes support checkpoints if their class implements
+ * {@link Checkpointable}, see the RimeABC example; the application radio
+ * and LED interfaces store their own state. Contiki motes are not
+ * supported: their memory is part of a native library that is mapped at a
+ * new address on every load, and the saved RAM would hold pointers into the
+ * old mapping.
+ *
+ * Checkpoints must be saved from the simulation thread, or while the
+ * simulation is stopped. Use {@link #scheduleSave(Simulation, long, File)}
+ * to save at the next possible point in time.
+ *
+ * @see Checkpointable
+ */
+public class SimulationCheckpoint {
+  private static Logger logger = Logger.getLogger(SimulationCheckpoint.class);
+
+  public static final String FILE_EXTENSION = ".ckpt";
+
+  private static final int MAGIC = 0x434b5054; /* "CKPT" */
+  private static final int VERSION = 1;
+
+  /* Default simulation time a scheduled save may be postponed by */
+  public static final long MAX_SAVE_DELAY = 10000 * Simulation.MILLISECOND;
+
+  /**
+   * Checks that all motes and the radio medium support checkpoints.
+   *
+   * @param sim Simulation
+   * @throws IOException If simulation can never be checkpointed
+   */
+  public static void checkSupported(Simulation sim) throws IOException {
+    if (!(sim.getRadioMedium() instanceof Checkpointable)) {
+      throw new IOException("Radio medium does not support checkpoints: " +
+          Cooja.getDescriptionOf(sim.getRadioMedium()));
+    }
+    for (Mote mote: sim.getMotes()) {
+      if (!(mote instanceof Checkpointable) || !(mote instanceof AbstractWakeupMote)) {
+        throw new IOException("Mote type does not support checkpoints: " +
+            Cooja.getDescriptionOf(mote.getType()) + " (" + mote + ")");
+      }
+    }
+  }
+
+  /**
+   * @param sim Simulation
+   * @return Reason why simulation can not be checkpointed now, or null
+   */
+  public static String getBlocker(Simulation sim) {
+    if (sim.hasPollRequests()) {
+      return "Simulation thread requests pending";
+    }
+    if (sim.getRadioMedium() instanceof AbstractRadioMedium
+        && ((AbstractRadioMedium) sim.getRadioMedium()).getActiveConnections().length > 0) {
+      return "Radio transmissions active";
+    }
+    for (TimeEvent event: sim.getEventQueue().getEvents()) {
+      if (event.isScheduled() && AbstractRadioMedium.isDelayedRadioEvent(event)) {
+        return "Delayed radio receptions pending";
+      }
+      if (!isRestorable(sim, event)) {
+        return "Pending mote event: " + event;
+      }
+    }
+    return null;
+  }
+
+  private static boolean isRestorable(Simulation sim, TimeEvent event) {
+    if (!event.isScheduled() || !(event instanceof MoteTimeEvent)) {
+      /* Cancelled, internal, or plugin event */
+      return true;
+    }
+    Mote mote = ((MoteTimeEvent) event).getMote();
+    return mote instanceof AbstractWakeupMote
+        && ((AbstractWakeupMote) mote).isWakeupEvent(event);
+  }
+
+  /**
+   * Saves checkpoint of given simulation.
+   * The simulation must belong to its Cooja instance, see
+   * {@link Cooja#getSimulation()}.
+   *
+   * @param sim Simulation
+   * @return Checkpoint
+   * @throws IOException If simulation can not be checkpointed now
+   */
+  public static byte[] save(Simulation sim) throws IOException {
+    if (sim.isRunning() && !sim.isSimulationThread()) {
+      throw new IllegalStateException("Checkpoints must be saved from the simulation thread");
+    }
+    checkSupported(sim);
+    String blocker = getBlocker(sim);
+    if (blocker != null) {
+      if (sim.isRunning() || !blocker.startsWith("Simulation thread")) {
+        throw new IOException(blocker);
+      }
+      logger.warn("Simulation thread requests are not included in checkpoint");
+    }
+    Cooja cooja = sim.getCooja();
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeInt(MAGIC);
+    out.writeInt(VERSION);
+
+    /* Config */
+    File configFile = cooja.currentConfigFile;
+    out.writeUTF(configFile == null ? "" : configFile.getPath());
+    ByteArrayOutputStream config = new ByteArrayOutputStream();
+    new XMLOutputter().output(new Document(cooja.extractSimulationConfig()), config);
+    out.writeInt(config.size());
+    config.writeTo(out);
+
+    /* Simulation and radio medium */
+    out.writeLong(sim.getSimulationTime());
+    writeState(out, (SafeRandom) sim.getRandomGenerator());
+    writeState(out, (Checkpointable) sim.getRadioMedium());
+
+    /* Motes and their interfaces */
+    Mote[] motes = sim.getMotes();
+    out.writeInt(motes.length);
+    for (Mote mote: motes) {
+      out.writeInt(mote.getID());
+      writeState(out, (Checkpointable) mote);
+
+      ArrayList<MoteInterface> interfaces = new ArrayList<MoteInterface>();
+      for (MoteInterface intf: mote.getInterfaces().getInterfaces()) {
+        if (intf instanceof Checkpointable) {
+          interfaces.add(intf);
+        }
+      }
+      out.writeInt(interfaces.size());
+      for (MoteInterface intf: interfaces) {
+        out.writeUTF(intf.getClass().getName());
+        writeState(out, (Checkpointable) intf);
+      }
+    }
+
+    /* Wakeups, in execution order */
+    ArrayList<TimeEvent> wakeups = new ArrayList<TimeEvent>();
+    for (TimeEvent event: sim.getEventQueue().getEvents()) {
+      if (event.isScheduled() && event instanceof MoteTimeEvent) {
+        wakeups.add(event);
+      }
+    }
+    TimeEvent[] sorted = wakeups.toArray(new TimeEvent[wakeups.size()]);
+    Arrays.sort(sorted, new Comparator<TimeEvent>() {
+      public int compare(TimeEvent a, TimeEvent b) {
+        if (a.getTime() != b.getTime()) {
+          return a.getTime() < b.getTime() ? -1 : 1;
+        }
+        return Long.compare(a.queueOrder, b.queueOrder);
+      }
+    });
+    out.writeInt(sorted.length);
+    for (TimeEvent event: sorted) {
+      out.writeInt(Arrays.asList(motes).indexOf(((MoteTimeEvent) event).getMote()));
+      out.writeLong(event.getTime());
+    }
+
+    out.close();
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Saves checkpoint of given simulation to a compressed file.
+   *
+   * @param sim Simulation
+   * @param file File
+   * @throws IOException If simulation can not be checkpointed now, or on file error
+   */
+  public static void save(Simulation sim, File file) throws IOException {
+    write(save(sim), file);
+  }
+
+  private static void write(byte[] checkpoint, File file) throws IOException {
+    OutputStream out = new GZIPOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+    try {
+      out.write(checkpoint);
+    } finally {
+      out.close();
+    }
+  }
+
+  /**
+   * Receives checkpoints saved by {@link SimulationCheckpoint#scheduleSave(Simulation, long, SaveListener)}.
+   * Called from the simulation thread.
+   */
+  public interface SaveListener {
+    public void checkpointSaved(long time, byte[] checkpoint);
+
+    /**
+     * Called when the simulation could not be checkpointed within the
+     * maximum delay. The save is not retried.
+     *
+     * @param time Simulation time
+     * @param reason Why the simulation could not be checkpointed
+     */
+    public void checkpointFailed(long time, String reason);
+  }
+
+  /**
+   * Saves checkpoint to file at the given simulation time, or as soon as
+   * possible after it.
+   *
+   * @see #scheduleSave(Simulation, long, SaveListener)
+   * @param sim Simulation
+   * @param time Simulation time
+   * @param file File
+   */
+  public static void scheduleSave(Simulation sim, long time, final File file) {
+    scheduleSave(sim, time, new SaveListener() {
+      public void checkpointSaved(long time, byte[] checkpoint) {
+        try {
+          write(checkpoint, file);
+          logger.info("Saved checkpoint at " + time + " to " + file);
+        } catch (IOException e) {
+          logger.error("Could not write checkpoint: " + e.getMessage());
+        }
+      }
+      public void checkpointFailed(long time, String reason) {
+        logger.error("Could not save checkpoint at " + time + " to " + file + ": " + reason);
+      }
+    });
+  }
+
+  /**
+   * Saves checkpoint at the given simulation time, or as soon as possible
+   * after it, postponing it by at most {@link #MAX_SAVE_DELAY}.
+   *
+   * @see #scheduleSave(Simulation, long, long, SaveListener)
+   * @param sim Simulation
+   * @param time Simulation time
+   * @param listener Receives checkpoint
+   * @return True if checkpoint was scheduled, false if simulation does not support checkpoints
+   */
+  public static boolean scheduleSave(Simulation sim, long time, SaveListener listener) {
+    return scheduleSave(sim, time, MAX_SAVE_DELAY, listener);
+  }
+
+  /**
+   * Saves checkpoint at the given simulation time, or as soon as possible
+   * after it. While the simulation can not be checkpointed, saving is retried
+   * every millisecond. If it still can not be checkpointed after the given
+   * delay, the listener is notified of the failure.
+   *
+   * @param sim Simulation
+   * @param time Simulation time
+   * @param maxDelay Simulation time the save may be postponed by
+   * @param listener Receives checkpoint
+   * @return True if checkpoint was scheduled, false if simulation does not support checkpoints
+   */
+  public static boolean scheduleSave(final Simulation sim, final long time,
+      final long maxDelay, final SaveListener listener) {
+    final long[] deadline = new long[1];
+    final TimeEvent saveEvent = new TimeEvent(0, "checkpoint") {
+      public void execute(long t) {
+        String blocker = getBlocker(sim);
+        if (blocker == null) {
+          try {
+            listener.checkpointSaved(t, save(sim));
+            return;
+          } catch (IOException e) {
+            blocker = e.getMessage();
+          }
+        }
+        if (t >= deadline[0]) {
+          listener.checkpointFailed(t, blocker);
+          return;
+        }
+        logger.debug("Postponing checkpoint: " + blocker);
+        sim.scheduleEvent(this, Math.min(t + Simulation.MILLISECOND, deadline[0]));
+      }
+    };
+    try {
+      checkSupported(sim);
+    } catch (IOException e) {
+      logger.error("Can not save checkpoint: " + e.getMessage());
+      return false;
+    }
+    sim.invokeSimulationThread(new Runnable() {
+      public void run() {
+        long start = Math.max(time, sim.getSimulationTime());
+        deadline[0] = start + maxDelay;
+        sim.scheduleEvent(saveEvent, start);
+      }
+    });
+    return true;
+  }
+
+  /**
+   * Restores simulation from checkpoint, and sets it as the current
+   * simulation of the given Cooja instance. Plugins are restarted from the
+   * checkpoint config after the simulation state has been restored.
+   *
+   * @param cooja Cooja
+   * @param checkpoint Checkpoint
+   * @return Restored simulation, or null if the simulation was not loaded
+   * @throws IOException If checkpoint could not be restored
+   * @throws SimulationCreationException If simulation could not be created from checkpoint config
+   */
+  public static Simulation load(Cooja cooja, byte[] checkpoint)
+  throws IOException, SimulationCreationException {
+    return load(cooja, checkpoint, null, null);
+  }
+
+  /**
+   * Restores simulation from checkpoint, using the given config instead of
+   * the one stored in the checkpoint. The config may change parameters such
+   * as radio medium settings or scripts, but must contain the same motes and
+   * mote interfaces.
+   *
+   * @see #readConfig(byte[])
+   * @param cooja Cooja
+   * @param checkpoint Checkpoint
+   * @param config Simulation config, or null to use the checkpoint config.
+   * The config is modified.
+   * @param seed Random seed replacing the restored random generator state, or null
+   * @return Restored simulation, or null if the simulation was not loaded
+   * @throws IOException If checkpoint could not be restored
+   * @throws SimulationCreationException If simulation could not be created from config
+   */
+  public static Simulation load(Cooja cooja, byte[] checkpoint, Element config, Long seed)
+  throws IOException, SimulationCreationException {
+    DataInputStream in = open(checkpoint);
+    String configPath = in.readUTF();
+    byte[] configBytes = new byte[in.readInt()];
+    in.readFully(configBytes);
+    Element root = config != null ? config : parseConfig(configBytes);
+
+    /* The config file locates portable paths while the config is loaded */
+    File previousConfigFile = cooja.currentConfigFile;
+    cooja.currentConfigFile = configPath.isEmpty() ? null : new File(configPath);
+
+    /* Plugins are started once the state has been restored, since they may schedule events */
+    ArrayList<Element> plugins = new ArrayList<Element>();
+    for (Object element: root.getChildren("plugin").toArray()) {
+      plugins.add((Element) ((Element) element).detach());
+    }
+    Simulation sim = cooja.loadSimulationConfig(root, true, null);
+    if (sim == null) {
+      cooja.currentConfigFile = previousConfigFile;
+      return null;
+    }
+
+    /* The current simulation is only replaced once the state is restored */
+    try {
+      readState(in, sim, seed);
+    } catch (IOException e) {
+      cooja.currentConfigFile = previousConfigFile;
+      sim.removed();
+      throw e;
+    } catch (RuntimeException e) {
+      cooja.currentConfigFile = previousConfigFile;
+      sim.removed();
+      throw e;
+    }
+    cooja.setSimulation(sim, false);
+
+    cooja.setPluginsConfigXML(plugins, sim, Cooja.isVisualized(), true);
+    return sim;
+  }
+
+  private static void readState(DataInputStream in, Simulation sim, Long seed)
+  throws IOException {
+    /* Simulation and radio medium */
+    sim.resetEvents(in.readLong());
+    readState(in, (SafeRandom) sim.getRandomGenerator(), "random generator");
+    if (seed != null) {
+      sim.setRandomSeed(seed);
+    }
+    if (!(sim.getRadioMedium() instanceof Checkpointable)) {
+      throw new IOException("Radio medium does not support checkpoints");
+    }
+    readState(in, (Checkpointable) sim.getRadioMedium(), "radio medium");
+
+    /* Motes and their interfaces */
+    Mote[] motes = sim.getMotes();
+    if (in.readInt() != motes.length) {
+      throw new IOException("Checkpoint does not match config: number of motes");
+    }
+    for (Mote mote: motes) {
+      if (in.readInt() != mote.getID() || !(mote instanceof Checkpointable)) {
+        throw new IOException("Checkpoint does not match config: " + mote);
+      }
+      readState(in, (Checkpointable) mote, mote.toString());
+
+      int interfaces = in.readInt();
+      for (int i=0; i < interfaces; i++) {
+        String name = in.readUTF();
+        MoteInterface found = null;
+        for (MoteInterface intf: mote.getInterfaces().getInterfaces()) {
+          if (intf.getClass().getName().equals(name)) {
+            found = intf;
+            break;
+          }
+        }
+        if (!(found instanceof Checkpointable)) {
+          throw new IOException("Checkpoint does not match config: " + name + " of " + mote);
+        }
+        readState(in, (Checkpointable) found, name + " of " + mote);
+      }
+    }
+
+    /* Wakeups */
+    int wakeups = in.readInt();
+    for (int i=0; i < wakeups; i++) {
+      int index = in.readInt();
+      long time = in.readLong();
+      if (index < 0 || index >= motes.length || !(motes[index] instanceof AbstractWakeupMote)) {
+        throw new IOException("Checkpoint does not match config: wakeup of mote index " + index);
+      }
+      ((AbstractWakeupMote) motes[index]).restoreWakeup(time);
+    }
+  }
+
+  /**
+   * Restores simulation from compressed checkpoint file.
+   *
+   * @see #load(Cooja, byte[])
+   * @param cooja Cooja
+   * @param file File
+   * @return Restored simulation, or null if the simulation was not loaded
+   * @throws IOException If checkpoint could not be restored
+   * @throws SimulationCreationException If simulation could not be created from checkpoint config
+   */
+  public static Simulation load(Cooja cooja, File file)
+  throws IOException, SimulationCreationException {
+    return load(cooja, read(file));
+  }
+
+  /**
+   * Reads compressed checkpoint file.
+   *
+   * @param file File
+   * @return Checkpoint
+   * @throws IOException On file error
+   */
+  public static byte[] read(File file) throws IOException {
+    DataInputStream in = new DataInputStream(
+        new GZIPInputStream(new BufferedInputStream(new FileInputStream(file))));
+    try {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      byte[] buf = new byte[8192];
+      int n;
+      while ((n = in.read(buf)) > 0) {
+        bytes.write(buf, 0, n);
+      }
+      return bytes.toByteArray();
+    } finally {
+      in.close();
+    }
+  }
+
+  /**
+   * @param checkpoint Checkpoint
+   * @return Copy of the simulation config stored in checkpoint
+   * @throws IOException If checkpoint could not be read
+   */
+  public static Element readConfig(byte[] checkpoint) throws IOException {
+    DataInputStream in = open(checkpoint);
+    in.readUTF();
+    byte[] configBytes = new byte[in.readInt()];
+    in.readFully(configBytes);
+    return parseConfig(configBytes);
+  }
+
+  private static DataInputStream open(byte[] checkpoint) throws IOException {
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(checkpoint));
+    if (in.readInt() != MAGIC) {
+      throw new IOException("Not a Cooja checkpoint");
+    }
+    int version = in.readInt();
+    if (version != VERSION) {
+      throw new IOException("Unsupported checkpoint version: " + version);
+    }
+    return in;
+  }
+
+  private static Element parseConfig(byte[] config) throws IOException {
+    try {
+      return new SAXBuilder().build(new ByteArrayInputStream(config)).getRootElement();
+    } catch (JDOMException e) {
+      throw (IOException) new IOException("Checkpoint config not wellformed").initCause(e);
+    }
+  }
+
+  private static void writeState(DataOutputStream out, Checkpointable state) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream stateOut = new DataOutputStream(bytes);
+    state.writeCheckpoint(stateOut);
+    stateOut.flush();
+    out.writeInt(bytes.size());
+    bytes.writeTo(out);
+  }
+
+  private static void readState(DataInputStream in, Checkpointable state, String desc)
+  throws IOException {
+    byte[] bytes = new byte[in.readInt()];
+    in.readFully(bytes);
+    ByteArrayInputStream stateBytes = new ByteArrayInputStream(bytes);
+    state.readCheckpoint(new DataInputStream(stateBytes));
+    if (stateBytes.available() > 0) {
+      throw new IOException("Checkpoint does not match config: state of " + desc);
+    }
+  }
+
+}
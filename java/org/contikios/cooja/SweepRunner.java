@@ -0,0 +1,436 @@
+/*
+ * Copyright (c) 2026, Cooja contributors
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the Institute nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE INSTITUTE AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE INSTITUTE OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ *
+ */
+
+package org.contikios.cooja;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.log4j.Logger;
+import org.jdom.Element;
+import org.jdom.JDOMException;
+import org.jdom.input.SAXBuilder;
+
+import org.contikios.cooja.plugins.ScriptRunner;
+
+/**
+ * Runs several variants of one simulation checkpoint without visualization
+ * in one JVM.
+ *
+ * All variants continue from the same in-memory checkpoint, typically of a
+ * network that has already formed, each with its own parameter overrides.
+ * The variants are restored one at a time and run concurrently on a worker
+ * pool, like the simulations of {@link BatchRunner}.
+ *
+ * The sweep file lists one variant per line: a name followed by overrides,
+ * e.g. "rx90 radiomedium/success_ratio_rx=0.9 script=tests/count.js".
+ * Empty lines and lines starting with '#' are ignored. Overrides are:
+ * <ul>
+ * <li>path=value: sets the simulation config element at the given path,
+ * relative to the simulation element, e.g. radiomedium/awgn_sigma=6.0
+ * <li>script=file: runs the given test script instead of the checkpoint's
+ * <li>seed=n: reseeds the random generator once restored
+ * </ul>
+ *
+ * The exit code of each variant, as reported by its test script, is written
+ * to a summary file together with the run duration and the test log file.
+ * As in {@link BatchRunner}, variants that stop without reporting a result
+ * get exit code -1, and variants exceeding the optional timeout -2.
+ */
+public class SweepRunner {
+  private static Logger logger = Logger.getLogger(SweepRunner.class);
+
+  private static final Object loadLock = new Object();
+
+  /* Simulation time a warm-up checkpoint may be postponed by */
+  private static final long MAX_CHECKPOINT_DELAY = 10000 * Simulation.MILLISECOND;
+
+  private final byte[] checkpoint;
+  private final Element baseConfig;
+  private final File source;
+
+  private ArrayList<Variant> variants = new ArrayList<Variant>();
+
+  private long timeout = 0;
+
+  private static class Variant {
+    String name;
+    List<String> overrides;
+    File testLog;
+
+    volatile int exitCode = BatchRunner.EXIT_NO_RESULT;
+    long duration = 0;
+  }
+
+  /**
+   * @param checkpoint Checkpoint shared by all variants
+   * @param source Checkpoint or config file, used to resolve relative paths
+   * @throws IOException If checkpoint could not be read
+   */
+  public SweepRunner(byte[] checkpoint, File source) throws IOException {
+    this.checkpoint = checkpoint;
+    this.baseConfig = SimulationCheckpoint.readConfig(checkpoint);
+    this.source = source;
+  }
+
+  /**
+   * @param timeout Real time in milliseconds after which a variant fails,
+   * or 0 to wait for its test script
+   */
+  public void setTimeout(long timeout) {
+    this.timeout = timeout;
+  }
+
+  /**
+   * Reads variants from sweep file.
+   *
+   * @param sweepFile Sweep file
+   * @throws IOException If sweep file could not be read
+   */
+  public void readVariants(File sweepFile) throws IOException {
+    BufferedReader in = new BufferedReader(new FileReader(sweepFile));
+    try {
+      String line;
+      while ((line = in.readLine()) != null) {
+        line = line.trim();
+        if (line.isEmpty() || line.startsWith("#")) {
+          continue;
+        }
+        String[] arr = line.split("\\s+");
+        addVariant(arr[0], Arrays.asList(arr).subList(1, arr.length));
+      }
+    } finally {
+      in.close();
+    }
+  }
+
+  /**
+   * @param name Variant name, used in the test log file name
+   * @param overrides Parameter overrides
+   * @throws IOException If an override is malformed
+   */
+  public void addVariant(String name, List<String> overrides) throws IOException {
+    for (String override: overrides) {
+      if (override.indexOf('=') <= 0) {
+        throw new IOException("Bad override in variant " + name + ": " + override);
+      }
+    }
+    Variant variant = new Variant();
+    variant.name = name;
+    variant.overrides = new ArrayList<String>(overrides);
+    variant.testLog = new File("COOJA-" + variants.size() + "-" + name + ".testlog");
+    variants.add(variant);
+  }
+
+  /**
+   * Runs all variants and writes the summary file.
+   *
+   * @param threads Number of concurrently executing simulations
+   * @param summaryFile Summary file
+   * @return Number of failed variants
+   */
+  public int run(int threads, File summaryFile) {
+    logger.info("Running " + variants.size() + " variants on " + threads + " threads");
+
+    ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+    for (final Variant variant: variants) {
+      executor.execute(new Runnable() {
+        public void run() {
+          long start = System.currentTimeMillis();
+          try {
+            runVariant(variant);
+          } catch (Throwable t) {
+            logger.fatal("Variant " + variant.name + " failed: " + t.getMessage(), t);
+          }
+          variant.duration = System.currentTimeMillis() - start;
+          logger.info("Finished " + variant.name + ": exit code " + variant.exitCode);
+        }
+      });
+    }
+    executor.shutdown();
+    try {
+      executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      logger.warn("Interrupted while waiting for simulations");
+    }
+
+    int failed = 0;
+    for (Variant variant: variants) {
+      if (variant.exitCode != 0) {
+        failed++;
+      }
+    }
+
+    try {
+      BufferedWriter out = new BufferedWriter(new FileWriter(summaryFile));
+      out.write("# variant\texit code\tduration (ms)\ttest log\toverrides\n");
+      for (Variant variant: variants) {
+        StringBuilder overrides = new StringBuilder();
+        for (String override: variant.overrides) {
+          overrides.append(overrides.length() > 0 ? " " : "").append(override);
+        }
+        out.write(variant.name + "\t" +
+            variant.exitCode + "\t" +
+            variant.duration + "\t" +
+            variant.testLog.getPath() + "\t" +
+            overrides + "\n");
+      }
+      out.close();
+    } catch (IOException e) {
+      logger.fatal("Failed to write sweep summary: " + summaryFile, e);
+    }
+
+    logger.info((variants.size() - failed) + "/" + variants.size() + " variants succeeded");
+    return failed;
+  }
+
+  private void runVariant(final Variant variant) throws Exception {
+    final CountDownLatch finished = new CountDownLatch(1);
+    Cooja gui;
+    Simulation sim;
+
+    synchronized (loadLock) {
+      gui = new Cooja(Cooja.createDesktopPane()) {
+        public void doQuitHeadless(int exitCode) {
+          /* Keep JVM running: report exit code */
+          variant.exitCode = exitCode;
+          finished.countDown();
+        }
+      };
+      gui.setTestLogFile(variant.testLog);
+
+      Element config = (Element) baseConfig.clone();
+      /* Reseeded before plugins start, which may start the simulation */
+      Long seed = applyOverrides(config, variant.overrides);
+      sim = SimulationCheckpoint.load(gui, checkpoint, config, seed);
+      if (sim == null) {
+        return;
+      }
+      sim.addStopListener(new Simulation.StopListener() {
+        public void simulationStopped(Simulation sim) {
+          /* Test scripts report their exit code before the simulation stops */
+          finished.countDown();
+        }
+      });
+      if (!Cooja.startSimulationController(gui, sim, source)) {
+        gui.doRemoveSimulation(false);
+        return;
+      }
+    }
+
+    if (timeout > 0) {
+      if (!finished.await(timeout, TimeUnit.MILLISECONDS)) {
+        logger.fatal("Variant " + variant.name + " timed out after " + timeout + " ms");
+        variant.exitCode = BatchRunner.EXIT_TIMEOUT;
+      }
+    } else {
+      finished.await();
+    }
+    if (variant.exitCode == BatchRunner.EXIT_NO_RESULT) {
+      logger.fatal("Variant " + variant.name + " stopped without test result");
+    }
+    sim.stopSimulation();
+    gui.doRemoveSimulation(false);
+  }
+
+  /**
+   * Applies overrides to a simulation config.
+   *
+   * @param config Simulation config
+   * @param overrides Overrides
+   * @return Random seed override, or null
+   * @throws IOException If an override does not match the config
+   */
+  private Long applyOverrides(Element config, List<String> overrides) throws IOException {
+    Long seed = null;
+    for (String override: overrides) {
+      int eq = override.indexOf('=');
+      String path = override.substring(0, eq);
+      String value = override.substring(eq + 1);
+
+      if (path.equals("seed")) {
+        try {
+          seed = Long.valueOf(value);
+        } catch (NumberFormatException e) {
+          throw new IOException("Bad random seed: " + value);
+        }
+      } else if (path.equals("script")) {
+        setScript(config, new File(value).getAbsoluteFile());
+      } else {
+        Element element = config.getChild("simulation");
+        for (String name: path.split("/")) {
+          element = element == null ? null : element.getChild(name);
+        }
+        if (element == null) {
+          throw new IOException("No such simulation config element: " + path);
+        }
+        element.setText(value);
+      }
+    }
+    return seed;
+  }
+
+  private static void setScript(Element config, File script) {
+    Element scriptRunner = null;
+    for (Object o: config.getChildren("plugin")) {
+      Element plugin = (Element) o;
+      if (plugin.getTextTrim().equals(ScriptRunner.class.getName())) {
+        scriptRunner = plugin;
+        break;
+      }
+    }
+    if (scriptRunner == null) {
+      scriptRunner = new Element("plugin");
+      scriptRunner.setText(ScriptRunner.class.getName());
+      config.addContent(scriptRunner);
+    }
+    scriptRunner.removeChild("plugin_config");
+
+    Element pluginConfig = new Element("plugin_config");
+    Element element = new Element("scriptfile");
+    element.setText(script.getPath());
+    pluginConfig.addContent(element);
+    element = new Element("active");
+    element.setText("true");
+    pluginConfig.addContent(element);
+    scriptRunner.addContent(pluginConfig);
+  }
+
+  /**
+   * Loads a simulation config without its plugins, runs it until the given
+   * time, and checkpoints it. The plugins of the config are added to the
+   * config of the returned runner, so that they are started in each variant.
+   *
+   * @param configFile Simulation config
+   * @param time Simulation time to checkpoint at, or as soon as possible after
+   * @param seed Random seed, or null to use the config's
+   * @return Runner for variants of the checkpointed simulation
+   * @throws Exception If simulation could not be loaded or checkpointed
+   */
+  public static SweepRunner warmUp(File configFile, long time, Long seed) throws Exception {
+    final CountDownLatch done = new CountDownLatch(1);
+    Cooja gui = new Cooja(Cooja.createDesktopPane()) {
+      public void doQuitHeadless(int exitCode) {
+        /* Simulation error: keep JVM running, fail below */
+        done.countDown();
+      }
+    };
+    gui.currentConfigFile = configFile.getCanonicalFile();
+
+    Element root;
+    InputStream in = new FileInputStream(configFile);
+    try {
+      if (configFile.getName().endsWith(".gz")) {
+        in = new GZIPInputStream(in);
+      }
+      root = new SAXBuilder().build(in).getRootElement();
+    } catch (JDOMException e) {
+      throw (IOException) new IOException("Config not wellformed: " + configFile).initCause(e);
+    } finally {
+      in.close();
+    }
+    ArrayList<Element> plugins = new ArrayList<Element>();
+    for (Object element: root.getChildren("plugin").toArray()) {
+      plugins.add((Element) ((Element) element).detach());
+    }
+
+    final Simulation sim = gui.loadSimulationConfig(root, true, seed);
+    if (sim == null) {
+      throw new IOException("Simulation not loaded: " + configFile);
+    }
+    gui.setSimulation(sim, false);
+
+    try {
+      SimulationCheckpoint.checkSupported(sim);
+    } catch (IOException e) {
+      gui.doRemoveSimulation(false);
+      throw new IOException("Can not checkpoint " + configFile + ": " + e.getMessage());
+    }
+
+    logger.info("Warming up " + configFile + " until " + time/Simulation.MILLISECOND + " ms");
+    final byte[][] saved = new byte[1][];
+    final String[] blocker = new String[1];
+    SimulationCheckpoint.scheduleSave(sim, time, MAX_CHECKPOINT_DELAY, new SimulationCheckpoint.SaveListener() {
+      public void checkpointSaved(long savedTime, byte[] checkpoint) {
+        logger.info("Checkpointed at " + savedTime/Simulation.MILLISECOND + " ms: " + checkpoint.length + " bytes");
+        saved[0] = checkpoint;
+        sim.stopSimulation(false);
+      }
+      public void checkpointFailed(long failedTime, String reason) {
+        blocker[0] = reason;
+        sim.stopSimulation(false);
+      }
+    });
+    Simulation.StopListener stopListener = new Simulation.StopListener() {
+      public void simulationStopped(Simulation sim) {
+        done.countDown();
+      }
+    };
+    sim.addStopListener(stopListener);
+    sim.startSimulation();
+    done.await();
+    sim.removeStopListener(stopListener);
+    sim.stopSimulation();
+    while (sim.isRunning()) {
+      Thread.sleep(10);
+    }
+    gui.doRemoveSimulation(false);
+
+    if (saved[0] == null) {
+      if (blocker[0] != null) {
+        throw new IOException("Simulation could not be checkpointed within " +
+            MAX_CHECKPOINT_DELAY/Simulation.MILLISECOND + " ms of warm-up: " + blocker[0]);
+      }
+      throw new IOException("Simulation stopped before it was checkpointed: " + configFile);
+    }
+
+    SweepRunner runner = new SweepRunner(saved[0], configFile);
+    runner.baseConfig.removeChildren("plugin");
+    for (Element plugin: plugins) {
+      runner.baseConfig.addContent(plugin);
+    }
+    return runner;
+  }
+
+}
@@ -30,19 +30,26 @@
 
 package org.contikios.cooja;
 
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
 /**
  * @author Joakim Eriksson (ported to COOJA by Fredrik Osterlind)
  */
 public abstract class TimeEvent {
-  TimeEvent nextEvent;
-  TimeEvent prevEvent;
+  /* Position in queue heap, and queue insertion order */
+  int queueIndex = -1;
+  long queueOrder;
 
   EventQueue queue = null;
   String name;
 
   protected long time;
 
-  boolean isScheduled = false;
+  /* 1 while queued and not cancelled. Cleared by compare-and-set, since
+   * lazy cancels from other threads race with the executing thread */
+  volatile int scheduled = 0;
+  static final AtomicIntegerFieldUpdater<TimeEvent> SCHEDULED =
+      AtomicIntegerFieldUpdater.newUpdater(TimeEvent.class, "scheduled");
 
   public TimeEvent(long time) {
     this(time, null);
@@ -58,12 +65,21 @@ public abstract class TimeEvent {
   }
 
   public boolean isScheduled() {
-    return isScheduled;
+    return scheduled != 0;
   }
 
+  /**
+   * Removes this event from its event queue.
+   *
+   * @return True if event was scheduled
+   */
   public boolean remove() {
-    isScheduled = false;
-    return false;
+    EventQueue q = queue;
+    if (q == null) {
+      scheduled = 0;
+      return false;
+    }
+    return q.removeEvent(this);
   }
 
   public abstract void execute(long t);
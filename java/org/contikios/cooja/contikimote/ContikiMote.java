@@ -35,10 +35,12 @@ import java.util.Collection;
 
 import org.apache.log4j.Logger;
 import org.jdom.Element;
+import org.contikios.cooja.CoreComm;
 import org.contikios.cooja.Mote;
 import org.contikios.cooja.MoteInterface;
 import org.contikios.cooja.MoteInterfaceHandler;
 import org.contikios.cooja.MoteType;
+import org.contikios.cooja.MoteType.MoteTypeCreationException;
 import org.contikios.cooja.mote.memory.SectionMoteMemory;
 import org.contikios.cooja.Simulation;
 import org.contikios.cooja.mote.memory.MemoryInterface;
@@ -57,6 +59,10 @@ import org.contikios.cooja.motes.AbstractWakeupMote;
  * memory to the core, lets the Contiki system handle one event,
  * fetches the updated memory and finally polls all interfaces again.
  *
+ * If the mote type has a library instance per mote, the mote memory
+ * is read and written directly in the mote's own instance, and nothing
+ * is copied when ticked.
+ *
  * @author      Fredrik Osterlind
  */
 public class ContikiMote extends AbstractWakeupMote implements Mote {
@@ -66,6 +72,9 @@ public class ContikiMote extends AbstractWakeupMote implements Mote {
   private SectionMoteMemory myMemory = null;
   private MoteInterfaceHandler myInterfaceHandler = null;
 
+  /* Own Contiki library instance, or null if memory is swapped through the mote type */
+  private CoreComm myCoreComm = null;
+
   /**
    * Creates a new mote of given type.
    * Both the initial mote memory and the interface handler
@@ -77,12 +86,32 @@ public class ContikiMote extends AbstractWakeupMote implements Mote {
   public ContikiMote(ContikiMoteType moteType, Simulation sim) {
     setSimulation(sim);
     this.myType = moteType;
-    this.myMemory = moteType.createInitialMemory();
+    this.myMemory = createMemory();
     this.myInterfaceHandler = new MoteInterfaceHandler(this, moteType.getMoteInterfaceClasses());
 
     requestImmediateWakeup();
   }
 
+  /**
+   * Creates the initial memory of this mote. If the mote type has a library
+   * instance per mote, the memory is that of this mote's own instance.
+   *
+   * @return Initial mote memory
+   */
+  private SectionMoteMemory createMemory() {
+    if (myType.isNativeInstancePerMote()) {
+      try {
+        if (myCoreComm == null) {
+          myCoreComm = myType.createMoteCoreComm();
+        }
+        return myType.createNativeMemory(myCoreComm);
+      } catch (MoteTypeCreationException e) {
+        logger.warn("Could not load library instance, sharing mote type library: " + e.getMessage());
+      }
+    }
+    return myType.createInitialMemory();
+  }
+
   @Override
   public int getID() {
     return myInterfaceHandler.getMoteID().getMoteID();
@@ -138,14 +167,19 @@ public class ContikiMote extends AbstractWakeupMote implements Mote {
       return;
     }
 
-    /* Copy mote memory to Contiki */
-    myType.setCoreMemory(myMemory);
+    if (myCoreComm != null) {
+      /* Memory is accessed directly in mote's own library instance */
+      myCoreComm.tick();
+    } else {
+      /* Copy mote memory to Contiki */
+      myType.setCoreMemory(myMemory);
 
-    /* Handle a single Contiki events */
-    myType.tick();
+      /* Handle a single Contiki events */
+      myType.tick();
 
-    /* Copy mote memory from Contiki */
-    myType.getCoreMemory(myMemory);
+      /* Copy mote memory from Contiki */
+      myType.getCoreMemory(myMemory);
+    }
 
     /* Poll mote interfaces */
     myMemory.pollForMemoryChanges();
@@ -153,6 +187,14 @@ public class ContikiMote extends AbstractWakeupMote implements Mote {
     myInterfaceHandler.doPassiveActionsAfterTick();
   }
 
+  @Override
+  public void removed() {
+    super.removed();
+    if (myCoreComm != null) {
+      CoreComm.deleteCoreCommInstanceFile(myCoreComm);
+    }
+  }
+
   /**
    * Returns the current Contiki mote config represented by XML elements.
    * This config also includes all mote interface configs.
@@ -182,7 +224,7 @@ public class ContikiMote extends AbstractWakeupMote implements Mote {
   @Override
   public boolean setConfigXML(Simulation simulation, Collection<Element> configXML, boolean visAvailable) {
     setSimulation(simulation);
-    myMemory = myType.createInitialMemory();
+    myMemory = createMemory();
     myInterfaceHandler = new MoteInterfaceHandler(this, myType.getMoteInterfaceClasses());
 
     for (Element element: configXML) {
@@ -31,19 +31,27 @@ package org.contikios.cooja.contikimote;
 
 import java.awt.Container;
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
 import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Properties;
 import java.util.Random;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -66,6 +74,7 @@ import org.contikios.cooja.mote.memory.SectionMoteMemory;
 import org.contikios.cooja.Simulation;
 import org.contikios.cooja.dialogs.CompileContiki;
 import org.contikios.cooja.dialogs.ContikiMoteCompileDialog;
+import org.contikios.cooja.dialogs.FirmwareCache;
 import org.contikios.cooja.dialogs.MessageList;
 import org.contikios.cooja.dialogs.MessageContainer;
 import org.contikios.cooja.mote.memory.ArrayMemory;
@@ -118,6 +127,11 @@ public class ContikiMoteType implements MoteType {
    */
   final static public String dependSuffix = ".a";
 
+  /**
+   * Symbol cache file suffix, appended to library file name
+   */
+  final static public String symbolCacheSuffix = ".symbols";
+
   /**
    * Temporary output directory
    */
@@ -204,6 +218,8 @@ public class ContikiMoteType implements MoteType {
 
   private NetworkStack netStack = NetworkStack.DEFAULT;
 
+  private boolean nativeInstancePerMote = false;
+
   // Type specific class configuration
   private ProjectConfig myConfig = null;
 
@@ -215,6 +231,15 @@ public class ContikiMoteType implements MoteType {
   /** Offset between native (cooja) and contiki address space */
   long offset;
 
+  /* Contiki address of referenceVar, see CoreComm.setReferenceAddress() */
+  private int referenceAddress;
+
+  /* Control block, or null if not provided by the Contiki core */
+  private Symbol controlBlock = null;
+
+  /* Memory last copied to or from the Contiki system, see setCoreMemory() */
+  private SectionMoteMemory coreMemoryOwner = null;
+
   /**
    * Creates a new uninitialized Cooja mote type. This mote type needs to load
    * a library file and parse a map file before it can be used.
@@ -232,6 +257,9 @@ public class ContikiMoteType implements MoteType {
                                   boolean visAvailable) throws MoteTypeCreationException {
     myConfig = simulation.getCooja().getProjectConfig().clone();
     String output_dir = Cooja.getExternalToolsSetting("PATH_CONTIKI_NG_BUILD_DIR", "build/cooja");
+    FirmwareCache firmwareCache = null;
+    String firmwareCacheKey = null;
+    boolean firmwareCached = false;
     
     if (visAvailable && !simulation.isQuickSetup()) {
 
@@ -319,8 +347,21 @@ public class ContikiMoteType implements MoteType {
       if (getCompileCommands() == null) {
         throw new MoteTypeCreationException("No compile commands specified");
       }
+
+      /* Reuse firmware built earlier from identical sources, if cached.
+       * The cached library is bound to the Java class it was built for */
+      firmwareCache = FirmwareCache.getDefault();
+      if (firmwareCache != null) {
+        firmwareCacheKey = getFirmwareCacheKey(env);
+        Properties entry = firmwareCache.restore(firmwareCacheKey, getFirmwareCacheOutputs());
+        if (entry != null && entry.getProperty("classname") != null && libFile.exists()) {
+          javaClassName = entry.getProperty("classname");
+          firmwareCached = true;
+        }
+      }
+
       final MessageList compilationOutput = MessageContainer.createMessageList(visAvailable);
-      String[] arr = getCompileCommands().split("\n");
+      String[] arr = firmwareCached ? new String[0] : getCompileCommands().split("\n");
       for (String cmd : arr) {
         if (cmd.trim().isEmpty()) {
           continue;
@@ -366,9 +407,60 @@ public class ContikiMoteType implements MoteType {
 
     /* Load compiled library */
     doInit();
+
+    if (firmwareCache != null && !firmwareCached) {
+      Properties entry = new Properties();
+      entry.setProperty("classname", javaClassName);
+      firmwareCache.store(firmwareCacheKey, entry, getFirmwareCacheOutputs());
+    }
     return true;
   }
 
+  /**
+   * Returns key of this mote type in the firmware cache. Values unique to
+   * this mote type, the identifier and Java class name, are excluded.
+   *
+   * @param env Compilation environment
+   * @return Key, or null if no key could be created
+   */
+  private String getFirmwareCacheKey(String[][] env) {
+    ArrayList<String> keyEnv = new ArrayList<>();
+    for (String[] e : env) {
+      if (e[0].equals("LIBNAME") || e[0].equals("CLASSNAME")) {
+        continue;
+      }
+      keyEnv.add(e[0] + "=" + e[1]
+              .replace(getIdentifier(), "$(LIBNAME)")
+              .replace(javaClassName, "$(CLASSNAME)"));
+    }
+
+    ArrayList<File> sourceDirs = new ArrayList<>();
+    sourceDirs.add(getContikiSourceFile().getParentFile());
+    String[] coojaSources = getConfig().getStringArrayValue(ContikiMoteType.class, "C_SOURCES");
+    if (coojaSources != null) {
+      for (String s : coojaSources) {
+        File p = getConfig().getUserProjectDefining(ContikiMoteType.class, "C_SOURCES", s);
+        if (p != null && !sourceDirs.contains(p)) {
+          sourceDirs.add(p);
+        }
+      }
+    }
+
+    return FirmwareCache.createKey(
+            ContikiMoteType.class.getName(),
+            getCompileCommands(),
+            keyEnv.toArray(new String[keyEnv.size()]),
+            sourceDirs.toArray(new File[sourceDirs.size()]));
+  }
+
+  private Map<String, File> getFirmwareCacheOutputs() {
+    Map<String, File> outputs = new HashMap<>();
+    outputs.put("library", libFile);
+    outputs.put("map", mapFile);
+    outputs.put("symbols", new File(libFile.getParentFile(), libFile.getName() + symbolCacheSuffix));
+    return outputs;
+  }
+
   public static File getExpectedFirmwareFile(File source) {
     File parentDir = source.getParentFile();
     String sourceNoExtension = source.getName().substring(0, source.getName().length() - 2);
@@ -417,7 +509,20 @@ public class ContikiMoteType implements MoteType {
     SectionParser readonlySecParser = null;
 
     HashMap<String, Symbol> variables = new HashMap<>();
-    if (useCommand) {
+
+    /* Reuse previously parsed sections and symbols, if library is unchanged */
+    File symbolCacheFile = new File(
+            getContikiFirmwareFile().getParentFile(),
+            getContikiFirmwareFile().getName() + symbolCacheSuffix);
+    String symbolCacheKey = getSymbolCacheKey(useCommand);
+    SectionParser[] cachedParsers = loadSymbolCache(symbolCacheFile, symbolCacheKey);
+
+    if (cachedParsers != null) {
+      logger.debug("Using cached symbols: " + symbolCacheFile);
+      dataSecParser = cachedParsers[0];
+      bssSecParser = cachedParsers[1];
+      commonSecParser = cachedParsers[2];
+    } else if (useCommand) {
       /* Parse command output */
       String[] output = loadCommandData(getContikiFirmwareFile());
       if (output == null) {
@@ -488,8 +593,8 @@ public class ContikiMoteType implements MoteType {
       tmp.addMemorySection("tmp.common", commonSecParser.parse(0));
 
       try {
-        int referenceVar = (int) varMem.getVariable("referenceVar").addr;
-        myCoreComm.setReferenceAddress(referenceVar);
+        referenceAddress = (int) varMem.getVariable("referenceVar").addr;
+        myCoreComm.setReferenceAddress(referenceAddress);
       } catch (UnknownVariableException e) {
         throw new MoteTypeCreationException("Error setting reference variable: " + e.getMessage(), e);
       } catch (RuntimeException e) {
@@ -498,6 +603,11 @@ public class ContikiMoteType implements MoteType {
 
       getCoreMemory(tmp);
 
+      if (cachedParsers == null && symbolCacheKey != null) {
+        saveSymbolCache(symbolCacheFile, symbolCacheKey,
+                dataSecParser, bssSecParser, commonSecParser);
+      }
+
       offset = varMem.getIntValueOf("referenceVar") & 0xFFFFFFFFL;
       logger.debug(getContikiFirmwareFile().getName()
               + ": offsetting Cooja mote address space: 0x" + Long.toHexString(offset));
@@ -517,6 +627,8 @@ public class ContikiMoteType implements MoteType {
     }
 
     getCoreMemory(initialMemory);
+
+    controlBlock = ControlBlock.addFieldSymbols(initialMemory);
   }
 
   /**
@@ -608,6 +720,9 @@ public class ContikiMoteType implements MoteType {
     private final String startRegExp;
     private final String sizeRegExp;
 
+    /* Line numbers of all lines containing a given word, built on first use */
+    private Map<String, List<Integer>> lineIndex = null;
+
     public MapSectionParser(String[] mapFileData, String startRegExp, String sizeRegExp) {
       super(mapFileData);
       this.startRegExp = startRegExp;
@@ -662,17 +777,17 @@ public class ContikiMoteType implements MoteType {
      * @return Relative memory address of variable or -1 if not found
      */
     private int getMapFileVarAddress(String[] mapFileData, String varName) {
-
-      String regExp = Cooja.getExternalToolsSetting("MAPFILE_VAR_ADDRESS_1")
+      Pattern pattern = Pattern.compile(
+              Cooja.getExternalToolsSetting("MAPFILE_VAR_ADDRESS_1")
               + varName
-              + Cooja.getExternalToolsSetting("MAPFILE_VAR_ADDRESS_2");
-      String retString = getFirstMatchGroup(mapFileData, regExp, 1);
-
-      if (retString != null) {
-        return Integer.parseInt(retString.trim(), 16);
-      } else {
-        return -1;
+              + Cooja.getExternalToolsSetting("MAPFILE_VAR_ADDRESS_2"));
+      for (int idx : getLinesWithWord(mapFileData, varName)) {
+        Matcher matcher = pattern.matcher(mapFileData[idx]);
+        if (matcher.find()) {
+          return Integer.parseInt(matcher.group(1).trim(), 16);
+        }
       }
+      return -1;
     }
 
     private int getMapFileVarSize(String[] mapFileData, String varName) {
@@ -680,7 +795,7 @@ public class ContikiMoteType implements MoteType {
               Cooja.getExternalToolsSetting("MAPFILE_VAR_SIZE_1")
               + varName
               + Cooja.getExternalToolsSetting("MAPFILE_VAR_SIZE_2"));
-      for (int idx = 0; idx < mapFileData.length; idx++) {
+      for (int idx : getLinesWithWord(mapFileData, varName)) {
         String parseString = mapFileData[idx];
         Matcher matcher = pattern.matcher(parseString);
         if (matcher.find()) {
@@ -697,6 +812,73 @@ public class ContikiMoteType implements MoteType {
       }
       return -1;
     }
+
+    /**
+     * Returns the numbers of all lines containing the given word, separated
+     * by whitespace. Only these lines are matched against the variable
+     * address and size expressions, instead of the whole map file.
+     *
+     * @param mapFileData Map file lines
+     * @param word Word to look for
+     * @return Line numbers in ascending order
+     */
+    private List<Integer> getLinesWithWord(String[] mapFileData, String word) {
+      if (lineIndex == null) {
+        lineIndex = new HashMap<>();
+        for (int idx = 0; idx < mapFileData.length; idx++) {
+          for (String w : mapFileData[idx].trim().split("\\s+")) {
+            List<Integer> lines = lineIndex.get(w);
+            if (lines == null) {
+              lines = new ArrayList<>(1);
+              lineIndex.put(w, lines);
+            }
+            if (lines.isEmpty() || lines.get(lines.size() - 1) != idx) {
+              lines.add(idx);
+            }
+          }
+        }
+      }
+      List<Integer> lines = lineIndex.get(word);
+      return lines == null ? Collections.<Integer>emptyList() : lines;
+    }
+  }
+
+  /**
+   * Section parser returning previously parsed section data, see
+   * {@link #loadSymbolCache(File, String)}.
+   */
+  public static class CachedSectionParser extends SectionParser {
+
+    private final Map<String, Symbol> symbols;
+
+    /**
+     * @param startAddr Section start address, -1 if no section
+     * @param size Section size
+     * @param symbols Symbols with addresses relative to offset 0
+     */
+    public CachedSectionParser(int startAddr, int size, Map<String, Symbol> symbols) {
+      super(null);
+      this.startAddr = startAddr;
+      this.size = size;
+      this.symbols = symbols;
+    }
+
+    @Override
+    protected void parseStartAddr() {
+    }
+
+    @Override
+    protected void parseSize() {
+    }
+
+    @Override
+    public Map<String, Symbol> parseSymbols(long offset) {
+      Map<String, Symbol> varNames = new HashMap<>();
+      for (Symbol sym : symbols.values()) {
+        varNames.put(sym.name, new Symbol(sym.type, sym.name, sym.section, sym.addr + offset, sym.size));
+      }
+      return varNames;
+    }
   }
 
   /**
@@ -812,6 +994,80 @@ public class ContikiMoteType implements MoteType {
     return initialMemory.clone();
   }
 
+  /**
+   * Loads a separate instance of this mote type's Contiki library, with its
+   * own copy of all Contiki globals. Used for motes when
+   * {@link #isNativeInstancePerMote()} is set.
+   *
+   * @return Core communicator of new library instance
+   * @throws MoteTypeCreationException If library could not be loaded
+   */
+  public CoreComm createMoteCoreComm() throws MoteTypeCreationException {
+    CoreComm coreComm = CoreComm.createCoreCommInstance(javaClassName, getContikiFirmwareFile());
+    try {
+      coreComm.setReferenceAddress(referenceAddress);
+    } catch (RuntimeException e) {
+      throw new MoteTypeCreationException("Error setting reference variable: " + e.getMessage(), e);
+    }
+    return coreComm;
+  }
+
+  /**
+   * Creates a mote memory that accesses the memory of the given library
+   * instance directly. The instance has already been initialized when it was
+   * loaded, and its pointers refer to its own mapping, so its memory is used
+   * as is in an address space offset by the instance's own referenceVar.
+   *
+   * @param coreComm Core communicator of library instance
+   * @return Mote memory
+   * @see #createMoteCoreComm()
+   */
+  public SectionMoteMemory createNativeMemory(CoreComm coreComm) {
+    byte[] ref = new byte[4];
+    coreComm.getMemory(referenceAddress, ref.length, ref);
+    long instanceOffset = ByteBuffer.wrap(ref).order(initialMemory.getLayout().order).getInt() & 0xFFFFFFFFL;
+    long delta = instanceOffset - offset;
+
+    SectionMoteMemory mem = new SectionMoteMemory(shiftSymbols(initialMemory.getSymbolMap(), delta));
+    for (Map.Entry<String, MemoryInterface> entry : initialMemory.getSections().entrySet()) {
+      MemoryInterface section = entry.getValue();
+      CoreCommMemory nativeSection = new CoreCommMemory(
+              coreComm,
+              section.getStartAddr() + delta,
+              section.getTotalSize(),
+              instanceOffset,
+              section.getLayout(),
+              shiftSymbols(section.getSymbolMap(), delta));
+      mem.addMemorySection(entry.getKey(), nativeSection);
+
+      if (controlBlock != null
+              && SectionMoteMemory.inSection(section, controlBlock.addr, ControlBlock.SIZE)) {
+        ByteBuffer buffer;
+        try {
+          buffer = coreComm.getControlBlock();
+        } catch (UnsatisfiedLinkError e) {
+          buffer = null;
+        }
+        if (ControlBlock.isValid(buffer)) {
+          nativeSection.setDirectBuffer(controlBlock.addr + delta, buffer);
+        }
+      }
+    }
+    return mem;
+  }
+
+  private static Map<String, Symbol> shiftSymbols(Map<String, Symbol> symbols, long delta) {
+    if (symbols == null || delta == 0) {
+      return symbols;
+    }
+    Map<String, Symbol> shifted = new HashMap<String, Symbol>();
+    for (Map.Entry<String, Symbol> entry : symbols.entrySet()) {
+      Symbol sym = entry.getValue();
+      shifted.put(entry.getKey(), new Symbol(sym.type, sym.name, sym.section, sym.addr + delta, sym.size));
+    }
+    return shifted;
+  }
+
   /**
    * Copy core memory to given memory. This should not be used directly, but
    * instead via ContikiMote.getMemory().
@@ -825,7 +1081,11 @@ public class ContikiMoteType implements MoteType {
               (int) (section.getStartAddr() - offset),
               section.getTotalSize(),
               section.getMemory());
+      if (section instanceof ArrayMemory) {
+        ((ArrayMemory) section).clearDirty();
+      }
     }
+    coreMemoryOwner = mem;
   }
 
   private void getCoreMemory(int relAddr, int length, byte[] data) {
@@ -836,16 +1096,41 @@ public class ContikiMoteType implements MoteType {
    * Copy given memory to the Contiki system. This should not be used directly,
    * but instead via ContikiMote.setMemory().
    *
+   * If the Contiki system still holds the given memory, i.e. no other mote
+   * of this type has been copied in since, only the ranges written on the
+   * Java side since then are copied.
+   *
    * @param mem
    * New memory
    */
   public void setCoreMemory(SectionMoteMemory mem) {
+    boolean resident = mem == coreMemoryOwner;
     for (MemoryInterface section : mem.getSections().values()) {
+      int relAddr = (int) (section.getStartAddr() - offset);
+      if (resident && section instanceof ArrayMemory) {
+        ArrayMemory arrayMemory = (ArrayMemory) section;
+        if (!arrayMemory.isDirty()) {
+          continue;
+        }
+        int[] ranges = arrayMemory.getDirtyRanges();
+        for (int i = 0; i < ranges.length; i += 2) {
+          setCoreMemory(
+                  relAddr + ranges[i],
+                  ranges[i + 1] - ranges[i],
+                  Arrays.copyOfRange(section.getMemory(), ranges[i], ranges[i + 1]));
+        }
+        arrayMemory.clearDirty();
+        continue;
+      }
       setCoreMemory(
-              (int) (section.getStartAddr() - offset),
+              relAddr,
               section.getTotalSize(),
               section.getMemory());
+      if (section instanceof ArrayMemory) {
+        ((ArrayMemory) section).clearDirty();
+      }
     }
+    coreMemoryOwner = mem;
   }
 
   private void setCoreMemory(int relAddr, int length, byte[] mem) {
@@ -906,6 +1191,24 @@ public class ContikiMoteType implements MoteType {
     return hasSystemSymbols;
   }
 
+  /**
+   * Experimental, disabled by default: per-mote library instances have not
+   * yet been exercised with a real Contiki build.
+   *
+   * @param perMote Load a separate Contiki library instance for each mote,
+   * instead of swapping the memory of all motes through a single instance
+   */
+  public void setNativeInstancePerMote(boolean perMote) {
+    nativeInstancePerMote = perMote;
+  }
+
+  /**
+   * @return Whether each mote has its own Contiki library instance
+   */
+  public boolean isNativeInstancePerMote() {
+    return nativeInstancePerMote;
+  }
+
   /**
    * @param netStack Contiki network stack
    */
@@ -942,6 +1245,140 @@ public class ContikiMoteType implements MoteType {
     return contents.split("\n");
   }
 
+  /* External tools settings affecting parsed sections and symbols */
+  private static final String[] SYMBOL_CACHE_SETTINGS = {
+    "PARSE_WITH_COMMAND",
+    "MAPFILE_DATA_START", "MAPFILE_DATA_SIZE",
+    "MAPFILE_BSS_START", "MAPFILE_BSS_SIZE",
+    "MAPFILE_COMMON_START", "MAPFILE_COMMON_SIZE",
+    "MAPFILE_VAR_NAME",
+    "MAPFILE_VAR_ADDRESS_1", "MAPFILE_VAR_ADDRESS_2",
+    "MAPFILE_VAR_SIZE_1", "MAPFILE_VAR_SIZE_2",
+    "PARSE_COMMAND",
+    "COMMAND_VAR_NAME_ADDRESS_SIZE",
+    "COMMAND_DATA_START", "COMMAND_DATA_END",
+    "COMMAND_BSS_START", "COMMAND_BSS_END",
+    "COMMAND_COMMON_START", "COMMAND_COMMON_END",
+    "COMMAND_VAR_SEC_DATA", "COMMAND_VAR_SEC_BSS", "COMMAND_VAR_SEC_COMMON"
+  };
+
+  /**
+   * Returns key identifying the parsed sections and symbols of the current
+   * library: a checksum of the library, the map file if used, and all
+   * parse settings.
+   *
+   * @param useCommand Parse with command instead of map file
+   * @return Key, or null if input files could not be read
+   */
+  private String getSymbolCacheKey(boolean useCommand) {
+    MessageDigest messageDigest;
+    try {
+      messageDigest = MessageDigest.getInstance("MD5");
+    } catch (NoSuchAlgorithmException e) {
+      return null;
+    }
+
+    byte[] libraryChecksum = createChecksum(getContikiFirmwareFile());
+    if (libraryChecksum == null) {
+      return null;
+    }
+    messageDigest.update(libraryChecksum);
+    if (!useCommand) {
+      if (mapFile == null || !mapFile.exists()) {
+        return null;
+      }
+      byte[] mapChecksum = createChecksum(mapFile);
+      if (mapChecksum == null) {
+        return null;
+      }
+      messageDigest.update(mapChecksum);
+    }
+    for (String setting : SYMBOL_CACHE_SETTINGS) {
+      messageDigest.update((setting + "=" + Cooja.getExternalToolsSetting(setting) + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    StringBuilder sb = new StringBuilder();
+    for (byte b : messageDigest.digest()) {
+      sb.append(String.format("%02x", b));
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Loads parsed data, bss and common sections from symbol cache file.
+   *
+   * @param cacheFile Symbol cache file
+   * @param key Expected key, see {@link #getSymbolCacheKey(boolean)}
+   * @return Section parsers for data, bss and common, or null if no
+   * matching cache exists
+   */
+  private static SectionParser[] loadSymbolCache(File cacheFile, String key) {
+    if (key == null || !cacheFile.exists()) {
+      return null;
+    }
+
+    SectionParser[] parsers = new SectionParser[3];
+    try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+            new FileInputStream(cacheFile), StandardCharsets.UTF_8))) {
+      if (!("key " + key).equals(reader.readLine())) {
+        return null;
+      }
+
+      int sections = 0;
+      Map<String, Symbol> symbols = null;
+      String line;
+      while ((line = reader.readLine()) != null) {
+        String[] parts = line.split(" ");
+        if (parts[0].equals("section") && parts.length == 3 && sections < parsers.length) {
+          symbols = new HashMap<>();
+          parsers[sections++] = new CachedSectionParser(
+                  Integer.parseInt(parts[1]), Integer.parseInt(parts[2]), symbols);
+        } else if (parts[0].equals("symbol") && parts.length == 4 && symbols != null) {
+          symbols.put(parts[1], new Symbol(
+                  Symbol.Type.VARIABLE, parts[1], Long.parseLong(parts[2]), Integer.parseInt(parts[3])));
+        } else {
+          logger.warn("Ignoring corrupt symbol cache: " + cacheFile);
+          return null;
+        }
+      }
+      if (sections != parsers.length) {
+        return null;
+      }
+    } catch (IOException | NumberFormatException e) {
+      logger.warn("Could not read symbol cache: " + cacheFile + ": " + e.getMessage());
+      return null;
+    }
+    return parsers;
+  }
+
+  /**
+   * Saves parsed sections to symbol cache file. The sections must have
+   * been parsed with offset 0.
+   *
+   * @param cacheFile Symbol cache file
+   * @param key Key, see {@link #getSymbolCacheKey(boolean)}
+   * @param parsers Section parsers for data, bss and common
+   */
+  private static void saveSymbolCache(File cacheFile, String key, SectionParser... parsers) {
+    try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(
+            new FileOutputStream(cacheFile), StandardCharsets.UTF_8))) {
+      writer.write("key " + key + "\n");
+      for (SectionParser parser : parsers) {
+        boolean valid = parser.getStartAddr() >= 0 && parser.getSize() > 0;
+        writer.write("section " + (valid ? parser.getStartAddr() : -1) + " " + parser.getSize() + "\n");
+        if (!valid || parser.getVariables() == null) {
+          continue;
+        }
+        for (Symbol sym : parser.getVariables().values()) {
+          writer.write("symbol " + sym.name + " " + sym.addr + " " + sym.size + "\n");
+        }
+      }
+    } catch (IOException e) {
+      logger.warn("Could not write symbol cache: " + cacheFile + ": " + e.getMessage());
+      cacheFile.delete();
+    }
+  }
+
   /**
    * Executes configured command on given file and returns the result.
    *
@@ -1235,6 +1672,12 @@ public class ContikiMoteType implements MoteType {
       config.add(element);
     }
 
+    if (isNativeInstancePerMote()) {
+      element = new Element("nativeinstances");
+      element.setText("true");
+      config.add(element);
+    }
+
     return config;
   }
 
@@ -1283,6 +1726,12 @@ public class ContikiMoteType implements MoteType {
         case "netstack":
           netStack = NetworkStack.parseConfig(element.getText());
           break;
+        case "nativeinstances":
+          nativeInstancePerMote = Boolean.parseBoolean(element.getText());
+          if (nativeInstancePerMote) {
+            logger.warn("Experimental: loading a Contiki library instance per mote");
+          }
+          break;
         case "moteinterface":
           String intfClass = element.getText().trim();
           /* Backwards compatibility: se.sics -> org.contikios */
@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2026, Cooja contributors
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the Institute nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE INSTITUTE AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE INSTITUTE OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ *
+ */
+
+package org.contikios.cooja.contikimote;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+
+import org.contikios.cooja.mote.memory.MemoryInterface.Symbol;
+import org.contikios.cooja.mote.memory.SectionMoteMemory;
+import org.contikios.cooja.mote.memory.VarMemory;
+
+/**
+ * Fixed layout control block shared between Cooja and the Contiki core.
+ * <p>
+ * Instead of a number of separate globals, a Contiki core may place the
+ * variables polled by the Cooja mote interfaces in a single struct named
+ * simControl, matching this layout:
+ * <pre>
+ * struct {
+ *   uint32_t version;                      /* CONTROL_BLOCK_VERSION *&#47;
+ *   uint32_t size;                         /* sizeof(simControl) *&#47;
+ *   int64_t simRtimerCurrentTicks;
+ *   int64_t simRtimerNextExpirationTime;
+ *   int64_t simLastPacketTimestamp;
+ *   int32_t simCurrentTime;
+ *   int32_t simRtimerPending;
+ *   int32_t simProcessRunValue;
+ *   int32_t simEtimerPending;
+ *   int32_t simEtimerNextExpirationTime;
+ *   int32_t simRadioChannel;
+ *   int32_t simInSize;
+ *   int32_t simOutSize;
+ *   int32_t simSignalStrength;
+ *   int32_t simLQI;
+ *   int32_t simLoggedLength;
+ *   int32_t simSerialReceivingLength;
+ *   char simRadioHWOn;
+ *   char simReceiving;
+ *   char simPower;
+ *   char simLoggedFlag;
+ *   char simSerialReceivingFlag;
+ * } simControl;
+ * </pre>
+ * Data buffers such as simInDataBuffer remain separate globals.
+ * <p>
+ * The fields are registered as symbols under their usual names, so mote
+ * interfaces bind them as before. If the library also implements
+ * {@link org.contikios.cooja.CoreComm#getControlBlock()}, motes with their
+ * own library instance access the control block through a direct buffer.
+ */
+public class ControlBlock {
+  private static Logger logger = Logger.getLogger(ControlBlock.class);
+
+  /** Symbol name of control block */
+  public static final String SYMBOL = "simControl";
+
+  /** Supported control block layout version */
+  public static final int VERSION = 1;
+
+  /** Size of control block */
+  public static final int SIZE = 88;
+
+  private static final String[] FIELD_NAMES = {
+    "simRtimerCurrentTicks",
+    "simRtimerNextExpirationTime",
+    "simLastPacketTimestamp",
+    "simCurrentTime",
+    "simRtimerPending",
+    "simProcessRunValue",
+    "simEtimerPending",
+    "simEtimerNextExpirationTime",
+    "simRadioChannel",
+    "simInSize",
+    "simOutSize",
+    "simSignalStrength",
+    "simLQI",
+    "simLoggedLength",
+    "simSerialReceivingLength",
+    "simRadioHWOn",
+    "simReceiving",
+    "simPower",
+    "simLoggedFlag",
+    "simSerialReceivingFlag"
+  };
+  private static final int[] FIELD_OFFSETS = {
+    8, 16, 24,
+    32, 36, 40, 44, 48, 52, 56, 60, 64, 68, 72, 76,
+    80, 81, 82, 83, 84
+  };
+  private static final int[] FIELD_SIZES = {
+    8, 8, 8,
+    4, 4, 4, 4, 4, 4, 4, 4, 4, 4, 4, 4,
+    1, 1, 1, 1, 1
+  };
+
+  /**
+   * Registers the control block fields as symbols of the given memory, if it
+   * contains a control block of the supported version.
+   *
+   * @param memory Initial mote memory
+   * @return Control block symbol, or null if no supported control block
+   */
+  public static Symbol addFieldSymbols(SectionMoteMemory memory) {
+    Map<String, Symbol> symbols = memory.getSymbolMap();
+    Symbol control = symbols.get(SYMBOL);
+    if (control == null) {
+      return null;
+    }
+
+    VarMemory varMem = new VarMemory(memory);
+    int version = varMem.getInt32ValueOf(control.addr);
+    int size = varMem.getInt32ValueOf(control.addr + 4);
+    if (version != VERSION || size < SIZE) {
+      logger.warn("Ignoring unsupported control block: version " + version + ", size " + size);
+      return null;
+    }
+
+    for (int i = 0; i < FIELD_NAMES.length; i++) {
+      symbols.put(FIELD_NAMES[i], new Symbol(
+              Symbol.Type.VARIABLE,
+              FIELD_NAMES[i],
+              control.section,
+              control.addr + FIELD_OFFSETS[i],
+              FIELD_SIZES[i]));
+    }
+    return control;
+  }
+
+  /**
+   * @param buffer Buffer returned by the Contiki core
+   * @return True if buffer is a control block of the supported version
+   */
+  public static boolean isValid(ByteBuffer buffer) {
+    if (buffer == null || buffer.capacity() < SIZE) {
+      return false;
+    }
+    ByteBuffer b = buffer.duplicate().order(ByteOrder.nativeOrder());
+    return b.getInt(0) == VERSION && b.getInt(4) >= SIZE;
+  }
+
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2026, Cooja contributors
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the Institute nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE INSTITUTE AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE INSTITUTE OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ *
+ */
+
+package org.contikios.cooja.contikimote;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+import org.contikios.cooja.CoreComm;
+import org.contikios.cooja.mote.memory.DirectBufferMemory;
+import org.contikios.cooja.mote.memory.MemoryLayout;
+
+/**
+ * A memory section that reads and writes the memory of a loaded Contiki
+ * library directly, instead of keeping a copy in Java.
+ *
+ * Used for motes with their own library instance, see
+ * {@link ContikiMoteType#isNativeInstancePerMote()}.
+ *
+ * A direct buffer into the library memory, such as the control block, can
+ * be attached to avoid JNI calls when accessing the memory it covers.
+ */
+public class CoreCommMemory implements DirectBufferMemory {
+
+  private final CoreComm coreComm;
+  private final long startAddress;
+  private final int size;
+  private final long offset;
+  private final MemoryLayout layout;
+  private final Map<String, Symbol> symbols;
+
+  /* Direct buffer into library memory, and its start address */
+  private ByteBuffer direct = null;
+  private long directAddress;
+
+  /**
+   * @param coreComm Core communicator of library
+   * @param address Start address of section, in Cooja address space
+   * @param size Size of section
+   * @param offset Offset between Cooja and library address space
+   * @param layout Memory layout
+   * @param symbols Symbols in section
+   */
+  public CoreCommMemory(CoreComm coreComm, long address, int size, long offset,
+                        MemoryLayout layout, Map<String, Symbol> symbols) {
+    this.coreComm = coreComm;
+    this.startAddress = address;
+    this.size = size;
+    this.offset = offset;
+    this.layout = layout;
+    this.symbols = symbols;
+  }
+
+  /**
+   * Attaches a direct buffer covering part of this section.
+   *
+   * @param address Start address of buffer
+   * @param buffer Direct buffer into library memory
+   */
+  public void setDirectBuffer(long address, ByteBuffer buffer) {
+    this.direct = buffer.duplicate().order(layout.order);
+    this.directAddress = address;
+  }
+
+  @Override
+  public ByteBuffer getDirectBuffer(long addr, int size) {
+    if (direct == null
+            || addr < directAddress
+            || addr + size > directAddress + direct.capacity()) {
+      return null;
+    }
+    ByteBuffer buffer = direct.duplicate();
+    buffer.position((int) (addr - directAddress));
+    return buffer.slice().order(layout.order);
+  }
+
+  /**
+   * @return Copy of the whole section
+   */
+  @Override
+  public byte[] getMemory() {
+    return getMemorySegment(startAddress, size);
+  }
+
+  @Override
+  public byte[] getMemorySegment(long addr, int size) throws MoteMemoryException {
+    byte[] ret = new byte[size];
+    ByteBuffer buffer = getDirectBuffer(addr, size);
+    if (buffer != null) {
+      buffer.get(ret);
+      return ret;
+    }
+    coreComm.getMemory((int) (addr - offset), size, ret);
+    return ret;
+  }
+
+  @Override
+  public void setMemorySegment(long addr, byte[] data) throws MoteMemoryException {
+    ByteBuffer buffer = getDirectBuffer(addr, data.length);
+    if (buffer != null) {
+      buffer.put(data);
+      return;
+    }
+    coreComm.setMemory((int) (addr - offset), data.length, data);
+  }
+
+  @Override
+  public void clearMemory() {
+    setMemorySegment(startAddress, new byte[size]);
+  }
+
+  @Override
+  public long getStartAddr() {
+    return startAddress;
+  }
+
+  @Override
+  public int getTotalSize() {
+    return size;
+  }
+
+  @Override
+  public Map<String, Symbol> getSymbolMap() {
+    return symbols;
+  }
+
+  @Override
+  public MemoryLayout getLayout() {
+    return layout;
+  }
+
+  @Override
+  public boolean addSegmentMonitor(SegmentMonitor.EventType flag, long address, int size, SegmentMonitor monitor) {
+    throw new UnsupportedOperationException("Not supported yet.");
+  }
+
+  @Override
+  public boolean removeSegmentMonitor(long address, int size, SegmentMonitor monitor) {
+    throw new UnsupportedOperationException("Not supported yet.");
+  }
+
+}
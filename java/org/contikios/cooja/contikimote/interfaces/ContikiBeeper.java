@@ -71,7 +71,7 @@ import org.contikios.cooja.mote.memory.VarMemory;
  */
 public class ContikiBeeper extends Beeper implements ContikiMoteInterface, PolledAfterActiveTicks {
   private Mote mote = null;
-  private VarMemory moteMem = null;
+  private final VarMemory.ByteVar simBeeped;
   private static Logger logger = Logger.getLogger(ContikiBeeper.class);
 
   /**
@@ -84,11 +84,12 @@ public class ContikiBeeper extends Beeper implements ContikiMoteInterface, Polle
    */
   public ContikiBeeper(Mote mote) {
     this.mote = mote;
-    this.moteMem = new VarMemory(mote.getMemory());
+    VarMemory moteMem = new VarMemory(mote.getMemory());
+    simBeeped = moteMem.bindByte("simBeeped");
   }
 
   public boolean isBeeping() {
-    return moteMem.getByteValueOf("simBeeped") == 1;
+    return simBeeped.get() == 1;
   }
 
   public static String[] getCoreInterfaceDependencies() {
@@ -96,11 +97,11 @@ public class ContikiBeeper extends Beeper implements ContikiMoteInterface, Polle
   }
 
   public void doActionsAfterTick() {
-    if (moteMem.getByteValueOf("simBeeped") == 1) {
+    if (simBeeped.get() == 1) {
       this.setChanged();
       this.notifyObservers(mote);
 
-      moteMem.setByteValueOf("simBeeped", (byte) 0);
+      simBeeped.set((byte) 0);
     }
   }
 
@@ -59,7 +59,9 @@ import org.contikios.cooja.mote.memory.VarMemory;
  * @author Fredrik Osterlind
  */
 public class ContikiButton extends Button implements ContikiMoteInterface {
-  private final VarMemory moteMem;
+  private final VarMemory.ByteVar simButtonIsDown;
+  private final VarMemory.ByteVar simButtonIsActive;
+  private final VarMemory.ByteVar simButtonChanged;
   private final ContikiMote mote;
 
   private static final Logger logger = Logger.getLogger(ContikiButton.class);
@@ -74,7 +76,10 @@ public class ContikiButton extends Button implements ContikiMoteInterface {
   public ContikiButton(Mote mote) {
     super(mote);
     this.mote = (ContikiMote) mote;
-    this.moteMem = new VarMemory(mote.getMemory());
+    VarMemory moteMem = new VarMemory(mote.getMemory());
+    simButtonIsDown = moteMem.bindByte("simButtonIsDown");
+    simButtonIsActive = moteMem.bindByte("simButtonIsActive");
+    simButtonChanged = moteMem.bindByte("simButtonChanged");
   }
 
   public static String[] getCoreInterfaceDependencies() {
@@ -83,10 +88,10 @@ public class ContikiButton extends Button implements ContikiMoteInterface {
 
   @Override
   protected void doReleaseButton() {
-    moteMem.setByteValueOf("simButtonIsDown", (byte) 0);
+    simButtonIsDown.set((byte) 0);
 
-    if (moteMem.getByteValueOf("simButtonIsActive") == 1) {
-      moteMem.setByteValueOf("simButtonChanged", (byte) 1);
+    if (simButtonIsActive.get() == 1) {
+      simButtonChanged.set((byte) 1);
 
       /* If mote is inactive, wake it up */
       mote.requestImmediateWakeup();
@@ -98,10 +103,10 @@ public class ContikiButton extends Button implements ContikiMoteInterface {
 
   @Override
   protected void doPressButton() {
-    moteMem.setByteValueOf("simButtonIsDown", (byte) 1);
+    simButtonIsDown.set((byte) 1);
 
-    if (moteMem.getByteValueOf("simButtonIsActive") == 1) {
-      moteMem.setByteValueOf("simButtonChanged", (byte) 1);
+    if (simButtonIsActive.get() == 1) {
+      simButtonChanged.set((byte) 1);
 
       /* If mote is inactive, wake it up */
       mote.requestImmediateWakeup();
@@ -113,7 +118,7 @@ public class ContikiButton extends Button implements ContikiMoteInterface {
 
   @Override
   public boolean isPressed() {
-    return moteMem.getByteValueOf("simButtonIsDown") == 1;
+    return simButtonIsDown.get() == 1;
   }
 
 }
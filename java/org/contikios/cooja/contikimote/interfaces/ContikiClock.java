@@ -75,7 +75,13 @@ public class ContikiClock extends Clock implements ContikiMoteInterface, PolledB
 
   private Simulation simulation;
   private ContikiMote mote;
-  private VarMemory moteMem;
+  private final VarMemory.IntVar simCurrentTime;
+  private final VarMemory.Int64Var simRtimerCurrentTicks;
+  private final VarMemory.IntVar simRtimerPending;
+  private final VarMemory.Int64Var simRtimerNextExpirationTime;
+  private final VarMemory.IntVar simProcessRunValue;
+  private final VarMemory.IntVar simEtimerPending;
+  private final VarMemory.Int32Var simEtimerNextExpirationTime;
 
   private long moteTime; /* Microseconds */
   private long timeDrift; /* Microseconds */
@@ -89,7 +95,14 @@ public class ContikiClock extends Clock implements ContikiMoteInterface, PolledB
   public ContikiClock(Mote mote) {
     this.simulation = mote.getSimulation();
     this.mote = (ContikiMote) mote;
-    this.moteMem = new VarMemory(mote.getMemory());
+    VarMemory moteMem = new VarMemory(mote.getMemory());
+    simCurrentTime = moteMem.bindInt("simCurrentTime");
+    simRtimerCurrentTicks = moteMem.bindInt64("simRtimerCurrentTicks");
+    simRtimerPending = moteMem.bindInt("simRtimerPending");
+    simRtimerNextExpirationTime = moteMem.bindInt64("simRtimerNextExpirationTime");
+    simProcessRunValue = moteMem.bindInt("simProcessRunValue");
+    simEtimerPending = moteMem.bindInt("simEtimerPending");
+    simEtimerNextExpirationTime = moteMem.bindInt32("simEtimerNextExpirationTime");
     timeDrift = 0;
     moteTime = 0;
   }
@@ -101,7 +114,7 @@ public class ContikiClock extends Clock implements ContikiMoteInterface, PolledB
   public void setTime(long newTime) {
     moteTime = newTime;
     if (moteTime > 0) {
-      moteMem.setIntValueOf("simCurrentTime", (int)(newTime/1000));
+      simCurrentTime.set((int)(newTime/1000));
     }
   }
 
@@ -130,33 +143,33 @@ public class ContikiClock extends Clock implements ContikiMoteInterface, PolledB
     /* Update time */
     long currentSimulationTime = simulation.getSimulationTime();
     setTime(currentSimulationTime + timeDrift);
-    moteMem.setInt64ValueOf("simRtimerCurrentTicks", currentSimulationTime);
+    simRtimerCurrentTicks.set(currentSimulationTime);
   }
 
   public void doActionsAfterTick() {
     long currentSimulationTime = mote.getSimulation().getSimulationTime();
 
     /* Always schedule for Rtimer if anything pending */
-    if (moteMem.getIntValueOf("simRtimerPending") != 0) {
-      mote.scheduleNextWakeup(moteMem.getInt64ValueOf("simRtimerNextExpirationTime"));
+    if (simRtimerPending.get() != 0) {
+      mote.scheduleNextWakeup(simRtimerNextExpirationTime.get());
     }
 
     /* Request next tick for remaining events / timers */
-    int processRunValue = moteMem.getIntValueOf("simProcessRunValue");
+    int processRunValue = simProcessRunValue.get();
     if (processRunValue != 0) {
       /* Handle next Contiki event in one millisecond */
       mote.scheduleNextWakeup(currentSimulationTime + Simulation.MILLISECOND);
       return;
     }
 
-    int etimersPending = moteMem.getIntValueOf("simEtimerPending");
+    int etimersPending = simEtimerPending.get();
     if (etimersPending == 0) {
       /* No timers */
       return;
     }
 
     /* Request tick next wakeup time for Etimer */
-    long etimerNextExpirationTime = (long)moteMem.getInt32ValueOf("simEtimerNextExpirationTime") * Simulation.MILLISECOND;
+    long etimerNextExpirationTime = (long)simEtimerNextExpirationTime.get() * Simulation.MILLISECOND;
     long etimerTimeToNextExpiration = etimerNextExpirationTime - moteTime;
     if (etimerTimeToNextExpiration <= 0) {
       /* logger.warn(mote.getID() + ": Event timer already expired, but has been delayed: " + etimerTimeToNextExpiration); */
@@ -73,7 +73,10 @@ public class ContikiEEPROM extends MoteInterface implements ContikiMoteInterface
 
   public int EEPROM_SIZE = 1024; /* Configure EEPROM size here and in eeprom.c. Should really be multiple of 16 */
   private Mote mote = null;
-  private VarMemory moteMem = null;
+  private final VarMemory.ByteVar simEEPROMChanged;
+  private final VarMemory.IntVar simEEPROMRead;
+  private final VarMemory.IntVar simEEPROMWritten;
+  private final VarMemory.ByteArrayVar simEEPROMData;
 
   private int lastRead = 0;
   private int lastWritten = 0;
@@ -87,7 +90,11 @@ public class ContikiEEPROM extends MoteInterface implements ContikiMoteInterface
    */
   public ContikiEEPROM(Mote mote) {
     this.mote = mote;
-    this.moteMem = new VarMemory(mote.getMemory());
+    VarMemory moteMem = new VarMemory(mote.getMemory());
+    simEEPROMChanged = moteMem.bindByte("simEEPROMChanged");
+    simEEPROMRead = moteMem.bindInt("simEEPROMRead");
+    simEEPROMWritten = moteMem.bindInt("simEEPROMWritten");
+    simEEPROMData = moteMem.bindByteArray("simEEPROMData");
   }
 
   public static String[] getCoreInterfaceDependencies() {
@@ -95,13 +102,13 @@ public class ContikiEEPROM extends MoteInterface implements ContikiMoteInterface
   }
 
   public void doActionsAfterTick() {
-    if (moteMem.getByteValueOf("simEEPROMChanged") == 1) {
-      lastRead = moteMem.getIntValueOf("simEEPROMRead");
-      lastWritten = moteMem.getIntValueOf("simEEPROMWritten");
+    if (simEEPROMChanged.get() == 1) {
+      lastRead = simEEPROMRead.get();
+      lastWritten = simEEPROMWritten.get();
 
-      moteMem.setIntValueOf("simEEPROMRead", 0);
-      moteMem.setIntValueOf("simEEPROMWritten", 0);
-      moteMem.setByteValueOf("simEEPROMChanged", (byte) 0);
+      simEEPROMRead.set(0);
+      simEEPROMWritten.set(0);
+      simEEPROMChanged.set((byte) 0);
 
       this.setChanged();
       this.notifyObservers(mote);
@@ -120,7 +127,7 @@ public class ContikiEEPROM extends MoteInterface implements ContikiMoteInterface
       return false;
     }
 
-    moteMem.setByteArray("simEEPROMData", data);
+    simEEPROMData.set(data);
     return true;
   }
 
@@ -130,7 +137,7 @@ public class ContikiEEPROM extends MoteInterface implements ContikiMoteInterface
    * @return Filesystem data
    */
   public byte[] getEEPROMData() {
-    return moteMem.getByteArray("simEEPROMData", EEPROM_SIZE);
+    return simEEPROMData.get(EEPROM_SIZE);
   }
 
   /**
@@ -65,7 +65,7 @@ public class ContikiLED extends LED implements ContikiMoteInterface, PolledAfter
   private static Logger logger = Logger.getLogger(ContikiLED.class);
 
   private Mote mote = null;
-  private VarMemory moteMem = null;
+  private final VarMemory.ByteVar simLedsValue;
   private byte currentLedValue = 0;
 
   private static final byte LEDS_GREEN = 1;
@@ -80,6 +80,7 @@ public class ContikiLED extends LED implements ContikiMoteInterface, PolledAfter
   private static final Color RED = new Color(255, 0, 0);
 
   public ContikiLED() {
+    simLedsValue = null;
   }
 
   /**
@@ -92,7 +93,8 @@ public class ContikiLED extends LED implements ContikiMoteInterface, PolledAfter
    */
   public ContikiLED(Mote mote) {
     this.mote = mote;
-    this.moteMem = new VarMemory(mote.getMemory());
+    VarMemory moteMem = new VarMemory(mote.getMemory());
+    simLedsValue = moteMem.bindByte("simLedsValue");
   }
 
   public static String[] getCoreInterfaceDependencies() {
@@ -118,7 +120,7 @@ public class ContikiLED extends LED implements ContikiMoteInterface, PolledAfter
   public void doActionsAfterTick() {
     boolean ledChanged;
 
-    byte newLedsValue = moteMem.getByteValueOf("simLedsValue");
+    byte newLedsValue = simLedsValue.get();
     if (newLedsValue != currentLedValue) {
       ledChanged = true;
     } else {
@@ -61,7 +61,9 @@ import org.contikios.cooja.mote.memory.VarMemory;
  * @author Fredrik Osterlind
  */
 public class ContikiMoteID extends MoteID implements ContikiMoteInterface {
-  private VarMemory moteMem = null;
+  private final VarMemory.IntVar simMoteID;
+  private final VarMemory.ByteVar simMoteIDChanged;
+  private final VarMemory.IntVar simRandomSeed;
   private static Logger logger = Logger.getLogger(ContikiMoteID.class);
 
   private int moteID = 0;
@@ -78,7 +80,10 @@ public class ContikiMoteID extends MoteID implements ContikiMoteInterface {
    */
   public ContikiMoteID(Mote mote) {
     this.mote = mote;
-    this.moteMem = new VarMemory(mote.getMemory());
+    VarMemory moteMem = new VarMemory(mote.getMemory());
+    simMoteID = moteMem.bindInt("simMoteID");
+    simMoteIDChanged = moteMem.bindByte("simMoteIDChanged");
+    simRandomSeed = moteMem.bindInt("simRandomSeed");
   }
 
   public static String[] getCoreInterfaceDependencies() {
@@ -91,9 +96,9 @@ public class ContikiMoteID extends MoteID implements ContikiMoteInterface {
 
   public void setMoteID(int newID) {
     moteID = newID;
-    moteMem.setIntValueOf("simMoteID", moteID);
-    moteMem.setByteValueOf("simMoteIDChanged", (byte) 1);
-    moteMem.setIntValueOf("simRandomSeed", (int) (mote.getSimulation().getRandomSeed() + newID));
+    simMoteID.set(moteID);
+    simMoteIDChanged.set((byte) 1);
+    simRandomSeed.set((int) (mote.getSimulation().getRandomSeed() + newID));
     setChanged();
     notifyObservers();
   }
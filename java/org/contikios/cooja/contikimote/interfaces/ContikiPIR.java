@@ -66,7 +66,8 @@ import org.contikios.cooja.mote.memory.VarMemory;
 public class ContikiPIR extends PIR implements ContikiMoteInterface {
 
   private ContikiMote mote;
-  private VarMemory moteMem;
+  private final VarMemory.ByteVar simPirIsActive;
+  private final VarMemory.ByteVar simPirChanged;
 
   /**
    * Creates an interface to the PIR at mote.
@@ -78,7 +79,9 @@ public class ContikiPIR extends PIR implements ContikiMoteInterface {
    */
   public ContikiPIR(Mote mote) {
     this.mote = (ContikiMote) mote;
-    this.moteMem = new VarMemory(mote.getMemory());
+    VarMemory moteMem = new VarMemory(mote.getMemory());
+    simPirIsActive = moteMem.bindByte("simPirIsActive");
+    simPirChanged = moteMem.bindByte("simPirChanged");
   }
 
   public static String[] getCoreInterfaceDependencies() {
@@ -97,8 +100,8 @@ public class ContikiPIR extends PIR implements ContikiMoteInterface {
   }
 
   public void doTriggerChange() { 
-    if (moteMem.getByteValueOf("simPirIsActive") == 1) {
-      moteMem.setByteValueOf("simPirChanged", (byte) 1);
+    if (simPirIsActive.get() == 1) {
+      simPirChanged.set((byte) 1);
 
       mote.requestImmediateWakeup();
     }
@@ -91,7 +91,17 @@ import org.contikios.cooja.util.CCITT_CRC;
 public class ContikiRadio extends Radio implements ContikiMoteInterface, PolledAfterActiveTicks {
   private ContikiMote mote;
 
-  private VarMemory myMoteMemory;
+  private final VarMemory.ByteVar simRadioHWOn;
+  private final VarMemory.ByteVar simReceiving;
+  private final VarMemory.IntVar simRadioChannel;
+  private final VarMemory.Int64Var simLastPacketTimestamp;
+  private final VarMemory.IntVar simInSize;
+  private final VarMemory.ByteArrayVar simInDataBuffer;
+  private final VarMemory.ByteVar simPower;
+  private final VarMemory.IntVar simSignalStrength;
+  private final VarMemory.IntVar simLQI;
+  private final VarMemory.IntVar simOutSize;
+  private final VarMemory.ByteArrayVar simOutDataBuffer;
 
   private static Logger logger = Logger.getLogger(ContikiRadio.class);
 
@@ -134,9 +144,20 @@ public class ContikiRadio extends Radio implements ContikiMoteInterface, PolledA
         ContikiRadio.class, "RADIO_TRANSMISSION_RATE_kbps");
 
     this.mote = (ContikiMote) mote;
-    this.myMoteMemory = new VarMemory(mote.getMemory());
-
-    radioOn = myMoteMemory.getByteValueOf("simRadioHWOn") == 1;
+    VarMemory myMoteMemory = new VarMemory(mote.getMemory());
+    simRadioHWOn = myMoteMemory.bindByte("simRadioHWOn");
+    simReceiving = myMoteMemory.bindByte("simReceiving");
+    simRadioChannel = myMoteMemory.bindInt("simRadioChannel");
+    simLastPacketTimestamp = myMoteMemory.bindInt64("simLastPacketTimestamp");
+    simInSize = myMoteMemory.bindInt("simInSize");
+    simInDataBuffer = myMoteMemory.bindByteArray("simInDataBuffer");
+    simPower = myMoteMemory.bindByte("simPower");
+    simSignalStrength = myMoteMemory.bindInt("simSignalStrength");
+    simLQI = myMoteMemory.bindInt("simLQI");
+    simOutSize = myMoteMemory.bindInt("simOutSize");
+    simOutDataBuffer = myMoteMemory.bindByteArray("simOutDataBuffer");
+
+    radioOn = simRadioHWOn.get() == 1;
   }
 
   /* Contiki mote interface support */
@@ -167,7 +188,7 @@ public class ContikiRadio extends Radio implements ContikiMoteInterface, PolledA
   }
 
   public boolean isReceiving() {
-    return myMoteMemory.getByteValueOf("simReceiving") == 1;
+    return simReceiving.get() == 1;
   }
 
   public boolean isInterfered() {
@@ -175,7 +196,7 @@ public class ContikiRadio extends Radio implements ContikiMoteInterface, PolledA
   }
 
   public int getChannel() {
-    return myMoteMemory.getIntValueOf("simRadioChannel");
+    return simRadioChannel.get();
   }
 
   public void signalReceptionStart() {
@@ -185,13 +206,13 @@ public class ContikiRadio extends Radio implements ContikiMoteInterface, PolledA
       return;
     }
 
-    myMoteMemory.setByteValueOf("simReceiving", (byte) 1);
+    simReceiving.set((byte) 1);
     mote.requestImmediateWakeup();
 
     lastEventTime = mote.getSimulation().getSimulationTime();
     lastEvent = RadioEvent.RECEPTION_STARTED;
 
-    myMoteMemory.setInt64ValueOf("simLastPacketTimestamp", lastEventTime);
+    simLastPacketTimestamp.set(lastEventTime);
 
     this.setChanged();
     this.notifyObservers();
@@ -201,13 +222,13 @@ public class ContikiRadio extends Radio implements ContikiMoteInterface, PolledA
     if (isInterfered || packetToMote == null) {
       isInterfered = false;
       packetToMote = null;
-      myMoteMemory.setIntValueOf("simInSize", 0);
+      simInSize.set(0);
     } else {
-      myMoteMemory.setIntValueOf("simInSize", packetToMote.getPacketData().length - 2);
-      myMoteMemory.setByteArray("simInDataBuffer", packetToMote.getPacketData());
+      simInSize.set(packetToMote.getPacketData().length - 2);
+      simInDataBuffer.set(packetToMote.getPacketData());
     }
 
-    myMoteMemory.setByteValueOf("simReceiving", (byte) 0);
+    simReceiving.set((byte) 0);
     mote.requestImmediateWakeup();
     lastEventTime = mote.getSimulation().getSimulationTime();
     lastEvent = RadioEvent.RECEPTION_FINISHED;
@@ -243,15 +264,15 @@ public class ContikiRadio extends Radio implements ContikiMoteInterface, PolledA
   }
 
   public int getCurrentOutputPowerIndicator() {
-    return myMoteMemory.getByteValueOf("simPower");
+    return simPower.get();
   }
 
   public double getCurrentSignalStrength() {
-    return myMoteMemory.getIntValueOf("simSignalStrength");
+    return simSignalStrength.get();
   }
 
   public void setCurrentSignalStrength(double signalStrength) {
-    myMoteMemory.setIntValueOf("simSignalStrength", (int) signalStrength);
+    simSignalStrength.set((int) signalStrength);
   }
 
   /** Set LQI to a value between 0 and 255.
@@ -265,11 +286,11 @@ public class ContikiRadio extends Radio implements ContikiMoteInterface, PolledA
     else if(lqi>0xff) {
       lqi=0xff;
     }
-    myMoteMemory.setIntValueOf("simLQI", lqi);
+    simLQI.set(lqi);
   }
 
   public int getLQI(){
-    return myMoteMemory.getIntValueOf("simLQI");
+    return simLQI.get();
   }
 
   public Position getPosition() {
@@ -280,13 +301,13 @@ public class ContikiRadio extends Radio implements ContikiMoteInterface, PolledA
     long now = mote.getSimulation().getSimulationTime();
 
     /* Check if radio hardware status changed */
-    if (radioOn != (myMoteMemory.getByteValueOf("simRadioHWOn") == 1)) {
+    if (radioOn != (simRadioHWOn.get() == 1)) {
       radioOn = !radioOn;
 
       if (!radioOn) {
-        myMoteMemory.setByteValueOf("simReceiving", (byte) 0);
-        myMoteMemory.setIntValueOf("simInSize", 0);
-        myMoteMemory.setIntValueOf("simOutSize", 0);
+        simReceiving.set((byte) 0);
+        simInSize.set(0);
+        simOutSize.set(0);
         isTransmitting = false;
         lastEvent = RadioEvent.HW_OFF;
       } else {
@@ -302,8 +323,8 @@ public class ContikiRadio extends Radio implements ContikiMoteInterface, PolledA
     }
 
     /* Check if radio output power changed */
-    if (myMoteMemory.getByteValueOf("simPower") != oldOutputPowerIndicator) {
-      oldOutputPowerIndicator = myMoteMemory.getByteValueOf("simPower");
+    if (simPower.get() != oldOutputPowerIndicator) {
+      oldOutputPowerIndicator = simPower.get();
       lastEvent = RadioEvent.UNKNOWN;
       this.setChanged();
       this.notifyObservers();
@@ -319,7 +340,7 @@ public class ContikiRadio extends Radio implements ContikiMoteInterface, PolledA
 
     /* Ongoing transmission */
     if (isTransmitting && now >= transmissionEndTime) {
-      myMoteMemory.setIntValueOf("simOutSize", 0);
+      simOutSize.set(0);
       isTransmitting = false;
       mote.requestImmediateWakeup();
 
@@ -331,13 +352,13 @@ public class ContikiRadio extends Radio implements ContikiMoteInterface, PolledA
     }
 
     /* New transmission */
-    int size = myMoteMemory.getIntValueOf("simOutSize");
+    int size = simOutSize.get();
     if (!isTransmitting && size > 0) {
-      packetFromMote = new COOJARadioPacket(myMoteMemory.getByteArray("simOutDataBuffer", size + 2));
+      packetFromMote = new COOJARadioPacket(simOutDataBuffer.get(size + 2));
 
       if (packetFromMote.getPacketData() == null || packetFromMote.getPacketData().length == 0) {
         logger.warn("Skipping zero sized Contiki packet (no buffer)");
-        myMoteMemory.setIntValueOf("simOutSize", 0);
+        simOutSize.set(0);
         mote.requestImmediateWakeup();
         return;
       }
@@ -68,7 +68,8 @@ import org.contikios.cooja.mote.memory.VarMemory;
 public class ContikiVib extends MoteInterface implements ContikiMoteInterface {
 
   private ContikiMote mote;
-  private VarMemory moteMem;
+  private final VarMemory.ByteVar simVibIsActive;
+  private final VarMemory.ByteVar simVibChanged;
 
   /**
    * Creates an interface to the vibration sensor at mote.
@@ -80,7 +81,9 @@ public class ContikiVib extends MoteInterface implements ContikiMoteInterface {
    */
   public ContikiVib(Mote mote) {
     this.mote = (ContikiMote) mote;
-    this.moteMem = new VarMemory(mote.getMemory());
+    VarMemory moteMem = new VarMemory(mote.getMemory());
+    simVibIsActive = moteMem.bindByte("simVibIsActive");
+    simVibChanged = moteMem.bindByte("simVibChanged");
   }
 
   public static String[] getCoreInterfaceDependencies() {
@@ -99,8 +102,8 @@ public class ContikiVib extends MoteInterface implements ContikiMoteInterface {
   }
   
   public void doTriggerChange() { 
-    if (moteMem.getByteValueOf("simVibIsActive") == 1) {
-      moteMem.setByteValueOf("simVibChanged", (byte) 1);
+    if (simVibIsActive.get() == 1) {
+      simVibChanged.set((byte) 1);
 
       mote.requestImmediateWakeup();
     }
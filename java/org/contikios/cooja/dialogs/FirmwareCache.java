@@ -0,0 +1,310 @@
+/*
+ * Copyright (c) 2026, Cooja contributors
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the Institute nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE INSTITUTE AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE INSTITUTE OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ *
+ */
+
+package org.contikios.cooja.dialogs;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.log4j.Logger;
+
+import org.contikios.cooja.Cooja;
+
+/**
+ * Content-addressed cache of compiled Contiki firmware.
+ *
+ * Cache entries are keyed on the mote type, the compile commands, the
+ * compilation environment and the contents of all source files that may
+ * affect the build, see {@link #createKey(String, String, String[], File...)}.
+ * Each entry holds a set of named output files, such as firmware and map
+ * file, together with a few properties describing the build.
+ *
+ * The cache is enabled by setting the PATH_FIRMWARE_CACHE external tools
+ * setting to a directory. Source directories included in every key are
+ * configured with FIRMWARE_CACHE_SOURCES.
+ */
+public class FirmwareCache {
+  private static final Logger logger = Logger.getLogger(FirmwareCache.class);
+
+  private static final String ENTRY_PROPERTIES = "entry.properties";
+
+  /* Source file digests, by path, size and modification time */
+  private static final Map<String, byte[]> fileDigests = new ConcurrentHashMap<>();
+
+  private final File directory;
+
+  /**
+   * @param directory Cache directory, created when needed
+   */
+  public FirmwareCache(File directory) {
+    this.directory = directory;
+  }
+
+  /**
+   * @return Cache configured in external tools settings, or null if disabled
+   */
+  public static FirmwareCache getDefault() {
+    String path = Cooja.getExternalToolsSetting("PATH_FIRMWARE_CACHE", "");
+    if (path == null || path.trim().isEmpty()) {
+      return null;
+    }
+    return new FirmwareCache(new File(Cooja.resolvePathIdentifiers(path.trim())));
+  }
+
+  /**
+   * @return Cache directory
+   */
+  public File getDirectory() {
+    return directory;
+  }
+
+  /**
+   * Creates a cache key.
+   *
+   * Environment entries must not contain values that differ between
+   * otherwise identical builds, such as unique mote type identifiers.
+   *
+   * @param moteType Mote type class name, or other target description
+   * @param commands Compile commands
+   * @param env Compilation environment, may be null
+   * @param sourceDirs Additional source directories or files
+   * @return Key, or null if no key could be created
+   */
+  public static String createKey(String moteType, String commands, String[] env, File... sourceDirs) {
+    MessageDigest messageDigest;
+    try {
+      messageDigest = MessageDigest.getInstance("MD5");
+    } catch (NoSuchAlgorithmException e) {
+      return null;
+    }
+
+    update(messageDigest, "type " + moteType);
+    update(messageDigest, "commands " + commands);
+    if (env != null) {
+      String[] sorted = env.clone();
+      Arrays.sort(sorted);
+      for (String e : sorted) {
+        update(messageDigest, "env " + e);
+      }
+    }
+
+    try {
+      for (File dir : sourceDirs) {
+        if (dir != null) {
+          updateSources(messageDigest, dir.getCanonicalFile(), dir.getCanonicalFile());
+        }
+      }
+      String sources = Cooja.getExternalToolsSetting("FIRMWARE_CACHE_SOURCES", "");
+      for (String s : sources.split(";")) {
+        if (s.trim().isEmpty()) {
+          continue;
+        }
+        File dir = new File(Cooja.resolvePathIdentifiers(s.trim())).getCanonicalFile();
+        updateSources(messageDigest, dir, dir);
+      }
+    } catch (IOException e) {
+      logger.warn("Could not read sources: " + e.getMessage());
+      return null;
+    }
+
+    StringBuilder sb = new StringBuilder();
+    for (byte b : messageDigest.digest()) {
+      sb.append(String.format("%02x", b));
+    }
+    return sb.toString();
+  }
+
+  private static void update(MessageDigest messageDigest, String s) {
+    messageDigest.update((s + "\n").getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Adds relative paths and contents of all source files below file.
+   * Hidden files and build output directories are skipped.
+   */
+  private static void updateSources(MessageDigest messageDigest, File root, File file)
+      throws IOException {
+    String name = file.getName();
+    if (file != root && (name.startsWith(".") || name.equals("build") || name.startsWith("obj_"))) {
+      return;
+    }
+    if (file.isDirectory()) {
+      File[] files = file.listFiles();
+      if (files == null) {
+        return;
+      }
+      Arrays.sort(files);
+      for (File f : files) {
+        updateSources(messageDigest, root, f);
+      }
+      return;
+    }
+    if (!file.isFile() || !isSourceFile(name)) {
+      return;
+    }
+
+    String path = root.toPath().relativize(file.toPath()).toString();
+    update(messageDigest, "source " + (path.isEmpty() ? name : path));
+    messageDigest.update(getDigest(file));
+  }
+
+  private static boolean isSourceFile(String name) {
+    return name.endsWith(".c") || name.endsWith(".h")
+        || name.endsWith(".S") || name.endsWith(".s")
+        || name.endsWith(".ld") || name.endsWith(".mk")
+        || name.startsWith("Makefile");
+  }
+
+  private static byte[] getDigest(File file) throws IOException {
+    String id = file.getPath() + ":" + file.length() + ":" + file.lastModified();
+    byte[] digest = fileDigests.get(id);
+    if (digest != null) {
+      return digest;
+    }
+
+    MessageDigest messageDigest;
+    try {
+      messageDigest = MessageDigest.getInstance("MD5");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IOException(e);
+    }
+    byte[] buf = new byte[8192];
+    try (InputStream in = new FileInputStream(file)) {
+      int n;
+      while ((n = in.read(buf)) > 0) {
+        messageDigest.update(buf, 0, n);
+      }
+    }
+    digest = messageDigest.digest();
+    fileDigests.put(id, digest);
+    return digest;
+  }
+
+  /**
+   * Copies files of cache entry to given output files.
+   *
+   * @param key Cache key
+   * @param outputs Output files by name. Names missing in the entry are ignored.
+   * @return Entry properties, or null if no entry exists
+   */
+  public Properties restore(String key, Map<String, File> outputs) {
+    if (key == null) {
+      return null;
+    }
+    File entry = new File(directory, key);
+    File propertiesFile = new File(entry, ENTRY_PROPERTIES);
+    if (!propertiesFile.exists()) {
+      return null;
+    }
+
+    Properties properties = new Properties();
+    try (InputStream in = new FileInputStream(propertiesFile)) {
+      properties.load(in);
+      for (Map.Entry<String, File> output : outputs.entrySet()) {
+        File cached = new File(entry, output.getKey());
+        if (!cached.exists()) {
+          continue;
+        }
+        File parent = output.getValue().getAbsoluteFile().getParentFile();
+        if (parent != null) {
+          parent.mkdirs();
+        }
+        Files.copy(cached.toPath(), output.getValue().toPath(), StandardCopyOption.REPLACE_EXISTING);
+      }
+    } catch (IOException e) {
+      logger.warn("Could not restore cached firmware " + key + ": " + e.getMessage());
+      return null;
+    }
+    logger.info("Using cached firmware: " + entry);
+    return properties;
+  }
+
+  /**
+   * Stores output files in a new cache entry. Existing entries are kept.
+   *
+   * @param key Cache key
+   * @param properties Entry properties, may be null
+   * @param outputs Output files by name. Missing files are skipped.
+   */
+  public void store(String key, Properties properties, Map<String, File> outputs) {
+    if (key == null) {
+      return;
+    }
+    File entry = new File(directory, key);
+    if (entry.exists()) {
+      return;
+    }
+
+    /* Write to temporary directory first, so that concurrent readers never
+     * see incomplete entries */
+    File tmp = null;
+    try {
+      directory.mkdirs();
+      tmp = Files.createTempDirectory(directory.toPath(), key + "-").toFile();
+      for (Map.Entry<String, File> output : outputs.entrySet()) {
+        if (output.getValue() != null && output.getValue().exists()) {
+          Files.copy(output.getValue().toPath(), new File(tmp, output.getKey()).toPath());
+        }
+      }
+      try (OutputStream out = new FileOutputStream(new File(tmp, ENTRY_PROPERTIES))) {
+        (properties != null ? properties : new Properties()).store(out, "Cooja firmware cache entry");
+      }
+      if (tmp.renameTo(entry)) {
+        logger.info("Cached firmware: " + entry);
+        tmp = null;
+      }
+    } catch (IOException e) {
+      logger.warn("Could not cache firmware " + key + ": " + e.getMessage());
+    } finally {
+      if (tmp != null) {
+        File[] files = tmp.listFiles();
+        if (files != null) {
+          for (File f : files) {
+            f.delete();
+          }
+        }
+        tmp.delete();
+      }
+    }
+  }
+}
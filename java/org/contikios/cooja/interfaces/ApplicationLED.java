@@ -2,6 +2,9 @@ package org.contikios.cooja.interfaces;
 import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Graphics;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.Collection;
 import java.util.Observable;
 import java.util.Observer;
@@ -14,7 +17,7 @@ import org.jdom.Element;
 import org.contikios.cooja.*;
 import org.contikios.cooja.contikimote.interfaces.ContikiLED;
 
-public class ApplicationLED extends LED {
+public class ApplicationLED extends LED implements Checkpointable {
     private static Logger logger = Logger.getLogger(ContikiLED.class);
 
     private Mote mote = null;
@@ -137,6 +140,14 @@ public class ApplicationLED extends LED {
        this.deleteObserver(observer);
      }
 
+     public void writeCheckpoint(DataOutputStream out) throws IOException {
+       out.writeByte(currentLedValue);
+     }
+
+     public void readCheckpoint(DataInputStream in) throws IOException {
+       currentLedValue = in.readByte();
+     }
+
      public Collection<Element> getConfigXML() {
        return null;
      }
@@ -35,6 +35,9 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Observable;
@@ -50,6 +53,7 @@ import javax.swing.JPanel;
 import org.apache.log4j.Logger;
 import org.jdom.Element;
 
+import org.contikios.cooja.Checkpointable;
 import org.contikios.cooja.Mote;
 import org.contikios.cooja.MoteTimeEvent;
 import org.contikios.cooja.RadioPacket;
@@ -64,7 +68,7 @@ import org.contikios.cooja.Simulation;
  *
  * @author Fredrik Osterlind
  */
-public class ApplicationRadio extends Radio implements NoiseSourceRadio, DirectionalAntennaRadio {
+public class ApplicationRadio extends Radio implements NoiseSourceRadio, DirectionalAntennaRadio, Checkpointable {
   private static Logger logger = Logger.getLogger(ApplicationRadio.class);
 
   private Simulation simulation;
@@ -366,6 +370,43 @@ public class ApplicationRadio extends Radio implements NoiseSourceRadio, Directi
     return panel;
   }
 
+  /**
+   * Writes radio state. Packets are not stored, the radio must be idle.
+   */
+  public void writeCheckpoint(DataOutputStream out) throws IOException {
+    if (isTransmitting || isReceiving || isInterfered) {
+      throw new IOException("Radio of " + mote + " is not idle");
+    }
+    out.writeBoolean(radioOn);
+    out.writeUTF(lastEvent.name());
+    out.writeLong(lastEventTime);
+    out.writeDouble(signalStrength);
+    out.writeInt(radioChannel);
+    out.writeDouble(outputPower);
+    out.writeInt(outputPowerIndicator);
+    out.writeInt(noiseSignal);
+  }
+
+  public void readCheckpoint(DataInputStream in) throws IOException {
+    radioOn = in.readBoolean();
+    try {
+      lastEvent = RadioEvent.valueOf(in.readUTF());
+    } catch (IllegalArgumentException e) {
+      throw new IOException("Unknown radio event: " + e.getMessage());
+    }
+    lastEventTime = in.readLong();
+    signalStrength = in.readDouble();
+    radioChannel = in.readInt();
+    outputPower = in.readDouble();
+    outputPowerIndicator = in.readInt();
+    noiseSignal = in.readInt();
+    isTransmitting = false;
+    isReceiving = false;
+    isInterfered = false;
+    interfered = 0;
+    packetToMote = null;
+  }
+
   public Collection<Element> getConfigXML() {
     /* TODO Save channel info? */
     /* TODO Save output power? */
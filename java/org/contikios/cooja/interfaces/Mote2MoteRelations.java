@@ -104,28 +104,38 @@ public class Mote2MoteRelations extends MoteInterface {
         ((Log)mi).addObserver(logObserver);
       }
     }
+  }
 
-    /* Observe other motes: if removed, remove our relations to them too */
-    mote.getSimulation().getEventCentral().addMoteCountListener(moteCountListener = new MoteCountListener() {
-      public void moteWasAdded(Mote mote) {
-        /* Ignored */
-      }
-      public void moteWasRemoved(Mote mote) {
-        /* This mote was removed - cleanup by removed() */
-        if (Mote2MoteRelations.this.mote == mote) {
-          return;
+  /* Observe other motes while having relations: if removed, remove our relations to them too */
+  private void observeMoteCount(boolean observe) {
+    if (observe && moteCountListener == null) {
+      mote.getSimulation().getEventCentral().addMoteCountListener(moteCountListener = new MoteCountListener() {
+        public void moteWasAdded(Mote mote) {
+          /* Ignored */
         }
+        public void moteWasRemoved(Mote mote) {
+          /* This mote was removed - cleanup by removed() */
+          if (Mote2MoteRelations.this.mote == mote) {
+            return;
+          }
 
-        /* Remove mote from our relations */
-        if (!relations.contains(mote)) {
-          return;
+          /* Remove mote from our relations */
+          if (!relations.contains(mote)) {
+            return;
+          }
+          relations.remove(mote);
+          gui.removeMoteRelation(Mote2MoteRelations.this.mote, mote);
+          if (relations.isEmpty()) {
+            observeMoteCount(false);
+          }
         }
-        relations.remove(mote);
-        gui.removeMoteRelation(Mote2MoteRelations.this.mote, mote);
-      }
-    });
+      });
+    } else if (!observe && moteCountListener != null) {
+      mote.getSimulation().getEventCentral().removeMoteCountListener(moteCountListener);
+      moteCountListener = null;
+    }
   }
-  
+
   public void removed() {
     super.removed();
 
@@ -144,7 +154,7 @@ public class Mote2MoteRelations extends MoteInterface {
     }
     relations.clear();
 
-    mote.getSimulation().getEventCentral().removeMoteCountListener(moteCountListener);
+    observeMoteCount(false);
   }
 
   private void handleNewLog(String msg) {
@@ -198,9 +208,13 @@ public class Mote2MoteRelations extends MoteInterface {
         return;
       }
       relations.add(destinationMote);
+      observeMoteCount(true);
       gui.addMoteRelation(mote, destinationMote, decodeColor(colorName));
     } else {
       relations.remove(destinationMote);
+      if (relations.isEmpty()) {
+        observeMoteCount(false);
+      }
       gui.removeMoteRelation(mote, destinationMote);
     }
 
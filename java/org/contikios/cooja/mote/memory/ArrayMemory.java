@@ -30,6 +30,7 @@
 package org.contikios.cooja.mote.memory;
 
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Map;
 
 /**
@@ -45,6 +46,11 @@ public class ArrayMemory implements MemoryInterface {
   private final boolean readonly;
   private final Map<String, Symbol> symbols;// XXX Allow to set symbols
 
+  /* Granularity of dirty tracking, in bytes */
+  private static final int DIRTY_PAGE_SIZE = 64;
+  /* Pages written via setMemorySegment() or clearMemory() since clearDirty() */
+  private final BitSet dirtyPages = new BitSet();
+
   public ArrayMemory(long address, int size, MemoryLayout layout, Map<String, Symbol> symbols) {
     this(address, layout, new byte[size], symbols);
   }
@@ -85,12 +91,74 @@ public class ArrayMemory implements MemoryInterface {
     if (readonly) {
       throw new MoteMemoryException("Invalid write access for readonly memory");
     }
-    System.arraycopy(data, 0, memory, (int) (addr - startAddress), data.length);
+    int offset = (int) (addr - startAddress);
+    System.arraycopy(data, 0, memory, offset, data.length);
+    markDirty(offset, data.length);
   }
 
   @Override
   public void clearMemory() {
     Arrays.fill(memory, (byte) 0x00);
+    markDirty(0, memory.length);
+  }
+
+  /**
+   * @return True if memory is readonly
+   */
+  boolean isReadonly() {
+    return readonly;
+  }
+
+  /**
+   * Marks given range as written, for callers writing the array returned by
+   * getMemory() directly.
+   *
+   * @param offset Offset relative to the start of this memory
+   * @param length Number of bytes written
+   */
+  void markDirty(int offset, int length) {
+    if (length <= 0) {
+      return;
+    }
+    dirtyPages.set(offset / DIRTY_PAGE_SIZE, (offset + length - 1) / DIRTY_PAGE_SIZE + 1);
+  }
+
+  /**
+   * @return True if memory was written since the last call to clearDirty()
+   */
+  public boolean isDirty() {
+    return !dirtyPages.isEmpty();
+  }
+
+  /**
+   * Returns the byte ranges written since the last call to clearDirty().
+   * Ranges are page aligned and may therefore cover unchanged bytes.
+   *
+   * @return Pairs of start offset (inclusive) and end offset (exclusive),
+   * relative to the start of this memory
+   */
+  public int[] getDirtyRanges() {
+    int[] ranges = new int[8];
+    int count = 0;
+    int page = dirtyPages.nextSetBit(0);
+    while (page >= 0) {
+      int end = dirtyPages.nextClearBit(page);
+      if (count == ranges.length) {
+        ranges = Arrays.copyOf(ranges, 2 * count);
+      }
+      ranges[count++] = page * DIRTY_PAGE_SIZE;
+      ranges[count++] = Math.min(end * DIRTY_PAGE_SIZE, memory.length);
+      page = dirtyPages.nextSetBit(end);
+    }
+    return Arrays.copyOf(ranges, count);
+  }
+
+  /**
+   * Forgets all writes so far, e.g. after the memory has been synchronized
+   * with its backing storage.
+   */
+  public void clearDirty() {
+    dirtyPages.clear();
   }
 
   @Override
@@ -30,6 +30,7 @@ package org.contikios.cooja.mote.memory;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -97,7 +98,14 @@ public class SectionMoteMemory implements MemoryInterface {
       memLayout = section.getLayout();
     }
 
+    if (memLayout == null) {
+      memLayout = section.getLayout();
+    }
+
     sections.put(name, section);
+    if (!watches.isEmpty()) {
+      rebuildWatchRanges(false);
+    }
     if (section.getSymbolMap() != null) {
       for (String s : section.getSymbolMap().keySet()) {
         // XXX how to handle double names here?
@@ -179,6 +187,7 @@ public class SectionMoteMemory implements MemoryInterface {
   @Override
   public void clearMemory() {
     sections.clear();
+    rebuildWatchRanges(false);
   }
 
   @Override
@@ -260,18 +269,25 @@ public class SectionMoteMemory implements MemoryInterface {
 
   @Override
   public boolean addSegmentMonitor(SegmentMonitor.EventType flag, long address, int size, SegmentMonitor monitor) {
-    PolledMemorySegments t = new PolledMemorySegments(monitor, address, size);
-    polledMemories.add(t);
+    watches.add(new Watch(monitor, address, size));
+    try {
+      rebuildWatchRanges(true);
+    } catch (MoteMemoryException e) {
+      watches.remove(watches.size() - 1);
+      rebuildWatchRanges(false);
+      throw e;
+    }
     return true;
   }
 
   @Override
   public boolean removeSegmentMonitor(long address, int size, SegmentMonitor monitor) {
-    for (PolledMemorySegments mcm: polledMemories) {
-      if (mcm.mm != monitor || mcm.address != address || mcm.size != size) {
+    for (Watch w: watches) {
+      if (w.monitor != monitor || w.address != address || w.size != size) {
         continue;
       }
-      polledMemories.remove(mcm);
+      watches.remove(w);
+      rebuildWatchRanges(false);
       return true;
     }
     return false;
@@ -295,35 +311,155 @@ public class SectionMoteMemory implements MemoryInterface {
     return clone;
   }
 
-  private ArrayList<PolledMemorySegments> polledMemories = new ArrayList<PolledMemorySegments>();
+  /* Segment monitors, in registration order */
+  private final ArrayList<Watch> watches = new ArrayList<Watch>();
+  /* Monitored ranges, overlapping and adjacent monitors merged */
+  private WatchRange[] watchRanges = new WatchRange[0];
+
+  /**
+   * Notifies segment monitors of all monitored ranges that changed since the
+   * last poll. Ranges are compared in place against sections backed by an
+   * array, without copying.
+   */
   public void pollForMemoryChanges() {
-    for (PolledMemorySegments mem: polledMemories.toArray(new PolledMemorySegments[0])) {
-      mem.notifyIfChanged();
+    /* Monitors may be added or removed while notifying */
+    WatchRange[] ranges = watchRanges;
+    for (WatchRange range: ranges) {
+      range.notifyIfChanged();
+    }
+  }
+
+  /**
+   * Merges monitored segments into ranges within a single section,
+   * each with a shadow copy of its memory content.
+   *
+   * @param strict Throw if a monitored segment is not inside a section
+   */
+  private void rebuildWatchRanges(boolean strict) {
+    Watch[] sorted = watches.toArray(new Watch[watches.size()]);
+    Arrays.sort(sorted, new Comparator<Watch>() {
+      @Override
+      public int compare(Watch a, Watch b) {
+        return Long.compare(a.address, b.address);
+      }
+    });
+
+    ArrayList<WatchRange> ranges = new ArrayList<WatchRange>();
+    int first = 0;
+    while (first < sorted.length) {
+      Watch w = sorted[first];
+      MemoryInterface section = null;
+      for (MemoryInterface sec : sections.values()) {
+        if (inSection(sec, w.address, w.size)) {
+          section = sec;
+          break;
+        }
+      }
+      if (section == null) {
+        if (strict) {
+          throw new MoteMemoryException(
+                  "Monitoring memory segment [0x%x,0x%x] failed: No section available",
+                  w.address, w.address + w.size - 1);
+        }
+        first++;
+        continue;
+      }
+
+      long start = w.address;
+      long end = w.address + w.size;
+      int last = first + 1;
+      while (last < sorted.length
+              && sorted[last].address <= end
+              && inSection(section, sorted[last].address, sorted[last].size)) {
+        end = Math.max(end, sorted[last].address + sorted[last].size);
+        last++;
+      }
+      ranges.add(new WatchRange(section, start, (int) (end - start),
+              Arrays.copyOfRange(sorted, first, last)));
+      first = last;
+    }
+
+    /* Keep previous content of already monitored bytes, so changes made
+     * since the last poll are still reported */
+    for (WatchRange range : ranges) {
+      for (WatchRange old : watchRanges) {
+        long from = Math.max(range.address, old.address);
+        long to = Math.min(range.address + range.size, old.address + old.size);
+        if (from < to && old.section == range.section) {
+          System.arraycopy(old.shadow, (int) (from - old.address),
+                  range.shadow, (int) (from - range.address), (int) (to - from));
+        }
+      }
+    }
+    watchRanges = ranges.toArray(new WatchRange[ranges.size()]);
+  }
+
+  private static class Watch {
+    public final SegmentMonitor monitor;
+    public final long address;
+    public final int size;
+
+    public Watch(SegmentMonitor monitor, long address, int size) {
+      this.monitor = monitor;
+      this.address = address;
+      this.size = size;
     }
   }
 
-  private class PolledMemorySegments {
-    public final SegmentMonitor mm;
+  private class WatchRange {
+    public final MemoryInterface section;
     public final long address;
     public final int size;
-    private byte[] oldMem;
+    public final Watch[] watches;
+    private final byte[] shadow; /* Content at last poll */
+    private final boolean[] changed;
 
-    public PolledMemorySegments(SegmentMonitor mm, long address, int size) {
-      this.mm = mm;
+    public WatchRange(MemoryInterface section, long address, int size, Watch[] watches) {
+      this.section = section;
       this.address = address;
       this.size = size;
-      
-      oldMem = getMemorySegment(address, size);
+      this.watches = watches;
+      this.shadow = section.getMemorySegment(address, size);
+      this.changed = new boolean[watches.length];
     }
 
     private void notifyIfChanged() {
-      byte[] newMem = getMemorySegment(address, size);
-      if (Arrays.equals(oldMem, newMem)) {
+      byte[] mem;
+      int offset;
+      if (section instanceof ArrayMemory) {
+        mem = section.getMemory();
+        offset = (int) (address - section.getStartAddr());
+      } else {
+        mem = section.getMemorySegment(address, size);
+        offset = 0;
+      }
+
+      if (equals(shadow, 0, mem, offset, size)) {
         return;
       }
-      
-      mm.memoryChanged(SectionMoteMemory.this, SegmentMonitor.EventType.WRITE, address);
-      oldMem = newMem;
+
+      /* Find changed segments and update shadow before notifying,
+       * monitors may write memory */
+      for (int i = 0; i < watches.length; i++) {
+        int from = (int) (watches[i].address - address);
+        changed[i] = !equals(shadow, from, mem, offset + from, watches[i].size);
+      }
+      System.arraycopy(mem, offset, shadow, 0, size);
+
+      for (int i = 0; i < watches.length; i++) {
+        if (changed[i]) {
+          watches[i].monitor.memoryChanged(SectionMoteMemory.this, SegmentMonitor.EventType.WRITE, watches[i].address);
+        }
+      }
+    }
+
+    private boolean equals(byte[] a, int aOffset, byte[] b, int bOffset, int length) {
+      for (int i = 0; i < length; i++) {
+        if (a[aOffset + i] != b[bOffset + i]) {
+          return false;
+        }
+      }
+      return true;
     }
   }
 
@@ -29,6 +29,8 @@
  */
 package org.contikios.cooja.mote.memory;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.Collection;
 import java.util.Set;
 
@@ -359,6 +361,325 @@ public class VarMemory extends Memory {
     setByteArray(getVariable(varName).addr, data);
   }
 
+  /**
+   * Binds integer variable with given name.
+   * The size of the integer depends on the memory layout.
+   *
+   * @param varName Variable name
+   * @return Bound variable
+   * @throws UnknownVariableException If variable not found
+   */
+  public IntVar bindInt(String varName) throws UnknownVariableException {
+    return new IntVar(memIntf, getVariable(varName));
+  }
+
+  /**
+   * Binds byte variable with given name.
+   *
+   * @param varName Variable name
+   * @return Bound variable
+   * @throws UnknownVariableException If variable not found
+   */
+  public ByteVar bindByte(String varName) throws UnknownVariableException {
+    return new ByteVar(memIntf, getVariable(varName));
+  }
+
+  /**
+   * Binds 32 bit integer variable with given name.
+   *
+   * @param varName Variable name
+   * @return Bound variable
+   * @throws UnknownVariableException If variable not found
+   */
+  public Int32Var bindInt32(String varName) throws UnknownVariableException {
+    return new Int32Var(memIntf, getVariable(varName));
+  }
+
+  /**
+   * Binds 64 bit integer variable with given name.
+   *
+   * @param varName Variable name
+   * @return Bound variable
+   * @throws UnknownVariableException If variable not found
+   */
+  public Int64Var bindInt64(String varName) throws UnknownVariableException {
+    return new Int64Var(memIntf, getVariable(varName));
+  }
+
+  /**
+   * Binds byte array variable with given name.
+   *
+   * @param varName Variable name
+   * @return Bound variable
+   * @throws UnknownVariableException If variable not found
+   */
+  public ByteArrayVar bindByteArray(String varName) throws UnknownVariableException {
+    return new ByteArrayVar(memIntf, getVariable(varName));
+  }
+
+  /**
+   * A variable bound to its location in memory.
+   * <p>
+   * The variable name is looked up, and the memory section holding the
+   * variable is found, only once when binding. If the section is backed by
+   * an array, the variable is then accessed at a fixed offset in that array.
+   * If the section provides a direct buffer for the variable, the variable
+   * is accessed in that buffer.
+   */
+  public static abstract class BoundVar {
+
+    private final Symbol symbol;
+    private final MemoryInterface section;
+    protected final MemoryLayout layout;
+
+    /* Backing array memory, or null if accessed via the section */
+    private final ArrayMemory array;
+    private final int offset;
+
+    /* Direct buffer at variable, or null if not available */
+    private final ByteBuffer buffer;
+
+    protected BoundVar(MemoryInterface memIntf, Symbol symbol, int size) {
+      this.symbol = symbol;
+
+      MemoryInterface found = memIntf;
+      if (memIntf instanceof SectionMoteMemory) {
+        for (MemoryInterface sec : ((SectionMoteMemory) memIntf).getSections().values()) {
+          if (SectionMoteMemory.inSection(sec, symbol.addr, size)) {
+            found = sec;
+            break;
+          }
+        }
+      }
+      this.section = found;
+      this.layout = memIntf.getLayout();
+
+      if (section instanceof ArrayMemory
+              && SectionMoteMemory.inSection(section, symbol.addr, size)) {
+        array = (ArrayMemory) section;
+        offset = (int) (symbol.addr - section.getStartAddr());
+      } else {
+        array = null;
+        offset = 0;
+      }
+
+      if (section instanceof DirectBufferMemory) {
+        buffer = ((DirectBufferMemory) section).getDirectBuffer(symbol.addr, size);
+      } else {
+        buffer = null;
+      }
+    }
+
+    /**
+     * @return Variable symbol
+     */
+    public Symbol getSymbol() {
+      return symbol;
+    }
+
+    /**
+     * @return Variable address
+     */
+    public long getAddress() {
+      return symbol.addr;
+    }
+
+    protected long read(int size) {
+      if (buffer != null) {
+        switch (size) {
+          case 1:
+            return buffer.get(0);
+          case 2:
+            return buffer.getShort(0);
+          case 4:
+            return buffer.getInt(0);
+          case 8:
+            return buffer.getLong(0);
+        }
+      }
+
+      byte[] data;
+      int pos;
+      if (array != null) {
+        data = array.getMemory();
+        pos = offset;
+      } else {
+        data = section.getMemorySegment(symbol.addr, size);
+        pos = 0;
+      }
+
+      long value = 0;
+      if (layout.order == ByteOrder.LITTLE_ENDIAN) {
+        for (int i = size - 1; i >= 0; i--) {
+          value = (value << 8) | (data[pos + i] & 0xFF);
+        }
+      } else {
+        for (int i = 0; i < size; i++) {
+          value = (value << 8) | (data[pos + i] & 0xFF);
+        }
+      }
+      /* Sign extend */
+      int shift = 64 - 8 * size;
+      return (value << shift) >> shift;
+    }
+
+    protected void write(int size, long value) {
+      if (buffer != null) {
+        switch (size) {
+          case 1:
+            buffer.put(0, (byte) value);
+            return;
+          case 2:
+            buffer.putShort(0, (short) value);
+            return;
+          case 4:
+            buffer.putInt(0, (int) value);
+            return;
+          case 8:
+            buffer.putLong(0, value);
+            return;
+        }
+      }
+
+      byte[] data;
+      int pos;
+      if (array != null && !array.isReadonly()) {
+        data = array.getMemory();
+        pos = offset;
+      } else {
+        data = new byte[size];
+        pos = 0;
+      }
+
+      if (layout.order == ByteOrder.LITTLE_ENDIAN) {
+        for (int i = 0; i < size; i++) {
+          data[pos + i] = (byte) (value >> (8 * i));
+        }
+      } else {
+        for (int i = 0; i < size; i++) {
+          data[pos + size - 1 - i] = (byte) (value >> (8 * i));
+        }
+      }
+
+      if (array != null && !array.isReadonly()) {
+        array.markDirty(offset, size);
+      } else {
+        section.setMemorySegment(symbol.addr, data);
+      }
+    }
+
+    protected byte[] readBytes(int length) {
+      if (array != null && offset + length <= array.getTotalSize()) {
+        byte[] ret = new byte[length];
+        System.arraycopy(array.getMemory(), offset, ret, 0, length);
+        return ret;
+      }
+      return section.getMemorySegment(symbol.addr, length);
+    }
+
+    protected void writeBytes(byte[] data) {
+      if (array != null && !array.isReadonly()
+              && offset + data.length <= array.getTotalSize()) {
+        System.arraycopy(data, 0, array.getMemory(), offset, data.length);
+        array.markDirty(offset, data.length);
+        return;
+      }
+      section.setMemorySegment(symbol.addr, data);
+    }
+  }
+
+  /**
+   * Bound integer variable, see {@link VarMemory#bindInt(String)}.
+   */
+  public static class IntVar extends BoundVar {
+    private IntVar(MemoryInterface memIntf, Symbol symbol) {
+      super(memIntf, symbol, memIntf.getLayout().intSize);
+    }
+
+    public int get() {
+      return (int) read(layout.intSize);
+    }
+
+    public void set(int value) {
+      write(layout.intSize, value);
+    }
+  }
+
+  /**
+   * Bound byte variable, see {@link VarMemory#bindByte(String)}.
+   */
+  public static class ByteVar extends BoundVar {
+    private ByteVar(MemoryInterface memIntf, Symbol symbol) {
+      super(memIntf, symbol, 1);
+    }
+
+    public byte get() {
+      return (byte) read(1);
+    }
+
+    public void set(byte value) {
+      write(1, value);
+    }
+  }
+
+  /**
+   * Bound 32 bit integer variable, see {@link VarMemory#bindInt32(String)}.
+   */
+  public static class Int32Var extends BoundVar {
+    private Int32Var(MemoryInterface memIntf, Symbol symbol) {
+      super(memIntf, symbol, 4);
+    }
+
+    public int get() {
+      return (int) read(4);
+    }
+
+    public void set(int value) {
+      write(4, value);
+    }
+  }
+
+  /**
+   * Bound 64 bit integer variable, see {@link VarMemory#bindInt64(String)}.
+   */
+  public static class Int64Var extends BoundVar {
+    private Int64Var(MemoryInterface memIntf, Symbol symbol) {
+      super(memIntf, symbol, 8);
+    }
+
+    public long get() {
+      return read(8);
+    }
+
+    public void set(long value) {
+      write(8, value);
+    }
+  }
+
+  /**
+   * Bound byte array variable, see {@link VarMemory#bindByteArray(String)}.
+   */
+  public static class ByteArrayVar extends BoundVar {
+    private ByteArrayVar(MemoryInterface memIntf, Symbol symbol) {
+      super(memIntf, symbol, 1);
+    }
+
+    /**
+     * @param length Number of bytes to read
+     * @return Bytes read from start of array
+     */
+    public byte[] get(int length) {
+      return readBytes(length);
+    }
+
+    /**
+     * @param data Bytes to write to start of array
+     */
+    public void set(byte[] data) {
+      writeBytes(data);
+    }
+  }
+
   /**
    * Adds a monitor for the specified address region.
    *
@@ -140,6 +140,28 @@ public abstract class AbstractWakeupMote implements Mote {
     return true;
   }
 
+  /**
+   * @param event Event
+   * @return True iff event is this mote's wakeup event
+   */
+  public boolean isWakeupEvent(TimeEvent event) {
+    return event == executeMoteEvent;
+  }
+
+  /**
+   * Schedules the wakeup event of a restored checkpoint.
+   * Unlike {@link #scheduleNextWakeup(long)}, this method may be called
+   * while the simulation is stopped.
+   *
+   * @param time Simulation time
+   */
+  public void restoreWakeup(long time) {
+    if (executeMoteEvent.isScheduled()) {
+      executeMoteEvent.remove();
+    }
+    simulation.scheduleEvent(executeMoteEvent, time);
+  }
+
   public void removed() {
   }
   
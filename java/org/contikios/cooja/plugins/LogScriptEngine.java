@@ -311,7 +311,9 @@ public class LogScriptEngine {
             if (!Cooja.isVisualized()) {
               logger.fatal("Test script error, terminating Cooja.");
               logger.fatal("Script error:", e);
-              System.exit(1);
+              simulation.stopSimulation();
+              simulation.getCooja().doQuitHeadless(1);
+              return;
             }
 
             logger.fatal("Script error:", e);
@@ -398,19 +400,7 @@ public class LogScriptEngine {
   private Runnable quitRunnable = new Runnable() {
     public void run() {
       simulation.stopSimulation();
-      new Thread() {
-        public void run() {
-          try { Thread.sleep(500); } catch (InterruptedException e) { }
-          simulation.getCooja().doQuit(false, exitCode);
-        };
-      }.start();
-      new Thread() {
-        public void run() {
-          try { Thread.sleep(2000); } catch (InterruptedException e) { }
-          logger.warn("Killing Cooja");
-          System.exit(exitCode);
-        };
-      }.start();
+      simulation.getCooja().doQuitHeadless(exitCode);
     }
   };
 
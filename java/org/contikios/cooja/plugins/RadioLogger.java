@@ -788,6 +788,7 @@ public class RadioLogger extends VisPlugin {
     if (radioMediumObserver != null) {
       radioMedium.deleteRadioTransmissionObserver(radioMediumObserver);
     }
+    analyzerWithPcap.closePcap();
   }
 
   @Override
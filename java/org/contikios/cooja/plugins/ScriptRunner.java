@@ -113,7 +113,7 @@ public class ScriptRunner extends VisPlugin {
   private Simulation simulation;
   private LogScriptEngine engine;
 
-  private static BufferedWriter logWriter = null; /* For non-GUI tests */
+  private BufferedWriter logWriter = null; /* For non-GUI tests */
 
   private JEditorPane codeEditor;
   private JTextArea logTextArea;
@@ -342,8 +342,7 @@ public class ScriptRunner extends VisPlugin {
         try {
           /* Continously write test output to file */
           if (logWriter == null) {
-            /* Warning: static variable, used by all active test editor plugins */
-            File logFile = new File("COOJA.testlog");
+            File logFile = simulation.getCooja().getTestLogFile();
             if (logFile.exists()) {
               logFile.delete();
             }
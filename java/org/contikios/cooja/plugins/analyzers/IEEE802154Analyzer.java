@@ -51,6 +51,16 @@ public class IEEE802154Analyzer extends PacketAnalyzer {
     }
   }
 
+  public void closePcap() {
+    if (pcapExporter != null) {
+      try {
+        pcapExporter.closePcap();
+      } catch (IOException e) {
+        logger.error("Could not close pcap file", e);
+      }
+    }
+  }
+
   @Override
   public boolean matchPacket(Packet packet) {
     return packet.level == MAC_LEVEL;
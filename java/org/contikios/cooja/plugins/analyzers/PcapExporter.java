@@ -1,63 +1,411 @@
 package org.contikios.cooja.plugins.analyzers;
 
-import java.io.DataOutputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 import org.apache.log4j.Logger;
 
+/**
+ * Writes radio packets to pcap or pcapng files.
+ *
+ * Packets are batched into large buffers that are written to file by a
+ * background thread. At most MAX_PENDING_BUFFERS filled buffers are queued,
+ * after which exporting blocks until the writer catches up. When no packets
+ * are exported, the writer takes over buffered data older than
+ * MAX_BUFFER_AGE_NS by itself.
+ *
+ * All methods may be called from any thread, e.g. the shutdown hook closes
+ * the file while the simulation may still be exporting.
+ */
 public class PcapExporter {
   private static final Logger logger = Logger.getLogger(PcapExporter.class);
 
-  DataOutputStream out;
+  private static final int BUFFER_SIZE = 256*1024;
+  private static final int MAX_PENDING_BUFFERS = 16;
+  private static final long MAX_BUFFER_AGE_NS = 1000000000L; /* Hand over buffers at least every second */
+
+  private static final int LINKTYPE_IEEE802_15_4 = 195;
+  private static final int SNAPLEN = 4096;
+
+  /* pcapng block types */
+  private static final int PCAPNG_SHB = 0x0A0D0D0A;
+  private static final int PCAPNG_IDB = 0x00000001;
+  private static final int PCAPNG_EPB = 0x00000006;
+
+  private ByteBuffer buffer = null;
+  private long bufferTime;
+  private boolean pcapng = false;
+  private int interfaces = 0;
+  private long packets = 0;
+
+  private final BlockingQueue<ByteBuffer> pending = new ArrayBlockingQueue<ByteBuffer>(MAX_PENDING_BUFFERS);
+  private final BlockingQueue<ByteBuffer> free = new ArrayBlockingQueue<ByteBuffer>(MAX_PENDING_BUFFERS);
+  private static final ByteBuffer CLOSE = ByteBuffer.allocate(0);
+
+  /* Guards the current buffer; the writer thread only tries to take it */
+  private final ReentrantLock lock = new ReentrantLock();
+
+  private Thread writerThread = null;
+  private Thread shutdownHook = null;
+  private volatile IOException writeError = null;
 
   public PcapExporter() throws IOException {
   }
 
   public void openPcap(File pcapFile) throws IOException {
-    if (out != null) {
-      closePcap();
+    lock.lock();
+    try {
+      if (pcapFile == null) {
+        /* pcap file not specified, use default file name */
+        pcapFile = new File("radiolog-" + System.currentTimeMillis() + ".pcap");
+      }
+      open(pcapFile, false);
+
+      /* pcap header */
+      buffer.putInt(0xa1b2c3d4);
+      buffer.putShort((short) 0x0002);
+      buffer.putShort((short) 0x0004);
+      buffer.putInt(0);
+      buffer.putInt(0);
+      buffer.putInt(SNAPLEN);
+      buffer.putInt(LINKTYPE_IEEE802_15_4);
+
+      logger.info("Opened pcap file " + pcapFile);
+    } finally {
+      lock.unlock();
     }
-    if (pcapFile == null) {
-      /* pcap file not specified, use default file name */
-      pcapFile = new File("radiolog-" + System.currentTimeMillis() + ".pcap");
+  }
+
+  /**
+   * Opens a pcapng file. Packets are exported per capture interface,
+   * see {@link #addInterface(String)}.
+   *
+   * @param pcapFile File
+   * @throws IOException On file error
+   */
+  public void openPcapng(File pcapFile) throws IOException {
+    lock.lock();
+    try {
+      if (pcapFile == null) {
+        pcapFile = new File("radiolog-" + System.currentTimeMillis() + ".pcapng");
+      }
+      open(pcapFile, true);
+
+      /* Section header block */
+      buffer.putInt(PCAPNG_SHB);
+      buffer.putInt(28);
+      buffer.putInt(0x1A2B3C4D);
+      buffer.putShort((short) 1);
+      buffer.putShort((short) 0);
+      buffer.putLong(-1); /* Section length not specified */
+      buffer.putInt(28);
+
+      logger.info("Opened pcapng file " + pcapFile);
+    } finally {
+      lock.unlock();
     }
-    out = new DataOutputStream(new FileOutputStream(pcapFile));
-    /* pcap header */
-    out.writeInt(0xa1b2c3d4);
-    out.writeShort(0x0002);
-    out.writeShort(0x0004);
-    out.writeInt(0);
-    out.writeInt(0);
-    out.writeInt(4096);
-    out.writeInt(195); /* 195 for LINKTYPE_IEEE802_15_4 */
+  }
+
+  /**
+   * Adds a capture interface to a pcapng file, for example one per receiving mote.
+   *
+   * @param name Interface name
+   * @return Interface ID for {@link #exportPacketData(byte[], long, int)}
+   * @throws IOException On write error
+   */
+  public int addInterface(String name) throws IOException {
+    lock.lock();
+    try {
+      if (!pcapng) {
+        throw new IOException("Interfaces require a pcapng file");
+      }
+      byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+      int optionLength = 4 + pad(nameBytes.length) + 4;
+      int length = 20 + optionLength;
+      reserve(length);
+
+      /* Interface description block */
+      buffer.putInt(PCAPNG_IDB);
+      buffer.putInt(length);
+      buffer.putShort((short) LINKTYPE_IEEE802_15_4);
+      buffer.putShort((short) 0);
+      buffer.putInt(SNAPLEN);
+      buffer.putShort((short) 2); /* if_name */
+      buffer.putShort((short) nameBytes.length);
+      buffer.put(nameBytes);
+      putPadding(nameBytes.length);
+      buffer.putInt(0); /* opt_endofopt */
+      buffer.putInt(length);
 
-    out.flush();
-    logger.info("Opened pcap file " + pcapFile);
+      return interfaces++;
+    } finally {
+      lock.unlock();
+    }
   }
 
   public void closePcap() throws IOException {
-    out.close();
-    out = null;
+    lock.lock();
+    try {
+      if (buffer == null) {
+        return;
+      }
+      handOver();
+      buffer = null;
+      try {
+        pending.put(CLOSE);
+        writerThread.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      writerThread = null;
+      try {
+        Runtime.getRuntime().removeShutdownHook(shutdownHook);
+      } catch (IllegalStateException e) {
+        /* Already shutting down */
+      }
+      shutdownHook = null;
+      logger.info("Closed pcap file after " + packets + " packets");
+
+      IOException e = writeError;
+      writeError = null;
+      if (e != null) {
+        throw e;
+      }
+    } finally {
+      lock.unlock();
+    }
   }
 
   public void exportPacketData(byte[] data, long ts) throws IOException {
-    if (out == null) {
-      /* pcap file never set, open default */
-      openPcap(null);
-    }
+    lock.lock();
     try {
+      if (buffer == null) {
+        /* pcap file never set, open default */
+        openPcap(null);
+      }
+      if (pcapng) {
+        if (interfaces == 0) {
+          addInterface("cooja");
+        }
+        exportPacketData(data, ts, 0);
+        return;
+      }
+      reserve(16 + data.length);
+
       /* pcap packet header */
-      out.writeInt((int) (ts / 1000000));
-      out.writeInt((int) (ts % 1000000));
-      out.writeInt(data.length);
-      out.writeInt(data.length);
+      buffer.putInt((int) (ts / 1000000));
+      buffer.putInt((int) (ts % 1000000));
+      buffer.putInt(data.length);
+      buffer.putInt(data.length);
       /* and the data */
-      out.write(data);
-      out.flush();
-    } catch (Exception e) {
-      logger.error(e);
+      buffer.put(data);
+      packets++;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Exports packet on the given pcapng capture interface.
+   *
+   * @param data Packet data
+   * @param ts Timestamp (us)
+   * @param interfaceId Interface, see {@link #addInterface(String)}
+   * @throws IOException On write error
+   */
+  public void exportPacketData(byte[] data, long ts, int interfaceId) throws IOException {
+    lock.lock();
+    try {
+      if (!pcapng || interfaceId < 0 || interfaceId >= interfaces) {
+        throw new IOException("No such pcapng interface: " + interfaceId);
+      }
+      int length = 32 + pad(data.length);
+      reserve(length);
+
+      /* Enhanced packet block, default timestamp resolution is us */
+      buffer.putInt(PCAPNG_EPB);
+      buffer.putInt(length);
+      buffer.putInt(interfaceId);
+      buffer.putInt((int) (ts >>> 32));
+      buffer.putInt((int) ts);
+      buffer.putInt(data.length);
+      buffer.putInt(data.length);
+      buffer.put(data);
+      putPadding(data.length);
+      buffer.putInt(length);
+      packets++;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Queues all exported data for writing.
+   */
+  public void flush() throws IOException {
+    lock.lock();
+    try {
+      if (buffer != null) {
+        handOver();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private static int pad(int length) {
+    return (length + 3) & ~3;
+  }
+
+  private void putPadding(int length) {
+    for (int i = length; i < pad(length); i++) {
+      buffer.put((byte) 0);
+    }
+  }
+
+  private void open(File pcapFile, boolean pcapng) throws IOException {
+    if (buffer != null) {
+      closePcap();
+    }
+    final FileChannel channel = new FileOutputStream(pcapFile).getChannel();
+    this.pcapng = pcapng;
+    interfaces = 0;
+    packets = 0;
+    buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    bufferTime = System.nanoTime();
+
+    writerThread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          while (true) {
+            ByteBuffer b = pending.poll(MAX_BUFFER_AGE_NS, TimeUnit.NANOSECONDS);
+            if (b == null) {
+              b = takeStaleBuffer();
+              if (b == null) {
+                continue;
+              }
+            }
+            if (b == CLOSE) {
+              break;
+            }
+            try {
+              while (b.hasRemaining()) {
+                channel.write(b);
+              }
+            } catch (IOException e) {
+              if (writeError == null) {
+                logger.error("Could not write pcap data", e);
+              }
+              writeError = e;
+            }
+            if (b.capacity() == BUFFER_SIZE) {
+              b.clear();
+              free.offer(b);
+            }
+          }
+        } catch (InterruptedException e) {
+        } finally {
+          try {
+            channel.close();
+          } catch (IOException e) {
+            logger.error("Could not close pcap file", e);
+          }
+        }
+      }
+    }, "PcapExporter " + pcapFile.getName());
+    writerThread.setDaemon(true);
+    writerThread.start();
+
+    /* Write out buffered packets if Cooja exits without closing us */
+    shutdownHook = new Thread() {
+      @Override
+      public void run() {
+        try {
+          closePcap();
+        } catch (IOException e) {
+          logger.error("Could not close pcap file", e);
+        }
+      }
+    };
+    Runtime.getRuntime().addShutdownHook(shutdownHook);
+  }
+
+  /**
+   * Called by the writer thread when no buffers are pending. Takes over the
+   * current buffer if it has not been handed over for MAX_BUFFER_AGE_NS.
+   *
+   * @return Buffer to write, or null if there is none or the exporter is busy
+   */
+  private ByteBuffer takeStaleBuffer() {
+    if (!lock.tryLock()) {
+      /* Exporting: the exporter hands over old buffers itself */
+      return null;
+    }
+    try {
+      if (buffer == null
+          || buffer.position() == 0
+          || !pending.isEmpty()
+          || System.nanoTime() - bufferTime < MAX_BUFFER_AGE_NS) {
+        return null;
+      }
+      ByteBuffer b = buffer;
+      b.flip();
+      buffer = free.poll();
+      if (buffer == null) {
+        buffer = ByteBuffer.allocate(BUFFER_SIZE);
+      }
+      bufferTime = System.nanoTime();
+      return b;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Makes room for length bytes in the current buffer.
+   */
+  private void reserve(int length) throws IOException {
+    if (writeError != null) {
+      IOException e = writeError;
+      writeError = null;
+      throw e;
+    }
+    if (buffer.remaining() < length
+        || System.nanoTime() - bufferTime > MAX_BUFFER_AGE_NS) {
+      handOver();
+      if (buffer.remaining() < length) {
+        /* Oversized record */
+        buffer = ByteBuffer.allocate(length);
+      }
+    }
+  }
+
+  /**
+   * Queues current buffer to the writer thread, blocking while
+   * MAX_PENDING_BUFFERS are already queued.
+   */
+  private void handOver() {
+    if (buffer.position() > 0) {
+      buffer.flip();
+      try {
+        pending.put(buffer);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      buffer = free.poll();
+      if (buffer == null) {
+        buffer = ByteBuffer.allocate(BUFFER_SIZE);
+      }
     }
+    bufferTime = System.nanoTime();
   }
 
 }
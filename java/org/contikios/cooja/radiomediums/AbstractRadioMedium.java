@@ -30,17 +30,24 @@
 
 package org.contikios.cooja.radiomediums;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Observable;
 import java.util.Observer;
+import java.util.Set;
 import java.util.WeakHashMap;
 
 import org.apache.log4j.Logger;
 
+import org.contikios.cooja.Checkpointable;
 import org.contikios.cooja.Mote;
 import org.contikios.cooja.RadioConnection;
 import org.contikios.cooja.RadioMedium;
@@ -68,7 +75,7 @@ import org.jdom.Element;
  *
  * @author Fredrik Osterlind
  */
-public abstract class AbstractRadioMedium extends RadioMedium {
+public abstract class AbstractRadioMedium extends RadioMedium implements Checkpointable {
 	private static Logger logger = Logger.getLogger(AbstractRadioMedium.class);
 	
 	/* Signal strengths in dBm.
@@ -85,6 +92,16 @@ public abstract class AbstractRadioMedium extends RadioMedium {
 	
 	private RadioConnection lastConnection = null;
 	
+	/* Incremental signal strength updates */
+	private boolean incrementalSignalStrengths = false;
+	private boolean signalStrengthsValid = false;
+	private HashMap<RadioConnection, SignalStrengths> connectionSignalStrengths = new HashMap<RadioConnection, SignalStrengths>();
+	private HashMap<Radio, ArrayList<RadioConnection>> radioSignalConnections = new HashMap<Radio, ArrayList<RadioConnection>>();
+	
+	/* Reused by full signal strength updates */
+	private final SignalStrengths signalStrengthsCollector = new SignalStrengths();
+	private final ArrayList<Radio> pendingInterfered = new ArrayList<Radio>();
+	
 	private Simulation simulation = null;
 	
 	/* Book-keeping */
@@ -124,6 +141,14 @@ public abstract class AbstractRadioMedium extends RadioMedium {
 		return activeConnections.toArray(new RadioConnection[0]);
 	}
 	
+	/**
+	 * @param event Event
+	 * @return True iff event is a reception delayed by a radio medium
+	 */
+	public static boolean isDelayedRadioEvent(TimeEvent event) {
+		return event instanceof DelayedRadioEvent;
+	}
+	
 	/**
 	 * Creates a new connection from given radio.
 	 *
@@ -134,54 +159,257 @@ public abstract class AbstractRadioMedium extends RadioMedium {
 	 */
 	abstract public RadioConnection createConnections(Radio radio);
 	
+	/**
+	 * Background signal strength of a radio, i.e. its signal strength when no
+	 * connection reaches it.
+	 *
+	 * @param radio Radio
+	 * @return Background signal strength; Default: base RSSI
+	 */
+	protected double getBackgroundSignalStrength(Radio radio) {
+		return getBaseRssi(radio);
+	}
+	
+	/**
+	 * Reports the signal strengths caused by an active connection.
+	 *
+	 * Implementations must only depend on the connection and the radios it
+	 * reaches, as the result may be reused by later incremental updates.
+	 *
+	 * @param conn Active connection
+	 * @param signalStrengths Signal strengths caused by the connection
+	 * @see #updateSignalStrengths()
+	 */
+	protected void addSignalStrengths(RadioConnection conn, SignalStrengths signalStrengths) {
+		Radio source = conn.getSource();
+		
+		/* Set signal strength to strong on source and destinations */
+		signalStrengths.raise(source, SS_STRONG);
+		for (Radio dstRadio : conn.getDestinations()) {
+			if (source.getChannel() >= 0 &&
+					dstRadio.getChannel() >= 0 &&
+					source.getChannel() != dstRadio.getChannel()) {
+				continue;
+			}
+			signalStrengths.raise(dstRadio, SS_STRONG);
+		}
+		
+		/* Set signal strength to strong on interfered */
+		for (Radio intfRadio : conn.getInterfered()) {
+			signalStrengths.raise(intfRadio, SS_STRONG);
+			if (source.getChannel() >= 0 &&
+					intfRadio.getChannel() >= 0 &&
+					source.getChannel() != intfRadio.getChannel()) {
+				continue;
+			}
+			signalStrengths.interfere(intfRadio);
+		}
+	}
+	
 	/**
 	 * Updates all radio interfaces' signal strengths according to
 	 * the current active connections.
 	 */
 	public void updateSignalStrengths() {
+		connectionSignalStrengths.clear();
+		radioSignalConnections.clear();
 		
 		/* Reset signal strengths */
 		for (Radio radio : getRegisteredRadios()) {
-			radio.setCurrentSignalStrength(getBaseRssi(radio));
+			radio.setCurrentSignalStrength(getBackgroundSignalStrength(radio));
+		}
+		
+		/* Raise signal strengths reached by active connections */
+		pendingInterfered.clear();
+		for (RadioConnection conn : getActiveConnections()) {
+			SignalStrengths signalStrengths = collectSignalStrengths(conn);
+			signalStrengths.raiseRadios(null);
+			signalStrengths.addInterfered(pendingInterfered);
 		}
 		
-		/* Set signal strength to strong on destinations */
-		RadioConnection[] conns = getActiveConnections();
-		for (RadioConnection conn : conns) {
-			if (conn.getSource().getCurrentSignalStrength() < SS_STRONG) {
-				conn.getSource().setCurrentSignalStrength(SS_STRONG);
+		/* Interfere ongoing receptions */
+		for (Radio intfRadio : pendingInterfered) {
+			if (!intfRadio.isInterfered()) {
+				intfRadio.interfereAnyReception();
 			}
-			for (Radio dstRadio : conn.getDestinations()) {
-				if (conn.getSource().getChannel() >= 0 &&
-						dstRadio.getChannel() >= 0 &&
-						conn.getSource().getChannel() != dstRadio.getChannel()) {
-					continue;
-				}
-				if (dstRadio.getCurrentSignalStrength() < SS_STRONG) {
-					dstRadio.setCurrentSignalStrength(SS_STRONG);
-				}
+		}
+		pendingInterfered.clear();
+		
+		signalStrengthsValid = incrementalSignalStrengths;
+	}
+	
+	/**
+	 * Updates signal strengths after a radio event.
+	 *
+	 * In incremental mode only radios reached by a connection involving the
+	 * event radio, or by the started or finished connection, are recomputed.
+	 * Otherwise, or if the previous state was invalidated, all signal strengths
+	 * are recomputed by {@link #updateSignalStrengths()}.
+	 *
+	 * @param radio Radio that caused the event
+	 * @param conn Connection started or finished by the event, or null
+	 */
+	protected void updateSignalStrengths(Radio radio, RadioConnection conn) {
+		if (!incrementalSignalStrengths || !signalStrengthsValid) {
+			updateSignalStrengths();
+			return;
+		}
+		
+		/* Radios that may have changed role in any connection */
+		LinkedHashSet<Radio> affected = new LinkedHashSet<Radio>();
+		affected.add(radio);
+		if (conn != null) {
+			addConnectionRadios(conn, affected);
+		}
+		
+		/* Connections reaching any of these radios must be collected again */
+		LinkedHashSet<RadioConnection> staleConns = new LinkedHashSet<RadioConnection>();
+		if (conn != null) {
+			staleConns.add(conn);
+		}
+		for (Radio r : affected) {
+			ArrayList<RadioConnection> conns = radioSignalConnections.get(r);
+			if (conns != null) {
+				staleConns.addAll(conns);
 			}
 		}
 		
-		/* Set signal strength to weak on interfered */
-		for (RadioConnection conn : conns) {
-			for (Radio intfRadio : conn.getInterfered()) {
-				if (intfRadio.getCurrentSignalStrength() < SS_STRONG) {
-					intfRadio.setCurrentSignalStrength(SS_STRONG);
-				}
-				if (conn.getSource().getChannel() >= 0 &&
-						intfRadio.getChannel() >= 0 &&
-						conn.getSource().getChannel() != intfRadio.getChannel()) {
-					continue;
-				}
-				if (!intfRadio.isInterfered()) {
-					/*logger.warn("Radio was not interfered");*/
-					intfRadio.interfereAnyReception();
-				}
+		LinkedHashSet<Radio> updated = new LinkedHashSet<Radio>(affected);
+		ArrayList<Radio> interfered = new ArrayList<Radio>();
+		for (RadioConnection staleConn : staleConns) {
+			SignalStrengths old = removeSignalStrengths(staleConn);
+			if (old != null) {
+				old.addRadios(updated);
+			}
+			if (!activeConnections.contains(staleConn)) {
+				continue;
+			}
+			SignalStrengths signalStrengths = collectSignalStrengths(staleConn);
+			signalStrengths.addRadios(updated);
+			signalStrengths.addInterfered(interfered);
+		}
+		
+		/* Recompute signal strengths of all radios reached by changes */
+		LinkedHashSet<RadioConnection> reaching = new LinkedHashSet<RadioConnection>();
+		for (Radio r : updated) {
+			r.setCurrentSignalStrength(getBackgroundSignalStrength(r));
+			ArrayList<RadioConnection> conns = radioSignalConnections.get(r);
+			if (conns != null) {
+				reaching.addAll(conns);
+			}
+		}
+		for (RadioConnection c : reaching) {
+			connectionSignalStrengths.get(c).raiseRadios(updated);
+		}
+		
+		/* Interfere ongoing receptions */
+		for (Radio intfRadio : interfered) {
+			if (!intfRadio.isInterfered()) {
+				intfRadio.interfereAnyReception();
 			}
 		}
 	}
 	
+	/**
+	 * Collects the signal strengths of the given connection, and in incremental
+	 * mode remembers them for later updates. Otherwise the returned collector is
+	 * reused by the next call.
+	 */
+	private SignalStrengths collectSignalStrengths(RadioConnection conn) {
+		if (!incrementalSignalStrengths) {
+			signalStrengthsCollector.clear();
+			addSignalStrengths(conn, signalStrengthsCollector);
+			return signalStrengthsCollector;
+		}
+		
+		SignalStrengths signalStrengths = new SignalStrengths();
+		addSignalStrengths(conn, signalStrengths);
+		
+		/* Also track radios the connection does not raise, as their role in
+		 * the connection may change later (e.g. destination to interfered) */
+		signalStrengths.reach(conn.getSource());
+		for (Radio r : conn.getAllDestinations()) {
+			signalStrengths.reach(r);
+		}
+		for (Radio r : conn.getInterfered()) {
+			signalStrengths.reach(r);
+		}
+		
+		connectionSignalStrengths.put(conn, signalStrengths);
+		for (int i = 0; i < signalStrengths.size; i++) {
+			Radio r = signalStrengths.radios[i];
+			ArrayList<RadioConnection> conns = radioSignalConnections.get(r);
+			if (conns == null) {
+				conns = new ArrayList<RadioConnection>();
+				radioSignalConnections.put(r, conns);
+			}
+			/* A radio may be reported several times by the same connection */
+			if (conns.isEmpty() || conns.get(conns.size() - 1) != conn) {
+				conns.add(conn);
+			}
+		}
+		return signalStrengths;
+	}
+	
+	private SignalStrengths removeSignalStrengths(RadioConnection conn) {
+		SignalStrengths signalStrengths = connectionSignalStrengths.remove(conn);
+		if (signalStrengths == null) {
+			return null;
+		}
+		for (int i = 0; i < signalStrengths.size; i++) {
+			Radio r = signalStrengths.radios[i];
+			ArrayList<RadioConnection> conns = radioSignalConnections.get(r);
+			if (conns == null) {
+				continue;
+			}
+			conns.remove(conn);
+			if (conns.isEmpty()) {
+				radioSignalConnections.remove(r);
+			}
+		}
+		return signalStrengths;
+	}
+	
+	private static void addConnectionRadios(RadioConnection conn, Collection<Radio> radios) {
+		radios.add(conn.getSource());
+		for (Radio r : conn.getAllDestinations()) {
+			radios.add(r);
+		}
+		for (Radio r : conn.getInterfered()) {
+			radios.add(r);
+		}
+	}
+	
+	/**
+	 * @return True if signal strengths are updated incrementally
+	 */
+	public boolean isIncrementalSignalStrengths() {
+		return incrementalSignalStrengths;
+	}
+	
+	/**
+	 * Enables or disables incremental signal strength updates.
+	 *
+	 * When enabled, radio events only recompute the signal strengths of radios
+	 * reached by the connections involved in the event. Radio channels, positions
+	 * etc. of other radios are then not re-read until these radios are involved
+	 * in an event themselves.
+	 *
+	 * @param incremental True to enable incremental updates
+	 */
+	public void setIncrementalSignalStrengths(boolean incremental) {
+		incrementalSignalStrengths = incremental;
+		invalidateSignalStrengths();
+	}
+	
+	/**
+	 * Forces the next signal strength update to recompute all radios.
+	 * Should be called when signal strengths change for other reasons than
+	 * radio events, for example when radios move.
+	 */
+	protected void invalidateSignalStrengths() {
+		signalStrengthsValid = false;
+	}
 	
 	/**
 	 * Remove given radio from any active connections.
@@ -239,14 +467,14 @@ public abstract class AbstractRadioMedium extends RadioMedium {
 				case UNKNOWN:
 				case HW_ON: {
 					/* Update signal strengths */
-					updateSignalStrengths();
+					updateSignalStrengths(radio, null);
 				}
 				break;
 				case HW_OFF: {
 					/* Remove any radio connections from this radio */
 					removeFromActiveConnections(radio);
 					/* Update signal strengths */
-					updateSignalStrengths();
+					updateSignalStrengths(radio, null);
 				}
 				break;
 				case TRANSMISSION_STARTED: {
@@ -273,7 +501,7 @@ public abstract class AbstractRadioMedium extends RadioMedium {
 						} else {
 							/* EXPERIMENTAL: Simulating propagation delay */
 							final Radio delayedRadio = r;
-							TimeEvent delayedEvent = new TimeEvent(0) {
+							TimeEvent delayedEvent = new DelayedRadioEvent() {
 								public void execute(long t) {
 									delayedRadio.signalReceptionStart();
 								}
@@ -282,7 +510,7 @@ public abstract class AbstractRadioMedium extends RadioMedium {
 							
 						}
 					} /* Update signal strengths */
-					updateSignalStrengths();
+					updateSignalStrengths(radio, newConnection);
 					
 					/* Notify observers */
 					lastConnection = null;
@@ -309,7 +537,7 @@ public abstract class AbstractRadioMedium extends RadioMedium {
 							
 							/* EXPERIMENTAL: Simulating propagation delay */
 							final Radio delayedRadio = dstRadio;
-							TimeEvent delayedEvent = new TimeEvent(0) {
+							TimeEvent delayedEvent = new DelayedRadioEvent() {
 								public void execute(long t) {
 									delayedRadio.signalReceptionEnd();
 								}
@@ -328,7 +556,7 @@ public abstract class AbstractRadioMedium extends RadioMedium {
 					}
 					
 					/* Update signal strengths */
-					updateSignalStrengths();
+					updateSignalStrengths(radio, connection);
 					
 					/* Notify observers */
 					radioTransmissionObservable.setChangedAndNotify();
@@ -350,27 +578,31 @@ public abstract class AbstractRadioMedium extends RadioMedium {
 						return;
 					}
 					
-					for (Radio dstRadio : connection.getAllDestinations()) {
+					/* Sent once per byte by some radios: avoid per destination lookups */
+					Radio[] dstRadios = connection.getAllDestinations();
+					long[] dstDelays = connection.getAllDestinationDelays();
+					for (int i = 0; i < dstRadios.length; i++) {
+						Radio dstRadio = dstRadios[i];
 						if (!(dstRadio instanceof CustomDataRadio) || 
 						    !((CustomDataRadio) dstRadio).canReceiveFrom((CustomDataRadio)radio)) {
 							/* Radios communicate via radio packets */
 							continue;
 						}
 						
-						if (connection.getDestinationDelay(dstRadio) == 0) {
+						if (dstDelays[i] == 0) {
 							((CustomDataRadio) dstRadio).receiveCustomData(data);
 						} else {
 							
 							/* EXPERIMENTAL: Simulating propagation delay */
 							final CustomDataRadio delayedRadio = (CustomDataRadio) dstRadio;
 							final Object delayedData = data;
-							TimeEvent delayedEvent = new TimeEvent(0) {
+							TimeEvent delayedEvent = new DelayedRadioEvent() {
 								public void execute(long t) {
 									delayedRadio.receiveCustomData(delayedData);
 								}
 							};
 							simulation.scheduleEvent(delayedEvent,
-									simulation.getSimulationTime() + connection.getDestinationDelay(dstRadio));
+									simulation.getSimulationTime() + dstDelays[i]);
 							
 						}
 					}
@@ -410,7 +642,7 @@ public abstract class AbstractRadioMedium extends RadioMedium {
 							/* EXPERIMENTAL: Simulating propagation delay */
 							final Radio delayedRadio = dstRadio;
 							final RadioPacket delayedPacket = packet;
-							TimeEvent delayedEvent = new TimeEvent(0) {
+							TimeEvent delayedEvent = new DelayedRadioEvent() {
 								public void execute(long t) {
 									delayedRadio.setReceivedPacket(delayedPacket);
 								}
@@ -527,6 +759,7 @@ public abstract class AbstractRadioMedium extends RadioMedium {
 	*/
 	public void setSendRssi(Radio radio, double rssi) {
 		sendRssi.put(radio, rssi);
+		invalidateSignalStrengths();
 	}
 	
 	/**
@@ -574,6 +807,25 @@ public abstract class AbstractRadioMedium extends RadioMedium {
 	public RadioConnection getLastConnection() {
 		return lastConnection;
 	}
+	/**
+	 * Writes book-keeping counters. Connections are not stored, there must
+	 * be no active connections.
+	 */
+	public void writeCheckpoint(DataOutputStream out) throws IOException {
+		if (!activeConnections.isEmpty()) {
+			throw new IOException("Radio medium has " + activeConnections.size() + " active connections");
+		}
+		out.writeInt(COUNTER_TX);
+		out.writeInt(COUNTER_RX);
+		out.writeInt(COUNTER_INTERFERED);
+	}
+	
+	public void readCheckpoint(DataInputStream in) throws IOException {
+		COUNTER_TX = in.readInt();
+		COUNTER_RX = in.readInt();
+		COUNTER_INTERFERED = in.readInt();
+	}
+	
 	public Collection<Element> getConfigXML() {
 		Collection<Element> config = new ArrayList<Element>();
 		for(Entry<Radio, Double> ent: baseRssi.entrySet()){
@@ -590,6 +842,12 @@ public abstract class AbstractRadioMedium extends RadioMedium {
 			config.add(element);
 		}
 
+		if (incrementalSignalStrengths) {
+			Element element = new Element("IncrementalSignalStrengths");
+			element.addContent("" + incrementalSignalStrengths);
+			config.add(element);
+		}
+
 		return config;
 	}
 	
@@ -612,7 +870,108 @@ public abstract class AbstractRadioMedium extends RadioMedium {
 			} else 	if (element.getName().equals("SendRSSIConfig")) {
 				Radio r = simulation.getMoteWithID(Integer.parseInt(element.getAttribute("Mote").getValue())).getInterfaces().getRadio();				
 				setSendRssi(r, Double.parseDouble(element.getText()));
-			} 
+			} else if (element.getName().equals("IncrementalSignalStrengths")) {
+				setIncrementalSignalStrengths(Boolean.parseBoolean(element.getText()));
+			}
+		}
+	}
+
+	/**
+	 * Reception event delayed by the propagation delay of a connection.
+	 */
+	private static abstract class DelayedRadioEvent extends TimeEvent {
+		public DelayedRadioEvent() {
+			super(0);
+		}
+	}
+	
+	/**
+	 * Signal strengths caused by a single connection.
+	 *
+	 * @see AbstractRadioMedium#addSignalStrengths(RadioConnection, SignalStrengths)
+	 */
+	protected static class SignalStrengths {
+		/* Radios may occur several times; the strongest entry applies */
+		private Radio[] radios = new Radio[16];
+		private double[] strengths = new double[16];
+		private int size = 0;
+		private Radio[] interfered = new Radio[4];
+		private int interferedSize = 0;
+		
+		/**
+		 * Raises the signal strength of the given radio to at least the given value.
+		 *
+		 * @param radio Radio
+		 * @param signalStrength Signal strength
+		 */
+		public void raise(Radio radio, double signalStrength) {
+			if (size == radios.length) {
+				radios = Arrays.copyOf(radios, 2 * size);
+				strengths = Arrays.copyOf(strengths, 2 * size);
+			}
+			radios[size] = radio;
+			strengths[size] = signalStrength;
+			size++;
+		}
+		
+		/**
+		 * Marks the given radio as reached by the connection without raising its
+		 * signal strength, for example when it is on another channel.
+		 * Incremental updates re-collect the connection when such radios change.
+		 *
+		 * @param radio Radio
+		 */
+		public void reach(Radio radio) {
+			raise(radio, Double.NEGATIVE_INFINITY);
+		}
+		
+		/**
+		 * Interferes any ongoing reception of the given radio once all signal
+		 * strengths have been updated.
+		 *
+		 * @param radio Radio
+		 */
+		public void interfere(Radio radio) {
+			if (interferedSize == interfered.length) {
+				interfered = Arrays.copyOf(interfered, 2 * interferedSize);
+			}
+			interfered[interferedSize++] = radio;
+		}
+		
+		private void clear() {
+			Arrays.fill(radios, 0, size, null);
+			Arrays.fill(interfered, 0, interferedSize, null);
+			size = 0;
+			interferedSize = 0;
+		}
+		
+		/**
+		 * Raises the current signal strengths of the reached radios.
+		 *
+		 * @param only Only raise these radios, or null for all
+		 */
+		private void raiseRadios(Set<Radio> only) {
+			for (int i = 0; i < size; i++) {
+				Radio radio = radios[i];
+				if (only != null && !only.contains(radio)) {
+					continue;
+				}
+				if (radio.getCurrentSignalStrength() < strengths[i]) {
+					radio.setCurrentSignalStrength(strengths[i]);
+				}
+			}
+		}
+		
+		private void addRadios(Collection<Radio> dest) {
+			for (int i = 0; i < size; i++) {
+				dest.add(radios[i]);
+			}
+		}
+		
+		private void addInterfered(Collection<Radio> dest) {
+			for (int i = 0; i < interferedSize; i++) {
+				dest.add(interfered[i]);
+			}
 		}
 	}
 
@@ -125,6 +125,7 @@ public class DirectedGraphMedium extends AbstractRadioMedium {
    */
   public void requestEdgeAnalysis() {
     edgesDirty = true;
+    invalidateSignalStrengths();
   }
 
   public boolean needsEdgeAnalysis() {
@@ -144,50 +145,32 @@ public class DirectedGraphMedium extends AbstractRadioMedium {
 
 
   
-  public void updateSignalStrengths() {
-
-    /* Reset signal strengths (Default: SS_NOTHING) */
-    for (Radio radio : getRegisteredRadios()) {
-      radio.setCurrentSignalStrength(getBaseRssi(radio));
-    }
-
-    /* Set signal strengths */
-    RadioConnection[] conns = getActiveConnections();
-    for (RadioConnection conn : conns) {
-      /*
-       * Set sending RSSI. (Default: SS_STRONG)
-       */
-      if (conn.getSource().getCurrentSignalStrength() < getSendRssi(conn.getSource())) {
-        conn.getSource().setCurrentSignalStrength(getSendRssi(conn.getSource()));
-      }
-      //Maximum reception signal of all possible radios received
-      DGRMDestinationRadio dstRadios[] =  getPotentialDestinations(conn.getSource());
-      if (dstRadios == null) continue; 
-      for (DGRMDestinationRadio dstRadio : dstRadios) {
-
-        int activeSourceChannel = conn.getSource().getChannel();
-        int edgeChannel = dstRadio.channel;
-        int activeDstChannel = dstRadio.radio.getChannel();
-        if (activeSourceChannel != -1) {
-          if (edgeChannel != -1 && activeSourceChannel != edgeChannel) {
-            continue;
-          }
-          if (activeDstChannel != -1 && activeSourceChannel != activeDstChannel) {
-            continue;
-          }
+  protected void addSignalStrengths(RadioConnection conn, SignalStrengths signalStrengths) {
+    /*
+     * Set sending RSSI. (Default: SS_STRONG)
+     */
+    signalStrengths.raise(conn.getSource(), getSendRssi(conn.getSource()));
+
+    //Maximum reception signal of all possible radios received
+    DGRMDestinationRadio dstRadios[] =  getPotentialDestinations(conn.getSource());
+    if (dstRadios == null) return;
+    for (DGRMDestinationRadio dstRadio : dstRadios) {
+      signalStrengths.reach(dstRadio.radio);
+
+      int activeSourceChannel = conn.getSource().getChannel();
+      int edgeChannel = dstRadio.channel;
+      int activeDstChannel = dstRadio.radio.getChannel();
+      if (activeSourceChannel != -1) {
+        if (edgeChannel != -1 && activeSourceChannel != edgeChannel) {
+          continue;
         }
-
-        if (dstRadio.radio.getCurrentSignalStrength() < dstRadio.signal) {
-          dstRadio.radio.setCurrentSignalStrength(dstRadio.signal);
+        if (activeDstChannel != -1 && activeSourceChannel != activeDstChannel) {
+          continue;
         }
-        /* We can set this without further checks, as it will only be read
-         * if a packet is actually received. In that case it is set to the
-         * correct value */
-        dstRadio.radio.setLQI(dstRadio.lqi);
       }
-    
-      
-    } 
+
+      signalStrengths.raise(dstRadio.radio, dstRadio.signal);
+    }
   }
 
 
@@ -328,6 +311,8 @@ public class DirectedGraphMedium extends AbstractRadioMedium {
       /* Success: radio starts receiving */
       /*logger.info(source + ": OK: " + dest.radio);*/
       newConn.addDestination(dest.radio, dest.delay);
+      /* LQI is only read if the packet is actually received */
+      dest.radio.setLQI(dest.lqi);
     }
 
     return newConn;
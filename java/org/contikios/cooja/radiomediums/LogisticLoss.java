@@ -30,12 +30,15 @@
 
 package org.contikios.cooja.radiomediums;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Hashtable;
 import java.util.Observable;
 import java.util.Observer;
 import java.util.Random;
-import java.util.Hashtable;
 import java.util.Map;
 
 import org.apache.log4j.Logger;
@@ -154,77 +157,45 @@ public class LogisticLoss extends AbstractRadioMedium {
 
     private long lastTimeVariationUpdatePeriod = 0;
 
-    private DirectedGraphMedium dgrm; /* Used only for efficient destination lookup */
+    private RadioGrid grid; /* Used only for efficient destination lookup */
+    private int gridVersion = -1;
 
     private Random random = null;
 
     private Hashtable<Index, TimeVaryingEdge> edgesTable = new Hashtable<Index, TimeVaryingEdge>();
+    /* Keys in insertion order: replaying them when restoring a checkpoint
+     * recreates the table's iteration order, and so the random draw order */
+    private ArrayList<Index> edgesOrder = new ArrayList<Index>();
 
     public LogisticLoss(Simulation simulation) {
         super(simulation);
         random = simulation.getRandomGenerator();
         sim = simulation;
-        dgrm = new DirectedGraphMedium() {
-                protected void analyzeEdges() {
-                    /* Create edges according to distances.
-                     * XXX May be slow for mobile networks */
-                    clearEdges();
-                    /* XXX: do not remove the time-varying edges to preserve their evolution */
-
-                    for (Radio source: LogisticLoss.this.getRegisteredRadios()) {
-                        Position sourcePos = source.getPosition();
-                        int sourceID = source.getMote().getID();
-                        for (Radio dest: LogisticLoss.this.getRegisteredRadios()) {
-                            Position destPos = dest.getPosition();
-                            /* Ignore ourselves */
-                            if (source == dest) {
-                                continue;
-                            }
-                            double distance = sourcePos.getDistanceTo(destPos);
-                            if (distance < TRANSMITTING_RANGE) {
-                                /* Add potential destination */
-                                addEdge(
-                                        new DirectedGraphMedium.Edge(source, 
-                                                new DGRMDestinationRadio(dest)));
-
-                                if (ENABLE_TIME_VARIATION) {
-                                    int destID = dest.getMote().getID();
-                                    if (sourceID < destID) {
-                                        Index key = new Index(sourceID, destID);
-                                        if (!edgesTable.containsKey(key)) {
-                                            edgesTable.put(key, new TimeVaryingEdge());
-                                        }
-                                    }
-                                }
-                            }
-                        }
-                    }
-                    super.analyzeEdges();
-                }
-            };
+        /* Potential destinations are all radios within transmission range */
+        grid = new RadioGrid(this, TRANSMITTING_RANGE);
 
         /* Register as position observer.
-         * If any positions change, re-analyze potential receivers. */
+         * If any positions change, re-analyze potential receivers of moved radio. */
         final Observer positionObserver = new Observer() {
                 public void update(Observable o, Object arg) {
-                    dgrm.requestEdgeAnalysis();
+                    Radio radio = ((Mote) arg).getInterfaces().getRadio();
+                    if (radio != null) {
+                        grid.radioMoved(radio);
+                    }
                 }
             };
-        /* Re-analyze potential receivers if radios are added/removed. */
         simulation.getEventCentral().addMoteCountListener(new MoteCountListener() {
                 public void moteWasAdded(Mote mote) {
                     mote.getInterfaces().getPosition().addObserver(positionObserver);
-                    dgrm.requestEdgeAnalysis();
                 }
                 public void moteWasRemoved(Mote mote) {
                     mote.getInterfaces().getPosition().deleteObserver(positionObserver);
-                    dgrm.requestEdgeAnalysis();
                 }
             });
         for (Mote mote: simulation.getMotes()) {
             mote.getInterfaces().getPosition().addObserver(positionObserver);
         }
-        dgrm.requestEdgeAnalysis();
+        grid.requestRebuild();
 
         /* Register visualizer skin */
         Visualizer.registerVisualizerSkin(LogisticLossVisualizerSkin.class);
@@ -235,6 +206,51 @@ public class LogisticLoss extends AbstractRadioMedium {
 
         Visualizer.unregisterVisualizerSkin(LogisticLossVisualizerSkin.class);
     }
+
+    public void registerRadioInterface(Radio radio, Simulation sim) {
+        /* Re-analyze potential receivers if radios are added/removed. */
+        super.registerRadioInterface(radio, sim);
+        grid.requestRebuild();
+    }
+
+    public void unregisterRadioInterface(Radio radio, Simulation sim) {
+        super.unregisterRadioInterface(radio, sim);
+        grid.requestRebuild();
+    }
+
+    /**
+     * Updates potential destinations, and creates time-varying edges
+     * between radios within range.
+     */
+    private void analyzeEdges() {
+        grid.setRange(TRANSMITTING_RANGE);
+        grid.update();
+        if (!ENABLE_TIME_VARIATION || gridVersion == grid.getVersion()) {
+            return;
+        }
+        gridVersion = grid.getVersion();
+
+        /* XXX: do not remove the time-varying edges to preserve their evolution.
+         * Edges are added in registration order, as their order in the table
+         * decides the order of random draws in updateTimeVariationComponent(). */
+        Radio[] radios = getRegisteredRadios();
+        for (Radio source: radios) {
+            Position sourcePos = source.getPosition();
+            int sourceID = source.getMote().getID();
+            for (Radio dest: radios) {
+                int destID = dest.getMote().getID();
+                if (sourceID >= destID
+                        || sourcePos.getDistanceTo(dest.getPosition()) >= TRANSMITTING_RANGE) {
+                    continue;
+                }
+                Index key = new Index(sourceID, destID);
+                if (!edgesTable.containsKey(key)) {
+                    edgesTable.put(key, new TimeVaryingEdge());
+                    edgesOrder.add(key);
+                }
+            }
+        }
+    }
   
     public RadioConnection createConnections(Radio sender) {
         RadioConnection newConnection = new RadioConnection(sender);
@@ -245,10 +261,8 @@ public class LogisticLoss extends AbstractRadioMedium {
         }
 
         /* Get all potential destination radios */
-        DestinationRadio[] potentialDestinations = dgrm.getPotentialDestinations(sender);
-        if (potentialDestinations == null) {
-            return newConnection;
-        }
+        analyzeEdges();
+        DestinationRadio[] potentialDestinations = grid.getPotentialDestinations(sender);
 
         /* Loop through all potential destinations */
         Position senderPos = sender.getPosition();
@@ -391,9 +405,7 @@ public class LogisticLoss extends AbstractRadioMedium {
     private void updateTimeVariationComponent() {
         long period = (long)(sim.getSimulationTimeMillis() / (1000.0 * TIME_VARIATION_STEP_SEC));
 
-        if (dgrm.needsEdgeAnalysis()) {
-            dgrm.analyzeEdges();
-        }
+        analyzeEdges();
 
         while (period > lastTimeVariationUpdatePeriod) {
             for (Map.Entry<Index, TimeVaryingEdge> entry : edgesTable.entrySet()) {
@@ -404,6 +416,11 @@ public class LogisticLoss extends AbstractRadioMedium {
         }
     }
 
+    protected void updateSignalStrengths(Radio radio, RadioConnection conn) {
+        /* Signal strengths include freshly drawn noise: always update all radios */
+        updateSignalStrengths();
+    }
+
     public void updateSignalStrengths() {
         /* Override: uses distance as signal strength factor */
 
@@ -467,6 +484,38 @@ public class LogisticLoss extends AbstractRadioMedium {
         }
     }
 
+    public void writeCheckpoint(DataOutputStream out) throws IOException {
+        super.writeCheckpoint(out);
+        out.writeLong(lastTimeVariationUpdatePeriod);
+        out.writeInt(edgesOrder.size());
+        for (Index key : edgesOrder) {
+            out.writeInt(key.x);
+            out.writeInt(key.y);
+            out.writeDouble(edgesTable.get(key).timeVariationPlDb);
+        }
+    }
+
+    public void readCheckpoint(DataInputStream in) throws IOException {
+        super.readCheckpoint(in);
+        lastTimeVariationUpdatePeriod = in.readLong();
+        /* A fresh table grows like the original one did */
+        edgesTable = new Hashtable<Index, TimeVaryingEdge>();
+        edgesOrder.clear();
+        int edges = in.readInt();
+        for (int i = 0; i < edges; i++) {
+            TimeVaryingEdge edge = new TimeVaryingEdge();
+            Index key = new Index(in.readInt(), in.readInt());
+            edge.timeVariationPlDb = in.readDouble();
+            edgesTable.put(key, edge);
+            edgesOrder.add(key);
+        }
+        /* Edges of radios within range already exist */
+        if (ENABLE_TIME_VARIATION) {
+            gridVersion = -1;
+            analyzeEdges();
+        }
+    }
+
     public Collection<Element> getConfigXML() {
         Collection<Element> config = super.getConfigXML();
         Element element;
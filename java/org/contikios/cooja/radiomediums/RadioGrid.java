@@ -0,0 +1,263 @@
+/*
+ * Copyright (c) 2026, Cooja contributors
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the Institute nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE INSTITUTE AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE INSTITUTE OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ *
+ */
+
+package org.contikios.cooja.radiomediums;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+
+import org.contikios.cooja.interfaces.Position;
+import org.contikios.cooja.interfaces.Radio;
+
+/**
+ * Uniform grid over radio positions, used by distance based radio mediums
+ * to find potential destinations without comparing all pairs of radios.
+ *
+ * Radios are bucketed into square (x, y) cells with sides equal to the lookup
+ * range, so all radios within range of a radio are found in the surrounding
+ * 3x3 cells. Potential destinations are cached per radio. When a radio moves,
+ * only the cached destinations of radios near its old and new positions are
+ * invalidated.
+ *
+ * Destinations are returned in radio registration order, i.e. the same order
+ * as a full scan over {@link AbstractRadioMedium#getRegisteredRadios()}.
+ *
+ * @see UDGM
+ * @see LogisticLoss
+ */
+public class RadioGrid {
+  private static final DestinationRadio[] NO_DESTINATIONS = new DestinationRadio[0];
+
+  private AbstractRadioMedium radioMedium;
+  private double range;
+
+  private HashMap<Long, ArrayList<Radio>> cells = new HashMap<Long, ArrayList<Radio>>();
+  private HashMap<Radio, Long> radioCells = new HashMap<Radio, Long>();
+  private HashMap<Radio, Integer> radioOrder = new HashMap<Radio, Integer>();
+  private HashMap<Radio, DestinationRadio[]> destinations = new HashMap<Radio, DestinationRadio[]>();
+
+  /* Pending changes, may be requested from other threads */
+  private boolean rebuild = true;
+  private LinkedHashSet<Radio> movedRadios = new LinkedHashSet<Radio>();
+
+  private int version = 0;
+
+  private Comparator<DestinationRadio> registrationOrder = new Comparator<DestinationRadio>() {
+    public int compare(DestinationRadio a, DestinationRadio b) {
+      return radioOrder.get(a.radio) - radioOrder.get(b.radio);
+    }
+  };
+
+  /**
+   * @param radioMedium Radio medium with registered radios
+   * @param range Lookup range
+   */
+  public RadioGrid(AbstractRadioMedium radioMedium, double range) {
+    this.radioMedium = radioMedium;
+    this.range = range;
+  }
+
+  /**
+   * Sets the lookup range. Radios are potential destinations if their distance
+   * is strictly less than the range.
+   *
+   * @param range Lookup range
+   */
+  public synchronized void setRange(double range) {
+    if (this.range != range) {
+      this.range = range;
+      rebuild = true;
+    }
+  }
+
+  /**
+   * Signal that radios were registered or unregistered.
+   */
+  public synchronized void requestRebuild() {
+    rebuild = true;
+  }
+
+  /**
+   * Signal that a radio changed position.
+   *
+   * @param radio Radio
+   */
+  public synchronized void radioMoved(Radio radio) {
+    movedRadios.add(radio);
+  }
+
+  /**
+   * @return Incremented each time pending changes are applied
+   */
+  public int getVersion() {
+    return version;
+  }
+
+  /**
+   * Applies pending changes.
+   */
+  public void update() {
+    Radio[] moved;
+    synchronized (this) {
+      if (rebuild) {
+        rebuild = false;
+        movedRadios.clear();
+        rebuildGrid();
+        version++;
+        return;
+      }
+      if (movedRadios.isEmpty()) {
+        return;
+      }
+      moved = movedRadios.toArray(new Radio[0]);
+      movedRadios.clear();
+    }
+
+    for (Radio radio: moved) {
+      Long oldCell = radioCells.get(radio);
+      if (oldCell == null) {
+        /* Not registered */
+        continue;
+      }
+      long newCell = getCell(radio.getPosition());
+
+      invalidateNear(oldCell);
+      invalidateNear(newCell);
+      destinations.remove(radio);
+
+      if (newCell != oldCell) {
+        cells.get(oldCell).remove(radio);
+        addToCell(radio, newCell);
+      }
+    }
+    version++;
+  }
+
+  /**
+   * Returns all radios within range of given radio.
+   *
+   * @param source Source radio
+   * @return Potential destinations
+   */
+  public DestinationRadio[] getPotentialDestinations(Radio source) {
+    update();
+
+    DestinationRadio[] dests = destinations.get(source);
+    if (dests != null) {
+      return dests;
+    }
+    if (!radioCells.containsKey(source) || !(range > 0)) {
+      return NO_DESTINATIONS;
+    }
+
+    Position sourcePos = source.getPosition();
+    long cell = radioCells.get(source);
+    int cx = (int) (cell >> 32);
+    int cy = (int) cell;
+    ArrayList<DestinationRadio> list = new ArrayList<DestinationRadio>();
+    for (int x = cx - 1; x <= cx + 1; x++) {
+      for (int y = cy - 1; y <= cy + 1; y++) {
+        ArrayList<Radio> radios = cells.get(toCell(x, y));
+        if (radios == null) {
+          continue;
+        }
+        for (Radio dest: radios) {
+          /* Ignore ourselves */
+          if (dest == source) {
+            continue;
+          }
+          if (sourcePos.getDistanceTo(dest.getPosition()) < range) {
+            list.add(new DestinationRadio(dest));
+          }
+        }
+      }
+    }
+
+    dests = list.toArray(NO_DESTINATIONS);
+    Arrays.sort(dests, registrationOrder);
+    destinations.put(source, dests);
+    return dests;
+  }
+
+  private void rebuildGrid() {
+    cells.clear();
+    radioCells.clear();
+    radioOrder.clear();
+    destinations.clear();
+
+    Radio[] radios = radioMedium.getRegisteredRadios();
+    for (int i = 0; i < radios.length; i++) {
+      radioOrder.put(radios[i], i);
+      addToCell(radios[i], getCell(radios[i].getPosition()));
+    }
+  }
+
+  private void addToCell(Radio radio, long cell) {
+    ArrayList<Radio> radios = cells.get(cell);
+    if (radios == null) {
+      radios = new ArrayList<Radio>();
+      cells.put(cell, radios);
+    }
+    radios.add(radio);
+    radioCells.put(radio, cell);
+  }
+
+  private void invalidateNear(long cell) {
+    int cx = (int) (cell >> 32);
+    int cy = (int) cell;
+    for (int x = cx - 1; x <= cx + 1; x++) {
+      for (int y = cy - 1; y <= cy + 1; y++) {
+        ArrayList<Radio> radios = cells.get(toCell(x, y));
+        if (radios == null) {
+          continue;
+        }
+        for (Radio radio: radios) {
+          destinations.remove(radio);
+        }
+      }
+    }
+  }
+
+  private long getCell(Position pos) {
+    if (!(range > 0) || Double.isInfinite(range)) {
+      return toCell(0, 0);
+    }
+    return toCell(
+        (int) Math.floor(pos.getXCoordinate() / range),
+        (int) Math.floor(pos.getYCoordinate() / range));
+  }
+
+  private static long toCell(int x, int y) {
+    return ((long) x << 32) | (y & 0xffffffffL);
+  }
+}
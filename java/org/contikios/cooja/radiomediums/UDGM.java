@@ -87,61 +87,39 @@ public class UDGM extends AbstractRadioMedium {
   public double TRANSMITTING_RANGE = 50; /* Transmission range. */
   public double INTERFERENCE_RANGE = 100; /* Interference range. Ignored if below transmission range. */
 
-  private DirectedGraphMedium dgrm; /* Used only for efficient destination lookup */
+  private RadioGrid grid; /* Used only for efficient destination lookup */
 
   private Random random = null;
 
   public UDGM(Simulation simulation) {
     super(simulation);
     random = simulation.getRandomGenerator();
-    dgrm = new DirectedGraphMedium() {
-      protected void analyzeEdges() {
-        /* Create edges according to distances.
-         * XXX May be slow for mobile networks */
-        clearEdges();
-        for (Radio source: UDGM.this.getRegisteredRadios()) {
-          Position sourcePos = source.getPosition();
-          for (Radio dest: UDGM.this.getRegisteredRadios()) {
-            Position destPos = dest.getPosition();
-            /* Ignore ourselves */
-            if (source == dest) {
-              continue;
-            }
-            double distance = sourcePos.getDistanceTo(destPos);
-            if (distance < Math.max(TRANSMITTING_RANGE, INTERFERENCE_RANGE)) {
-              /* Add potential destination */
-              addEdge(
-                  new DirectedGraphMedium.Edge(source, 
-                      new DGRMDestinationRadio(dest)));
-            }
-          }
-        }
-        super.analyzeEdges();
-      }
-    };
+    /* Potential destinations are all radios within interference range */
+    grid = new RadioGrid(this, Math.max(TRANSMITTING_RANGE, INTERFERENCE_RANGE));
 
     /* Register as position observer.
-     * If any positions change, re-analyze potential receivers. */
+     * If any positions change, re-analyze potential receivers of moved radio. */
     final Observer positionObserver = new Observer() {
       public void update(Observable o, Object arg) {
-        dgrm.requestEdgeAnalysis();
+        Radio radio = ((Mote) arg).getInterfaces().getRadio();
+        if (radio != null) {
+          grid.radioMoved(radio);
+        }
+        invalidateSignalStrengths();
       }
     };
-    /* Re-analyze potential receivers if radios are added/removed. */
     simulation.getEventCentral().addMoteCountListener(new MoteCountListener() {
       public void moteWasAdded(Mote mote) {
         mote.getInterfaces().getPosition().addObserver(positionObserver);
-        dgrm.requestEdgeAnalysis();
       }
       public void moteWasRemoved(Mote mote) {
         mote.getInterfaces().getPosition().deleteObserver(positionObserver);
-        dgrm.requestEdgeAnalysis();
       }
     });
     for (Mote mote: simulation.getMotes()) {
       mote.getInterfaces().getPosition().addObserver(positionObserver);
     }
-    dgrm.requestEdgeAnalysis();
+    grid.requestRebuild();
 
     /* Register visualizer skin */
     Visualizer.registerVisualizerSkin(UDGMVisualizerSkin.class);
@@ -155,12 +133,22 @@ public class UDGM extends AbstractRadioMedium {
   
   public void setTxRange(double r) {
     TRANSMITTING_RANGE = r;
-    dgrm.requestEdgeAnalysis();
+    invalidateSignalStrengths();
   }
 
   public void setInterferenceRange(double r) {
     INTERFERENCE_RANGE = r;
-    dgrm.requestEdgeAnalysis();
+  }
+
+  public void registerRadioInterface(Radio radio, Simulation sim) {
+    /* Re-analyze potential receivers if radios are added/removed. */
+    super.registerRadioInterface(radio, sim);
+    grid.requestRebuild();
+  }
+
+  public void unregisterRadioInterface(Radio radio, Simulation sim) {
+    super.unregisterRadioInterface(radio, sim);
+    grid.requestRebuild();
   }
 
   public RadioConnection createConnections(Radio sender) {
@@ -178,10 +166,9 @@ public class UDGM extends AbstractRadioMedium {
     * ((double) sender.getCurrentOutputPowerIndicator() / (double) sender.getOutputPowerIndicatorMax());
 
     /* Get all potential destination radios */
-    DestinationRadio[] potentialDestinations = dgrm.getPotentialDestinations(sender);
-    if (potentialDestinations == null) {
-      return newConnection;
-    }
+    /* Ranges may have been changed since last lookup */
+    grid.setRange(Math.max(TRANSMITTING_RANGE, INTERFERENCE_RANGE));
+    DestinationRadio[] potentialDestinations = grid.getPotentialDestinations(sender);
 
     /* Loop through all potential destinations */
     Position senderPos = sender.getPosition();
@@ -278,72 +265,46 @@ public class UDGM extends AbstractRadioMedium {
     return 1.0 - ratio*(1.0-SUCCESS_RATIO_RX);
   }
 
-  public void updateSignalStrengths() {
+  protected void addSignalStrengths(RadioConnection conn, SignalStrengths signalStrengths) {
     /* Override: uses distance as signal strength factor */
-    
-    /* Reset signal strengths */
-    for (Radio radio : getRegisteredRadios()) {
-      radio.setCurrentSignalStrength(getBaseRssi(radio));
-    }
+    Radio source = conn.getSource();
+    double maxTxDist = TRANSMITTING_RANGE
+    * ((double) source.getCurrentOutputPowerIndicator() / (double) source.getOutputPowerIndicatorMax());
+
+    signalStrengths.raise(source, SS_STRONG);
 
     /* Set signal strength to below strong on destinations */
-    RadioConnection[] conns = getActiveConnections();
-    for (RadioConnection conn : conns) {
-      if (conn.getSource().getCurrentSignalStrength() < SS_STRONG) {
-        conn.getSource().setCurrentSignalStrength(SS_STRONG);
+    for (Radio dstRadio : conn.getDestinations()) {
+      if (source.getChannel() >= 0 &&
+          dstRadio.getChannel() >= 0 &&
+          source.getChannel() != dstRadio.getChannel()) {
+        continue;
       }
-      for (Radio dstRadio : conn.getDestinations()) {
-        if (conn.getSource().getChannel() >= 0 &&
-            dstRadio.getChannel() >= 0 &&
-            conn.getSource().getChannel() != dstRadio.getChannel()) {
-          continue;
-        }
 
-        double dist = conn.getSource().getPosition().getDistanceTo(dstRadio.getPosition());
+      double dist = source.getPosition().getDistanceTo(dstRadio.getPosition());
+      double distFactor = dist/maxTxDist;
 
-        double maxTxDist = TRANSMITTING_RANGE
-        * ((double) conn.getSource().getCurrentOutputPowerIndicator() / (double) conn.getSource().getOutputPowerIndicatorMax());
-        double distFactor = dist/maxTxDist;
-
-        double signalStrength = SS_STRONG + distFactor*(SS_WEAK - SS_STRONG);
-        if (dstRadio.getCurrentSignalStrength() < signalStrength) {
-          dstRadio.setCurrentSignalStrength(signalStrength);
-        }
-      }
+      signalStrengths.raise(dstRadio, SS_STRONG + distFactor*(SS_WEAK - SS_STRONG));
     }
 
     /* Set signal strength to below weak on interfered */
-    for (RadioConnection conn : conns) {
-      for (Radio intfRadio : conn.getInterfered()) {
-        if (conn.getSource().getChannel() >= 0 &&
-            intfRadio.getChannel() >= 0 &&
-            conn.getSource().getChannel() != intfRadio.getChannel()) {
-          continue;
-        }
-
-        double dist = conn.getSource().getPosition().getDistanceTo(intfRadio.getPosition());
-
-        double maxTxDist = TRANSMITTING_RANGE
-        * ((double) conn.getSource().getCurrentOutputPowerIndicator() / (double) conn.getSource().getOutputPowerIndicatorMax());
-        double distFactor = dist/maxTxDist;
+    for (Radio intfRadio : conn.getInterfered()) {
+      if (source.getChannel() >= 0 &&
+          intfRadio.getChannel() >= 0 &&
+          source.getChannel() != intfRadio.getChannel()) {
+        continue;
+      }
 
-        if (distFactor < 1) {
-          double signalStrength = SS_STRONG + distFactor*(SS_WEAK - SS_STRONG);
-          if (intfRadio.getCurrentSignalStrength() < signalStrength) {
-            intfRadio.setCurrentSignalStrength(signalStrength);
-          }
-        } else {
-          intfRadio.setCurrentSignalStrength(SS_WEAK);
-          if (intfRadio.getCurrentSignalStrength() < SS_WEAK) {
-            intfRadio.setCurrentSignalStrength(SS_WEAK);
-          }
-        }
+      double dist = source.getPosition().getDistanceTo(intfRadio.getPosition());
+      double distFactor = dist/maxTxDist;
 
-        if (!intfRadio.isInterfered()) {
-          /*logger.warn("Radio was not interfered: " + intfRadio);*/
-          intfRadio.interfereAnyReception();
-        }
+      if (distFactor < 1) {
+        signalStrengths.raise(intfRadio, SS_STRONG + distFactor*(SS_WEAK - SS_STRONG));
+      } else {
+        signalStrengths.raise(intfRadio, SS_WEAK);
       }
+
+      signalStrengths.interfere(intfRadio);
     }
   }
 
@@ -379,6 +340,7 @@ public class UDGM extends AbstractRadioMedium {
     for (Element element : configXML) {
       if (element.getName().equals("transmitting_range")) {
         TRANSMITTING_RANGE = Double.parseDouble(element.getText());
+        invalidateSignalStrengths();
       }
 
       if (element.getName().equals("interference_range")) {
@@ -100,9 +100,9 @@ public class ExecuteJAR {
 
     /* Load simulation */
     logger.info("Loading " + config);
-    Cooja.externalToolsUserSettingsFile = new File(
+    Cooja.setExternalToolsUserSettingsFile(new File(
         System.getProperty("user.home"), 
-        Cooja.EXTERNAL_TOOLS_USER_SETTINGS_FILENAME);
+        Cooja.EXTERNAL_TOOLS_USER_SETTINGS_FILENAME), false);
     Simulation s = Cooja.quickStartSimulationConfig(config, false, null);
     if (s == null) {
       throw new RuntimeException(
@@ -175,7 +175,7 @@ public class ExecuteJAR {
       } else {
         logger.info("Skip: external tools config already exists: " + diskFile);
       }
-      Cooja.externalToolsUserSettingsFile = diskFile;
+      Cooja.setExternalToolsUserSettingsFile(diskFile, false);
 
       /* Unpack files from JAR (with attribute EXPORT=copy) */
       SAXBuilder builder = new SAXBuilder();
@@ -350,19 +350,8 @@ public class ExecuteJAR {
     try {
       File externalToolsConfig = new File(workingDir, EXTERNALTOOLS_FILENAME);
       FileOutputStream out = new FileOutputStream(externalToolsConfig);
-      Properties differingSettings = new Properties();
-      Enumeration<Object> keyEnum = Cooja.currentExternalToolsSettings.keys();
-      while (keyEnum.hasMoreElements()) {
-        String key = (String) keyEnum.nextElement();
-        String defaultSetting = Cooja.getExternalToolsDefaultSetting(key, "");
-        String currentSetting = Cooja.currentExternalToolsSettings.getProperty(key, "");
-
-        if (key.equals("DEFAULT_PROJECTDIRS")) {
-          differingSettings.setProperty(key, "");
-        } else if (!defaultSetting.equals(currentSetting)) {
-          differingSettings.setProperty(key, currentSetting);
-        }
-      }
+      Properties differingSettings = Cooja.getDifferingExternalToolsSettings();
+      differingSettings.setProperty("DEFAULT_PROJECTDIRS", "");
 
       differingSettings.store(out, "Cooja External Tools (User specific)");
       out.close();
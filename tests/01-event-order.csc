@@ -0,0 +1,140 @@
+<?xml version="1.0" encoding="UTF-8"?>
+<simconf>
+  <simulation>
+    <title>Event order</title>
+    <randomseed>123456</randomseed>
+    <motedelay_us>1000000</motedelay_us>
+    <radiomedium>
+      org.contikios.cooja.radiomediums.UDGM
+      <transmitting_range>50.0</transmitting_range>
+      <interference_range>100.0</interference_range>
+      <success_ratio_tx>1.0</success_ratio_tx>
+      <success_ratio_rx>1.0</success_ratio_rx>
+    </radiomedium>
+    <events>
+      <logoutput>40000</logoutput>
+    </events>
+    <motetype>
+      org.contikios.cooja.motes.ImportAppMoteType
+      <identifier>apptype1</identifier>
+      <description>Rime ABC</description>
+      <motepath>[CONFIG_DIR]/../examples/appmote_rimeabc</motepath>
+      <moteclass>RimeABC</moteclass>
+    </motetype>
+    <mote>
+      <interface_config>
+        org.contikios.cooja.motes.AbstractApplicationMoteType$SimpleMoteID
+        <id>1</id>
+      </interface_config>
+      <interface_config>
+        org.contikios.cooja.interfaces.Position
+        <x>20.0</x>
+        <y>15.0</y>
+        <z>0.0</z>
+      </interface_config>
+      <motetype_identifier>apptype1</motetype_identifier>
+    </mote>
+    <mote>
+      <interface_config>
+        org.contikios.cooja.motes.AbstractApplicationMoteType$SimpleMoteID
+        <id>2</id>
+      </interface_config>
+      <interface_config>
+        org.contikios.cooja.interfaces.Position
+        <x>40.0</x>
+        <y>0.0</y>
+        <z>0.0</z>
+      </interface_config>
+      <motetype_identifier>apptype1</motetype_identifier>
+    </mote>
+  </simulation>
+  <plugin>
+    org.contikios.cooja.plugins.ScriptRunner
+    <plugin_config>
+      <script>/*
+ * Events scheduled for the same time must execute in the order they were
+ * scheduled, also after other events have been removed or rescheduled.
+ * The motes only provide log output that wakes up this script.
+ */
+TIMEOUT(60000);
+
+var TimeEvent = Java.type("org.contikios.cooja.TimeEvent");
+var EVENTS = 2000;
+var TIMES = 7;
+
+var executed = [];
+var scheduled = {}; /* Event number -&gt; [time, scheduling order] */
+var order = 0;
+var end = 0;
+
+/* Deterministic choices that leave the simulation's random generator alone */
+var rnd = 42;
+function next(n) {
+  rnd = (rnd * 1103515245 + 12345) % 2147483648;
+  return Math.floor(rnd / 65536) % n;
+}
+
+function createEvent(i) {
+  return new TimeEvent(0) {
+    execute: function(t) {
+      executed.push(i);
+    }
+  };
+}
+
+function schedule(events, i, start) {
+  var t = start + next(TIMES) * 1000;
+  sim.scheduleEvent(events[i], t);
+  scheduled[i] = [t, order++];
+}
+
+sim.invokeSimulationThread(new java.lang.Runnable() {
+  run: function() {
+    var start = sim.getSimulationTime() + 1000000;
+    var events = [];
+    for (var i = 0; i &lt; EVENTS; i++) {
+      events.push(createEvent(i));
+      schedule(events, i, start);
+    }
+    /* Remove some events, and reschedule some of those */
+    for (var i = 0; i &lt; EVENTS / 4; i++) {
+      var e = next(EVENTS);
+      if (scheduled[e] !== undefined) {
+        events[e].remove();
+        delete scheduled[e];
+      }
+      if (next(2) == 0) {
+        schedule(events, e, start);
+      }
+    }
+    end = start + TIMES * 1000;
+  }
+});
+
+/* Wait until all events have executed */
+YIELD_THEN_WAIT_UNTIL(end &gt; 0 &amp;&amp; time &gt; end);
+
+var expected = Object.keys(scheduled).map(Number);
+expected.sort(function(a, b) {
+  if (scheduled[a][0] != scheduled[b][0]) {
+    return scheduled[a][0] - scheduled[b][0];
+  }
+  return scheduled[a][1] - scheduled[b][1];
+});
+
+if (executed.length != expected.length) {
+  log.log("Executed " + executed.length + " events, expected " + expected.length + "\n");
+  log.testFailed();
+}
+for (var i = 0; i &lt; expected.length; i++) {
+  if (executed[i] != expected[i]) {
+    log.log("Event " + i + " executed: " + executed[i] + ", expected: " + expected[i] + "\n");
+    log.testFailed();
+  }
+}
+log.log(executed.length + " of " + EVENTS + " events executed in order\n");
+log.testOK();</script>
+      <active>true</active>
+    </plugin_config>
+  </plugin>
+</simconf>
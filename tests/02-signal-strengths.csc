@@ -0,0 +1,265 @@
+<?xml version="1.0" encoding="UTF-8"?>
+<simconf>
+  <simulation>
+    <title>Signal strengths</title>
+    <randomseed>123456</randomseed>
+    <motedelay_us>1000000</motedelay_us>
+    <radiomedium>
+      org.contikios.cooja.radiomediums.UDGM
+      <transmitting_range>50.0</transmitting_range>
+      <interference_range>100.0</interference_range>
+      <success_ratio_tx>1.0</success_ratio_tx>
+      <success_ratio_rx>1.0</success_ratio_rx>
+      <IncrementalSignalStrengths>true</IncrementalSignalStrengths>
+    </radiomedium>
+    <events>
+      <logoutput>40000</logoutput>
+    </events>
+    <motetype>
+      org.contikios.cooja.motes.ImportAppMoteType
+      <identifier>apptype1</identifier>
+      <description>Rime ABC</description>
+      <motepath>[CONFIG_DIR]/../examples/appmote_rimeabc</motepath>
+      <moteclass>RimeABC</moteclass>
+    </motetype>
+    <mote>
+      <interface_config>
+        org.contikios.cooja.motes.AbstractApplicationMoteType$SimpleMoteID
+        <id>1</id>
+      </interface_config>
+      <interface_config>
+        org.contikios.cooja.interfaces.Position
+        <x>0.0</x>
+        <y>0.0</y>
+        <z>0.0</z>
+      </interface_config>
+      <motetype_identifier>apptype1</motetype_identifier>
+    </mote>
+    <mote>
+      <interface_config>
+        org.contikios.cooja.motes.AbstractApplicationMoteType$SimpleMoteID
+        <id>2</id>
+      </interface_config>
+      <interface_config>
+        org.contikios.cooja.interfaces.Position
+        <x>30.0</x>
+        <y>10.0</y>
+        <z>0.0</z>
+      </interface_config>
+      <motetype_identifier>apptype1</motetype_identifier>
+    </mote>
+    <mote>
+      <interface_config>
+        org.contikios.cooja.motes.AbstractApplicationMoteType$SimpleMoteID
+        <id>3</id>
+      </interface_config>
+      <interface_config>
+        org.contikios.cooja.interfaces.Position
+        <x>60.0</x>
+        <y>0.0</y>
+        <z>0.0</z>
+      </interface_config>
+      <motetype_identifier>apptype1</motetype_identifier>
+    </mote>
+    <mote>
+      <interface_config>
+        org.contikios.cooja.motes.AbstractApplicationMoteType$SimpleMoteID
+        <id>4</id>
+      </interface_config>
+      <interface_config>
+        org.contikios.cooja.interfaces.Position
+        <x>90.0</x>
+        <y>10.0</y>
+        <z>0.0</z>
+      </interface_config>
+      <motetype_identifier>apptype1</motetype_identifier>
+    </mote>
+    <mote>
+      <interface_config>
+        org.contikios.cooja.motes.AbstractApplicationMoteType$SimpleMoteID
+        <id>5</id>
+      </interface_config>
+      <interface_config>
+        org.contikios.cooja.interfaces.Position
+        <x>120.0</x>
+        <y>0.0</y>
+        <z>0.0</z>
+      </interface_config>
+      <motetype_identifier>apptype1</motetype_identifier>
+    </mote>
+    <mote>
+      <interface_config>
+        org.contikios.cooja.motes.AbstractApplicationMoteType$SimpleMoteID
+        <id>6</id>
+      </interface_config>
+      <interface_config>
+        org.contikios.cooja.interfaces.Position
+        <x>150.0</x>
+        <y>10.0</y>
+        <z>0.0</z>
+      </interface_config>
+      <motetype_identifier>apptype1</motetype_identifier>
+    </mote>
+    <mote>
+      <interface_config>
+        org.contikios.cooja.motes.AbstractApplicationMoteType$SimpleMoteID
+        <id>7</id>
+      </interface_config>
+      <interface_config>
+        org.contikios.cooja.interfaces.Position
+        <x>180.0</x>
+        <y>0.0</y>
+        <z>0.0</z>
+      </interface_config>
+      <motetype_identifier>apptype1</motetype_identifier>
+    </mote>
+    <mote>
+      <interface_config>
+        org.contikios.cooja.motes.AbstractApplicationMoteType$SimpleMoteID
+        <id>8</id>
+      </interface_config>
+      <interface_config>
+        org.contikios.cooja.interfaces.Position
+        <x>210.0</x>
+        <y>10.0</y>
+        <z>0.0</z>
+      </interface_config>
+      <motetype_identifier>apptype1</motetype_identifier>
+    </mote>
+    <mote>
+      <interface_config>
+        org.contikios.cooja.motes.AbstractApplicationMoteType$SimpleMoteID
+        <id>9</id>
+      </interface_config>
+      <interface_config>
+        org.contikios.cooja.interfaces.Position
+        <x>240.0</x>
+        <y>0.0</y>
+        <z>0.0</z>
+      </interface_config>
+      <motetype_identifier>apptype1</motetype_identifier>
+    </mote>
+    <mote>
+      <interface_config>
+        org.contikios.cooja.motes.AbstractApplicationMoteType$SimpleMoteID
+        <id>10</id>
+      </interface_config>
+      <interface_config>
+        org.contikios.cooja.interfaces.Position
+        <x>270.0</x>
+        <y>10.0</y>
+        <z>0.0</z>
+      </interface_config>
+      <motetype_identifier>apptype1</motetype_identifier>
+    </mote>
+  </simulation>
+  <plugin>
+    org.contikios.cooja.plugins.ScriptRunner
+    <plugin_config>
+      <script>/*
+ * Incremental signal strength updates must leave all radios with the same
+ * signal strengths and interference as a full update. The script starts
+ * overlapping transmissions, switches channels and turns radios on and off,
+ * and regularly compares the radios with a full update.
+ */
+TIMEOUT(60000);
+
+var TimeEvent = Java.type("org.contikios.cooja.TimeEvent");
+var COOJARadioPacket = Java.type("org.contikios.cooja.COOJARadioPacket");
+var DURATION = 20000 * 1000; /* us */
+var CHANNELS = [-1, 11, 12];
+
+var medium = sim.getRadioMedium();
+var radios = [];
+for (var i = 0; i &lt; sim.getMotesCount(); i++) {
+  radios.push(sim.getMote(i).getInterfaces().getRadio());
+}
+var packet = new COOJARadioPacket([0, 1, 2, 3]);
+
+var checks = 0;
+var interfered = 0;
+var failure = null;
+var end = 0;
+
+/* Deterministic choices that leave the simulation's random generator alone */
+var rnd = 4711;
+function next(n) {
+  rnd = (rnd * 1103515245 + 12345) % 2147483648;
+  return Math.floor(rnd / 65536) % n;
+}
+
+function check(t) {
+  var before = [];
+  for (var i = 0; i &lt; radios.length; i++) {
+    before.push([radios[i].getCurrentSignalStrength(), radios[i].isInterfered()]);
+  }
+  medium.updateSignalStrengths();
+  for (var i = 0; i &lt; radios.length; i++) {
+    var ss = radios[i].getCurrentSignalStrength();
+    var intf = radios[i].isInterfered();
+    if (ss != before[i][0] || intf != before[i][1]) {
+      failure = "Radio " + i + " at " + t + ": incremental " + before[i] + ", full " + [ss, intf];
+      return;
+    }
+    if (intf) {
+      interfered++;
+    }
+  }
+  checks++;
+}
+
+function act() {
+  var radio = radios[next(radios.length)];
+  switch (next(4)) {
+  case 0:
+    radio.setChannel(CHANNELS[next(CHANNELS.length)]);
+    break;
+  case 1:
+    if (!radio.isTransmitting()) {
+      radio.setReceiverOn(!radio.isRadioOn());
+    }
+    break;
+  default:
+    if (!radio.isTransmitting()) {
+      radio.startTransmittingPacket(packet, (1 + next(20)) * 1000);
+    }
+  }
+}
+
+var driver = new TimeEvent(0) {
+  execute: function(t) {
+    if (failure != null || t &gt; end) {
+      return;
+    }
+    if (next(5) == 0) {
+      check(t);
+    }
+    act();
+    sim.scheduleEvent(driver, t + 100 + next(3000));
+  }
+};
+
+sim.invokeSimulationThread(new java.lang.Runnable() {
+  run: function() {
+    end = sim.getSimulationTime() + DURATION;
+    sim.scheduleEvent(driver, sim.getSimulationTime() + 1);
+  }
+});
+
+/* Wait until the last transmissions have finished */
+YIELD_THEN_WAIT_UNTIL(failure != null || (end &gt; 0 &amp;&amp; time &gt; end + 100000));
+
+if (failure != null) {
+  log.log(failure + "\n");
+  log.testFailed();
+}
+if (interfered == 0) {
+  log.log("No interfered radios after " + checks + " checks\n");
+  log.testFailed();
+}
+log.log(checks + " checks passed, " + interfered + " interfered radios\n");
+log.testOK();</script>
+      <active>true</active>
+    </plugin_config>
+  </plugin>
+</simconf>
@@ -0,0 +1,204 @@
+<?xml version="1.0" encoding="UTF-8"?>
+<simconf>
+  <project EXPORT="discard">[APPS_DIR]/radiologger-headless</project>
+  <simulation>
+    <title>pcapng</title>
+    <randomseed>123456</randomseed>
+    <motedelay_us>1000000</motedelay_us>
+    <radiomedium>
+      org.contikios.cooja.radiomediums.UDGM
+      <transmitting_range>50.0</transmitting_range>
+      <interference_range>100.0</interference_range>
+      <success_ratio_tx>1.0</success_ratio_tx>
+      <success_ratio_rx>1.0</success_ratio_rx>
+    </radiomedium>
+    <events>
+      <logoutput>40000</logoutput>
+    </events>
+    <motetype>
+      org.contikios.cooja.motes.ImportAppMoteType
+      <identifier>apptype1</identifier>
+      <description>Rime ABC</description>
+      <motepath>[CONFIG_DIR]/../examples/appmote_rimeabc</motepath>
+      <moteclass>RimeABC</moteclass>
+    </motetype>
+    <mote>
+      <interface_config>
+        org.contikios.cooja.motes.AbstractApplicationMoteType$SimpleMoteID
+        <id>1</id>
+      </interface_config>
+      <interface_config>
+        org.contikios.cooja.interfaces.Position
+        <x>0.0</x>
+        <y>0.0</y>
+        <z>0.0</z>
+      </interface_config>
+      <motetype_identifier>apptype1</motetype_identifier>
+    </mote>
+    <mote>
+      <interface_config>
+        org.contikios.cooja.motes.AbstractApplicationMoteType$SimpleMoteID
+        <id>2</id>
+      </interface_config>
+      <interface_config>
+        org.contikios.cooja.interfaces.Position
+        <x>30.0</x>
+        <y>10.0</y>
+        <z>0.0</z>
+      </interface_config>
+      <motetype_identifier>apptype1</motetype_identifier>
+    </mote>
+    <mote>
+      <interface_config>
+        org.contikios.cooja.motes.AbstractApplicationMoteType$SimpleMoteID
+        <id>3</id>
+      </interface_config>
+      <interface_config>
+        org.contikios.cooja.interfaces.Position
+        <x>60.0</x>
+        <y>0.0</y>
+        <z>0.0</z>
+      </interface_config>
+      <motetype_identifier>apptype1</motetype_identifier>
+    </mote>
+    <mote>
+      <interface_config>
+        org.contikios.cooja.motes.AbstractApplicationMoteType$SimpleMoteID
+        <id>4</id>
+      </interface_config>
+      <interface_config>
+        org.contikios.cooja.interfaces.Position
+        <x>90.0</x>
+        <y>10.0</y>
+        <z>0.0</z>
+      </interface_config>
+      <motetype_identifier>apptype1</motetype_identifier>
+    </mote>
+    <mote>
+      <interface_config>
+        org.contikios.cooja.motes.AbstractApplicationMoteType$SimpleMoteID
+        <id>5</id>
+      </interface_config>
+      <interface_config>
+        org.contikios.cooja.interfaces.Position
+        <x>120.0</x>
+        <y>0.0</y>
+        <z>0.0</z>
+      </interface_config>
+      <motetype_identifier>apptype1</motetype_identifier>
+    </mote>
+    <mote>
+      <interface_config>
+        org.contikios.cooja.motes.AbstractApplicationMoteType$SimpleMoteID
+        <id>6</id>
+      </interface_config>
+      <interface_config>
+        org.contikios.cooja.interfaces.Position
+        <x>150.0</x>
+        <y>10.0</y>
+        <z>0.0</z>
+      </interface_config>
+      <motetype_identifier>apptype1</motetype_identifier>
+    </mote>
+  </simulation>
+  <plugin>
+    be.cetic.cooja.plugins.RadioLoggerHeadless
+    <plugin_config>
+      <pcap_file EXPORT="discard">03-pcapng.pcap</pcap_file>
+      <pcap_receivers>true</pcap_receivers>
+    </plugin_config>
+  </plugin>
+  <plugin>
+    org.contikios.cooja.plugins.ScriptRunner
+    <plugin_config>
+      <script>/*
+ * The headless radio logger must write one pcap record per transmission, and
+ * a pcapng file with one interface per receiving mote and one packet per
+ * reception.
+ */
+TIMEOUT(60000);
+
+var Files = Java.type("java.nio.file.Files");
+var Paths = Java.type("java.nio.file.Paths");
+var ByteBuffer = Java.type("java.nio.ByteBuffer");
+
+var transmissions = 0;
+var receptions = 0;
+var receivers = {};
+sim.getRadioMedium().addRadioTransmissionObserver(new java.util.Observer() {
+  update: function(obs, obj) {
+    var conn = sim.getRadioMedium().getLastConnection();
+    if (conn == null) {
+      return;
+    }
+    transmissions++;
+    var destinations = conn.getDestinations();
+    for (var i = 0; i &lt; destinations.length; i++) {
+      receivers["mote " + destinations[i].getMote().getID()] = true;
+      receptions++;
+    }
+  }
+});
+
+function fail(msg) {
+  log.log(msg + "\n");
+  log.testFailed();
+}
+
+WAIT_UNTIL(time &gt; 30000000);
+
+/* Closing the logger writes out all packets */
+gui.removePlugin(gui.getPlugin("RadioLoggerHeadless"), false);
+
+/* pcap: file header followed by one record per transmission */
+var pcap = ByteBuffer.wrap(Files.readAllBytes(Paths.get("03-pcapng.pcap")));
+if (pcap.getInt(0) != (0xa1b2c3d4 | 0)) {
+  fail("Bad pcap magic: " + pcap.getInt(0));
+}
+var records = 0;
+for (var pos = 24; pos &lt; pcap.limit(); pos += 16 + pcap.getInt(pos + 8)) {
+  records++;
+}
+if (pos != pcap.limit()) {
+  fail("Truncated pcap record at " + pos);
+}
+if (records != transmissions) {
+  fail("pcap records: " + records + ", transmissions: " + transmissions);
+}
+
+/* pcapng: section header, then interface descriptions and packets */
+var pcapng = ByteBuffer.wrap(Files.readAllBytes(Paths.get("03-pcapng_rx.pcapng")));
+if (pcapng.getInt(0) != 0x0A0D0D0A || pcapng.getInt(8) != 0x1A2B3C4D) {
+  fail("Bad pcapng section header");
+}
+var interfaces = [];
+var packets = 0;
+for (var pos = 0; pos &lt; pcapng.limit(); pos += pcapng.getInt(pos + 4)) {
+  var type = pcapng.getInt(pos);
+  var length = pcapng.getInt(pos + 4);
+  if (length % 4 != 0 || pcapng.getInt(pos + length - 4) != length) {
+    fail("Bad pcapng block length at " + pos);
+  }
+  if (type == 1) {
+    var name = new java.lang.String(pcapng.array(), pos + 20, pcapng.getShort(pos + 18), "UTF-8");
+    interfaces.push(String(name));
+  } else if (type == 6) {
+    if (pcapng.getInt(pos + 8) &gt;= interfaces.length) {
+      fail("pcapng packet on undescribed interface " + pcapng.getInt(pos + 8));
+    }
+    packets++;
+  }
+}
+if (interfaces.sort().join() != Object.keys(receivers).sort().join()) {
+  fail("pcapng interfaces: " + interfaces.sort() + ", receivers: " + Object.keys(receivers).sort());
+}
+if (packets != receptions) {
+  fail("pcapng packets: " + packets + ", receptions: " + receptions);
+}
+
+log.log(transmissions + " transmissions, " + receptions + " receptions by " + interfaces.length + " motes\n");
+log.testOK();</script>
+      <active>true</active>
+    </plugin_config>
+  </plugin>
+</simconf>
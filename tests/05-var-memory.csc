@@ -0,0 +1,166 @@
+<?xml version="1.0" encoding="UTF-8"?>
+<simconf>
+  <simulation>
+    <title>Variable memory</title>
+    <randomseed>123456</randomseed>
+    <motedelay_us>1000000</motedelay_us>
+    <radiomedium>
+      org.contikios.cooja.radiomediums.UDGM
+      <transmitting_range>50.0</transmitting_range>
+      <interference_range>100.0</interference_range>
+      <success_ratio_tx>1.0</success_ratio_tx>
+      <success_ratio_rx>1.0</success_ratio_rx>
+    </radiomedium>
+    <events>
+      <logoutput>40000</logoutput>
+    </events>
+    <motetype>
+      org.contikios.cooja.motes.ImportAppMoteType
+      <identifier>apptype1</identifier>
+      <description>Rime ABC</description>
+      <motepath>[CONFIG_DIR]/../examples/appmote_rimeabc</motepath>
+      <moteclass>RimeABC</moteclass>
+    </motetype>
+    <mote>
+      <interface_config>
+        org.contikios.cooja.motes.AbstractApplicationMoteType$SimpleMoteID
+        <id>1</id>
+      </interface_config>
+      <interface_config>
+        org.contikios.cooja.interfaces.Position
+        <x>20.0</x>
+        <y>15.0</y>
+        <z>0.0</z>
+      </interface_config>
+      <motetype_identifier>apptype1</motetype_identifier>
+    </mote>
+  </simulation>
+  <plugin>
+    org.contikios.cooja.plugins.ScriptRunner
+    <plugin_config>
+      <script>/*
+ * Variables bound with VarMemory.bind*() must read and write the same memory
+ * as the name-based accessors, both in array-backed sections and in sections
+ * only accessible via get/setMemorySegment. The mote only starts the script.
+ */
+TIMEOUT(60000);
+
+var ByteOrder = Java.type("java.nio.ByteOrder");
+var HashMap = Java.type("java.util.HashMap");
+var Arrays = Java.type("java.util.Arrays");
+var ArrayMemory = Java.type("org.contikios.cooja.mote.memory.ArrayMemory");
+var MemoryLayout = Java.type("org.contikios.cooja.mote.memory.MemoryLayout");
+var SectionMoteMemory = Java.type("org.contikios.cooja.mote.memory.SectionMoteMemory");
+var Symbol = Java.type("org.contikios.cooja.mote.memory.MemoryInterface.Symbol");
+var VarMemory = Java.type("org.contikios.cooja.mote.memory.VarMemory");
+var OPERATIONS = 20000;
+var ARRAY_SIZE = 6;
+
+/* Deterministic choices that leave the simulation's random generator alone */
+var rnd = 1234;
+function next(n) {
+  rnd = (rnd * 1103515245 + 12345) % 2147483648;
+  return Math.floor(rnd / 65536) % n;
+}
+
+function fail(msg) {
+  log.log(msg + "\n");
+  log.testFailed();
+}
+
+function testLayout(layout) {
+  var kinds = ["int", "byte", "int32", "int64", "array"];
+  var sizes = { "int": layout.intSize, "byte": 1, "int32": 4, "int64": 8, "array": ARRAY_SIZE };
+
+  /* Variables alternate between an array section and a nested section */
+  var symbols = new HashMap();
+  var vars = [];
+  var addrs = [0x1000, 0x2000];
+  for (var i = 0; i &lt; 40; i++) {
+    var kind = kinds[i % kinds.length];
+    var s = i % 2;
+    var name = kind + "_" + i;
+    symbols.put(name, new Symbol(Symbol.Type.VARIABLE, name, addrs[s], sizes[kind]));
+    vars.push({ name: name, kind: kind });
+    addrs[s] += 8;
+  }
+  var memory = new SectionMoteMemory(symbols);
+  memory.addMemorySection("data", new ArrayMemory(0x1000, 0x1000, layout, symbols));
+  var nested = new SectionMoteMemory(symbols);
+  nested.addMemorySection("bss", new ArrayMemory(0x2000, 0x1000, layout, symbols));
+  nested.addMemorySection("stack", new ArrayMemory(0x3000, 0x1000, layout, symbols));
+  memory.addMemorySection("nested", nested);
+
+  var vm = new VarMemory(memory);
+  for (var i = 0; i &lt; vars.length; i++) {
+    var v = vars[i];
+    switch (v.kind) {
+    case "int": v.bound = vm.bindInt(v.name); break;
+    case "byte": v.bound = vm.bindByte(v.name); break;
+    case "int32": v.bound = vm.bindInt32(v.name); break;
+    case "int64": v.bound = vm.bindInt64(v.name); break;
+    case "array": v.bound = vm.bindByteArray(v.name); break;
+    }
+  }
+
+  function value(kind) {
+    switch (kind) {
+    case "int": return layout.intSize == 2 ? next(65536) - 32768 : next(2147483647) - 1073741824;
+    case "byte": return next(256) - 128;
+    case "int32": return next(2147483647) - 1073741824;
+    case "int64": return next(2147483647) * 65536 - 1073741824;
+    case "array":
+      var a = [];
+      for (var j = 0; j &lt; ARRAY_SIZE; j++) {
+        a.push(next(256) - 128);
+      }
+      return Java.to(a, "byte[]");
+    }
+  }
+
+  function byName(v, x) {
+    switch (v.kind) {
+    case "int": if (x !== undefined) vm.setIntValueOf(v.name, x); return vm.getIntValueOf(v.name);
+    case "byte": if (x !== undefined) vm.setByteValueOf(v.name, x); return vm.getByteValueOf(v.name);
+    case "int32": if (x !== undefined) vm.setInt32ValueOf(v.name, x); return vm.getInt32ValueOf(v.name);
+    case "int64": if (x !== undefined) vm.setInt64ValueOf(v.name, x); return vm.getInt64ValueOf(v.name);
+    case "array": if (x !== undefined) vm.setByteArray(v.name, x); return vm.getByteArray(v.name, ARRAY_SIZE);
+    }
+  }
+
+  function bound(v, x) {
+    if (x !== undefined) {
+      v.bound.set(x);
+    }
+    return v.kind == "array" ? v.bound.get(ARRAY_SIZE) : v.bound.get();
+  }
+
+  function same(a, b) {
+    return a instanceof Java.type("byte[]") ? Arrays.equals(a, b) : String(a) == String(b);
+  }
+
+  for (var i = 0; i &lt; OPERATIONS; i++) {
+    var v = vars[next(vars.length)];
+    var x = value(v.kind);
+    var written, read;
+    if (next(2) == 0) {
+      written = bound(v, x);
+      read = byName(v);
+    } else {
+      written = byName(v, x);
+      read = bound(v);
+    }
+    if (!same(written, read)) {
+      fail(layout + ": " + v.name + " written " + written + ", read " + read);
+    }
+  }
+}
+
+testLayout(new MemoryLayout(ByteOrder.LITTLE_ENDIAN, MemoryLayout.ARCH_16BIT, 2));
+testLayout(new MemoryLayout(ByteOrder.BIG_ENDIAN, MemoryLayout.ARCH_32BIT, 4));
+log.log("Bound and named variables agree\n");
+log.testOK();</script>
+      <active>true</active>
+    </plugin_config>
+  </plugin>
+</simconf>
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2026, Cooja contributors
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the Institute nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE INSTITUTE AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE INSTITUTE OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ *
+ */
+
+package org.contikios.coffee;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Coffee file system image in a memory-mapped file.
+ *
+ * The file holds the whole flash, with the file system starting at the
+ * configured start offset. This is the layout of the flash files written by
+ * Cooja, which may thus be inspected while a simulation is still running.
+ *
+ * A read-only image is mapped as is; the file system beyond the end of a
+ * shorter file reads as erased.
+ */
+public class CoffeeImageMapped implements CoffeeImage {
+	private static final byte[] ERASED = new byte[256];
+
+	private final CoffeeConfiguration conf;
+	private final RandomAccessFile imageFile;
+	private final MappedByteBuffer buffer;
+	private final boolean readOnly;
+	private final long end;
+
+	public CoffeeImageMapped(String filename, CoffeeConfiguration conf) throws IOException {
+		this(new File(filename), conf, false);
+	}
+
+	public CoffeeImageMapped(String filename, CoffeeConfiguration conf, boolean readOnly) throws IOException {
+		this(new File(filename), conf, readOnly);
+	}
+
+	public CoffeeImageMapped(File file, CoffeeConfiguration conf, boolean readOnly) throws IOException {
+		this.conf = conf;
+		this.readOnly = readOnly;
+		imageFile = new RandomAccessFile(file, readOnly ? "r" : "rw");
+		long fsEnd = (long) conf.startOffset + conf.fsSize;
+		long size = readOnly ? imageFile.length() : Math.max(imageFile.length(), fsEnd);
+		if (size > Integer.MAX_VALUE) {
+			imageFile.close();
+			throw new IOException("Too large file system image: " + size);
+		}
+		if (readOnly) {
+			buffer = imageFile.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, size);
+			end = Math.max(size, fsEnd);
+		} else {
+			/* Extends file if needed */
+			buffer = imageFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+			end = size;
+		}
+	}
+
+	@Override
+	public CoffeeConfiguration getConfiguration() {
+		return conf;
+	}
+
+	@Override
+	public synchronized void read(byte[] bytes, int size, int offset) throws IOException {
+		long pos = check(offset, size);
+		int available = (int) Math.max(0, Math.min(size, buffer.capacity() - pos));
+		if (available > 0) {
+			buffer.position((int) pos);
+			buffer.get(bytes, 0, available);
+		}
+		Arrays.fill(bytes, available, size, (byte) 0);
+	}
+
+	@Override
+	public synchronized void write(byte[] bytes, int size, int offset) throws IOException {
+		checkWritable();
+		buffer.position((int) check(offset, size));
+		buffer.put(bytes, 0, size);
+	}
+
+	@Override
+	public synchronized void erase(int size, int offset) throws IOException {
+		checkWritable();
+		buffer.position((int) check(offset, size));
+		while (size > 0) {
+			int chunkSize = Math.min(size, ERASED.length);
+			buffer.put(ERASED, 0, chunkSize);
+			size -= chunkSize;
+		}
+	}
+
+	/**
+	 * Writes changes to file and releases the file.
+	 *
+	 * @throws IOException On file error
+	 */
+	public synchronized void close() throws IOException {
+		if (!readOnly) {
+			buffer.force();
+		}
+		imageFile.close();
+	}
+
+	private long check(int offset, int size) throws IOException {
+		long pos = (long) conf.startOffset + offset;
+		if (offset < 0 || size < 0 || pos + size > end) {
+			throw new IOException("Access outside file system image: " + pos + " + " + size);
+		}
+		return pos;
+	}
+
+	private void checkWritable() throws IOException {
+		if (readOnly) {
+			throw new IOException("File system image is opened read-only");
+		}
+	}
+
+}
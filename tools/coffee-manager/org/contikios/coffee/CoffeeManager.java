@@ -94,9 +94,15 @@ public class CoffeeManager {
 		}
 		fsImage = args[args.length - 1];
 
+		int exitCode = 0;
+		CoffeeImageMapped image = null;
 		try {
 			CoffeeConfiguration conf = new CoffeeConfiguration(platform + ".properties");
-			CoffeeFS coffeeFS = new CoffeeFS(new CoffeeImageFile(fsImage, conf));
+			boolean readOnly = command == Command.LIST
+				|| command == Command.STATS
+				|| command == Command.EXTRACT;
+			image = new CoffeeImageMapped(fsImage, conf, readOnly);
+			CoffeeFS coffeeFS = new CoffeeFS(image);
 			switch (command) {
 			case INSERT:
 				if (coffeeFS.getFiles().get(filename) != null) {
@@ -114,7 +120,8 @@ public class CoffeeManager {
 				if (coffeeFS.extractFile(filename) == false) {
 					System.err.println("Inexistent file: " +
 						filename);
-					System.exit(1);
+					exitCode = 1;
+					break;
 				}
 				System.out.println("Saved the file \"" +
 					filename + "\"");
@@ -133,7 +140,7 @@ public class CoffeeManager {
 				break;
 			default:
 				System.err.println("Unknown command!");
-				System.exit(1);
+				exitCode = 1;
 			}
 		} catch (IOException e) {
 			System.err.println(e.getMessage());
@@ -141,6 +148,19 @@ public class CoffeeManager {
 			System.err.println(e.getMessage());
 		} catch (CoffeeFileException e) {
 			System.err.println(e.getMessage());
+		} finally {
+			/* Written pages are flushed on close */
+			if (image != null) {
+				try {
+					image.close();
+				} catch (IOException e) {
+					System.err.println(e.getMessage());
+					exitCode = 1;
+				}
+			}
+		}
+		if (exitCode != 0) {
+			System.exit(exitCode);
 		}
 	}
 